@@ -1,8 +1,14 @@
 package com.petpal.beans;
 
-import com.petpal.model.Animal;
+import com.petpal.model.AnimalCard;
 import com.petpal.model.Category;
 import com.petpal.model.User;
+import com.petpal.service.AnimalFilter;
+import com.petpal.service.FacetCounts;
+import com.petpal.service.FavoriteService;
+import com.petpal.service.Page;
+import com.petpal.service.PageCursor;
+import com.petpal.service.SavedSearchService;
 
 import javax.annotation.PostConstruct;
 import javax.faces.application.FacesMessage;
@@ -13,16 +19,22 @@ import javax.faces.context.FacesContext;
 import javax.persistence.*;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
  * JSF ManagedBean (ViewScoped) responsible for managing
  * the list of animals displayed in the UI.
  * 
- * Provides filtering (by category, gender, age),
+ * Provides free-text search and filtering (by category, gender, age, distance from a location),
  * sorting, and initial loading of categories and animals.
+ * The location starts as the logged-in user's default location and can be replaced by the browser's.
+ * Results are loaded page by page ("load more") using keyset cursors;
+ * every search also refreshes the facet counts shown next to the filter choices.
+ * Expanding a card's details also shows the animals most often saved together with it.
+ * The filters of the last search can be saved, to be told about new animals that match them.
  */
 
 //==================================================== Animal Bean ==============================================================//
@@ -37,17 +49,38 @@ public class AnimalBean implements Serializable {
 	// It identifies the version of the class for saving and restoring (Serialization/Deserialization).
     private static final long serialVersionUID = 1L;
 
+    /** Number of animals fetched per "load more" */
+    private static final int PAGE_SIZE = 24;
+
+    /** Number of "saved together" animals shown in a card's details */
+    private static final int SIMILAR_SHOWN = 6;
+
     /** Service layer for DB operations related to animals and categories */
     private final com.petpal.service.AnimalService animalService = new com.petpal.service.AnimalService();
+    private final FavoriteService favoriteService = new FavoriteService();
+    private final SavedSearchService savedSearchService = new SavedSearchService();
     
     
     
 
     //************************************************* View Data **********************************************//
    
-    // Animals to be displayed in the UI (after search/filter/sort) 
-    private List<Animal> animals = new ArrayList<>();
-    private List<Animal> myAnimals = new ArrayList<>();
+    // Animals to be displayed in the UI (after search/filter/sort) - all pages loaded so far
+    private List<AnimalCard> animals = new ArrayList<>();
+    private List<AnimalCard> myAnimals = new ArrayList<>();
+
+    // How many animals each filter choice gives under the current search
+    private FacetCounts facets;
+
+    // Filter of the current search and the cursor that continues it (null when no more pages)
+    private AnimalFilter activeFilter;
+    private PageCursor nextCursor;
+
+    // Full descriptions of the cards whose details are currently expanded (loaded on demand)
+    private Map<Long, String> expandedDescriptions = new HashMap<>();
+
+    // Animals saved together with the expanded cards ("people who saved this also saved")
+    private Map<Long, List<AnimalCard>> similarAnimals = new HashMap<>();
 
     
     // All categories (loaded once for filtering options) 
@@ -59,10 +92,17 @@ public class AnimalBean implements Serializable {
     
     //************************************************ Filters ************************************************//
 
+    private String query;
     private Long categoryId;
     private String gender = "";
     private Integer minAge;
     private Integer maxAge;
+    private Double latitude;
+    private Double longitude;
+    private Integer radiusKm;
+
+    // Name for saving the current search
+    private String savedSearchName;
 
     
     
@@ -82,6 +122,11 @@ public class AnimalBean implements Serializable {
     @PostConstruct
     public void init() {
         categories = animalService.listCategories();
+        User me = (userBean != null) ? userBean.getLoggedInUser() : null;
+        if (me != null && me.isHasLocation()) {
+            latitude = me.getLatitude();
+            longitude = me.getLongitude();
+        }
         search(); 
     }
 
@@ -91,15 +136,91 @@ public class AnimalBean implements Serializable {
     
     /**
      * Performs search with the current filters and sorting.
-     * Populates the animals list for display.
+     * Replaces the animals list with the first page of results.
      */
     public void search() {
-        animals = animalService.search(
-                categoryId, gender, minAge, maxAge, sortBy, sortDir, true);
+        activeFilter = new AnimalFilter(query, categoryId, gender, minAge, maxAge,
+                latitude, longitude, radiusKm, sortBy, sortDir);
+        Page<AnimalCard> page = animalService.search(activeFilter, null, PAGE_SIZE);
+        animals = new ArrayList<>(page.getItems());
+        nextCursor = page.getNext();
+        facets = animalService.facets(activeFilter);
+    }
+
+
+    /**
+     * Selects an age bucket of the age facet and searches again.
+     */
+    public void selectAgeBucket(Integer min, Integer max) {
+        minAge = min;
+        maxAge = max;
+        search();
+    }
+
+
+    /**
+     * Appends the next page of the current search (same filters as the last search,
+     * even if the filter form was changed in the meantime).
+     */
+    public void loadMore() {
+        if (activeFilter == null || nextCursor == null) return;
+        Page<AnimalCard> page = animalService.search(activeFilter, nextCursor, PAGE_SIZE);
+        animals.addAll(page.getItems());
+        nextCursor = page.getNext();
     }
     
     
 
+    /**
+     * Expands or collapses the details of a card.
+     * The full description (and the animals saved together with this one) are fetched only when expanding.
+     *
+     * @param animalId the animal whose details were toggled
+     */
+    public void toggleDetails(Long animalId) {
+        if (expandedDescriptions.containsKey(animalId)) {
+            expandedDescriptions.remove(animalId);
+            similarAnimals.remove(animalId);
+        } else {
+            String full = animalService.findFullDescription(animalId);
+            expandedDescriptions.put(animalId, full != null ? full : "");
+            similarAnimals.put(animalId, favoriteService.getSimilarCards(animalId, SIMILAR_SHOWN));
+        }
+    }
+
+    public boolean isExpanded(Long animalId) {
+        return expandedDescriptions.containsKey(animalId);
+    }
+
+
+
+    /**
+     * Saves the filters of the last search (as shown in the results) under the given name.
+     * New animals that match it are sent to the user's inbox.
+     */
+    public void saveSearch() {
+        User me = (userBean != null) ? userBean.getLoggedInUser() : null;
+        if (me == null) {
+            FacesContext.getCurrentInstance().addMessage(null,
+                new FacesMessage(FacesMessage.SEVERITY_ERROR, "יש להתחבר למערכת", null));
+            return;
+        }
+        try {
+            savedSearchService.save(me, savedSearchName, activeFilter);
+            savedSearchName = null;
+            FacesContext.getCurrentInstance().addMessage(null,
+                new FacesMessage(FacesMessage.SEVERITY_INFO, "החיפוש נשמר – חיות חדשות שמתאימות לו יגיעו לתיבת הדואר", null));
+        } catch (IllegalArgumentException e) {
+            FacesContext.getCurrentInstance().addMessage(null,
+                new FacesMessage(FacesMessage.SEVERITY_ERROR, e.getMessage(), null));
+        } catch (Exception e) {
+            FacesContext.getCurrentInstance().addMessage(null,
+                new FacesMessage(FacesMessage.SEVERITY_ERROR, "תקלה בשמירת החיפוש", null));
+        }
+    }
+
+
+
     /**
      * Deletes an animal by its ID, but only if the logged-in user
      * is the owner of that animal. Shows FacesMessages for:
@@ -136,7 +257,7 @@ public class AnimalBean implements Serializable {
     /**
      * Loads the list of animals owned by the currently logged-in user.
      * If no user is logged in, returns an empty list.
-     * Otherwise, fetches all animals of that user (with Base64 images).
+     * Otherwise, fetches all animals of that user.
      */
     public void loadMyAnimals() {
     	
@@ -147,15 +268,25 @@ public class AnimalBean implements Serializable {
             myAnimals = java.util.Collections.emptyList();
             return;
         }
-        myAnimals = animalService.listByOwner(me.getId(), true);
+        myAnimals = animalService.listByOwner(me.getId());
     }
 
     
     //*********************************************** Getters & Setters *************************************//
     
-    public List<Animal> getAnimals() { return animals; }
+    public List<AnimalCard> getAnimals() { return animals; }
+    public FacetCounts getFacets() { return facets; }
+    public Map<Long, String> getExpandedDescriptions() { return expandedDescriptions; }
+    public Map<Long, List<AnimalCard>> getSimilarAnimals() { return similarAnimals; }
+    public boolean isHasMore() { return nextCursor != null; }
     public List<Category> getCategories() { return categories; }
 
+    public String getSavedSearchName() { return savedSearchName; }
+    public void setSavedSearchName(String savedSearchName) { this.savedSearchName = savedSearchName; }
+
+    public String getQuery() { return query; }
+    public void setQuery(String query) { this.query = query; }
+
     public Long getCategoryId() { return categoryId; }
     public void setCategoryId(Long categoryId) { this.categoryId = categoryId; }
 
@@ -168,13 +299,24 @@ public class AnimalBean implements Serializable {
     public Integer getMaxAge() { return maxAge; }
     public void setMaxAge(Integer maxAge) { this.maxAge = maxAge; }
 
+    public Double getLatitude() { return latitude; }
+    public void setLatitude(Double latitude) { this.latitude = latitude; }
+
+    public Double getLongitude() { return longitude; }
+    public void setLongitude(Double longitude) { this.longitude = longitude; }
+
+    public Integer getRadiusKm() { return radiusKm; }
+    public void setRadiusKm(Integer radiusKm) { this.radiusKm = radiusKm; }
+
+    public boolean isHasLocation() { return latitude != null && longitude != null; }
+
     public String getSortBy() { return sortBy; }
     public void setSortBy(String sortBy) { this.sortBy = sortBy; }
 
     public String getSortDir() { return sortDir; }
     public void setSortDir(String sortDir) { this.sortDir = sortDir; }
     public void setUserBean(UserBean userBean){ this.userBean = userBean; }
-    public List<Animal> getMyAnimals() { return myAnimals; }
+    public List<AnimalCard> getMyAnimals() { return myAnimals; }
 
 
 }
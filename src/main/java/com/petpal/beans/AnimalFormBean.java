@@ -3,8 +3,10 @@ package com.petpal.beans;
 import com.petpal.model.Animal;
 import com.petpal.model.Category;
 import com.petpal.model.User;
+import com.petpal.service.StagedImage;
 
 import javax.annotation.PostConstruct;
+import javax.faces.application.FacesMessage;
 import javax.faces.bean.ManagedBean;
 import javax.faces.bean.ManagedProperty;
 import javax.faces.bean.RequestScoped;
@@ -62,11 +64,17 @@ public class AnimalFormBean implements Serializable {
     //***************************************** initialization *************************************//
 
     /**
-     * Load categories once per request to populate the dropdown.
+     * Load categories once per request to populate the dropdown,
+     * and start the animal's location at the owner's default location.
      */
     @PostConstruct
     public void init() {
         categories = animalService.listCategories();
+        User me = userBean != null ? userBean.getLoggedInUser() : null;
+        if (me != null && me.isHasLocation()) {
+            animal.setLatitude(me.getLatitude());
+            animal.setLongitude(me.getLongitude());
+        }
     }
     
     
@@ -85,13 +93,22 @@ public class AnimalFormBean implements Serializable {
     public String saveAnimal() {
         try {
             User owner = userBean != null ? userBean.getLoggedInUser() : null;
-            InputStream imageStream = null;
+            StagedImage.Source image = null;
+            long imageSize = -1;
             if (uploadedImage != null && uploadedImage.getSize() > 0) {
-                imageStream = uploadedImage.getInputStream();
+                // the container has already spooled the part; writing it moves that file into place
+                Part part = uploadedImage;
+                image = file -> part.write(file.toString());
+                imageSize = uploadedImage.getSize();
             }
 
-            animalService.saveAnimal(animal, owner, selectedCategoryId, imageStream);
+            animalService.saveAnimal(animal, owner, selectedCategoryId, image, imageSize);
             return "animals?faces-redirect=true";
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            // validation errors from the service carry a user-facing message (e.g. image too large)
+            FacesContext.getCurrentInstance().addMessage(null,
+                new FacesMessage(FacesMessage.SEVERITY_ERROR, e.getMessage(), null));
+            return null;
         } catch (Exception e) {
             e.printStackTrace();
             return null;
@@ -5,6 +5,7 @@ import javax.faces.bean.ManagedBean;
 import javax.faces.bean.ApplicationScoped;
 import javax.persistence.*;
 import com.petpal.model.Category;
+import com.petpal.service.PersistenceManager;
 
 
 /**
@@ -20,8 +21,7 @@ import com.petpal.model.Category;
 public class DataInitializer implements Serializable {
     private static final long serialVersionUID = 1L;
 
-    private static final EntityManagerFactory emf =
-        Persistence.createEntityManagerFactory("PetPalPU");
+    private static final EntityManagerFactory emf = PersistenceManager.getEntityManagerFactory();
     
     
     
@@ -1,7 +1,7 @@
 package com.petpal.beans;
 
 import com.petpal.model.Animal;
-import com.petpal.model.Favorite;
+import com.petpal.model.AnimalCard;
 import com.petpal.model.User;
 import com.petpal.service.FavoriteService;
 
@@ -33,7 +33,7 @@ public class FavoriteBean implements Serializable {
     private static final long serialVersionUID = 1L;
 
     private final FavoriteService favoriteService = new FavoriteService();
-    private List<Favorite> favorites;
+    private List<AnimalCard> favorites;
     
     
     
@@ -55,21 +55,13 @@ public class FavoriteBean implements Serializable {
     //***************************************** Core Actions *********************************************//
 
     /**
-     * Loads/refreshes the favorites list for the current user.
-     * Also converts animal image blobs to Base64 so they can be rendered in XHTML.
+     * Loads/refreshes the favorites list (card projections) for the current user.
      * If no user is logged in, initializes with an empty list.
      */
     public void loadFavorites() {
         User currentUser = getCurrentUser();
         if (currentUser != null) {
-            this.favorites = favoriteService.getFavoritesByUser(currentUser.getId());
-
-            for (Favorite fav : favorites) {
-                Animal a = fav.getAnimal();
-                if (a != null && a.getImageBlob() != null && a.getImageBlob().length > 0) {
-                    a.setImageBase64(java.util.Base64.getEncoder().encodeToString(a.getImageBlob()));
-                }
-            }
+            this.favorites = favoriteService.getFavoriteCardsByUser(currentUser.getId());
         } else {
             this.favorites = java.util.Collections.emptyList();
         }
@@ -124,7 +116,7 @@ public class FavoriteBean implements Serializable {
     //***************************************** Getters & Helpers *********************************************//
 
 
-    public List<Favorite> getFavorites() {
+    public List<AnimalCard> getFavorites() {
         return favorites == null ? Collections.emptyList() : favorites;
     }
     
@@ -2,8 +2,11 @@ package com.petpal.beans;
 
 import com.petpal.model.Animal;
 import com.petpal.model.Message;
+import com.petpal.model.MessageHeader;
 import com.petpal.model.User;
 import com.petpal.service.MessageService;
+import com.petpal.service.Page;
+import com.petpal.service.PageCursor;
 
 import javax.faces.application.FacesMessage;
 import javax.faces.bean.ManagedBean;
@@ -12,7 +15,12 @@ import javax.faces.bean.ViewScoped;
 import javax.faces.context.FacesContext;
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 
 
@@ -20,7 +28,9 @@ import java.util.List;
  * JSF ManagedBean (ViewScoped) for handling user messages.
  *
  * Responsibilities:
- * - Load inbox and sent messages for the logged-in user.
+ * - Load inbox and sent messages for the logged-in user, a page of headers at a time ("load more").
+ * - Mark the messages of an inbox page as read once it is shown (they stay highlighted on that page).
+ * - Load the content of a message only when it is opened or replied to (the view state keeps only which are open).
  * - Send new messages (direct or replies).
  * - Delete messages (from inbox or sent).
  * - Prepare reply forms and handle selected animal references.
@@ -35,6 +45,9 @@ public class MessageBean implements Serializable {
 
 	private static final long serialVersionUID = 1L;
 
+    /** Number of messages fetched per "load more" */
+	private static final int PAGE_SIZE = 20;
+
     /** Service layer that performs DB operations for messages */
 	private final MessageService messageService = new MessageService();
 
@@ -49,9 +62,17 @@ public class MessageBean implements Serializable {
 	private Animal selectedAnimal;
 	private Long animalId;
 
-    /** Cached inbox & sent lists */
-	private List<Message> inbox;
-	private List<Message> sent;
+    /** Inbox & sent headers loaded so far, and the cursors that continue them (null when no more pages) */
+	private List<MessageHeader> inbox = new ArrayList<>();
+	private List<MessageHeader> sent = new ArrayList<>();
+	private PageCursor nextInbox;
+	private PageCursor nextSent;
+
+    /** Ids of the messages currently opened */
+	private Set<Long> openIds = new HashSet<>();
+
+    /** Contents of the open messages, read once when opened; transient, so never part of the view state */
+	private transient Map<Long, String> contents;
 
     /** If replying, holds ID of the original message */
 	private Long replyingToId;
@@ -68,22 +89,93 @@ public class MessageBean implements Serializable {
 	}
 
 	
-    /** Loads sent messages for current user  */
+    /** Loads the first page of the inbox for current user (skips reload on postback) */
 	public void loadInbox() {
 		if (FacesContext.getCurrentInstance().isPostback()) return;
 		User current = userBean.getLoggedInUser();
 		if (current != null) {
-			inbox = messageService.loadInbox(current);
+			Page<MessageHeader> page = messageService.inboxPage(current.getId(), null, PAGE_SIZE);
+			inbox = new ArrayList<>(page.getItems());
+			nextInbox = page.getNext();
+			markShown(current, page.getItems());
 		}
 	}
 
-    /** Loads sent messages for current user (skips reload on postback) */
+    /** Loads the first page of sent messages for current user (skips reload on postback) */
 	public void loadSent() {
 		if (FacesContext.getCurrentInstance().isPostback()) return;
 		User current = userBean.getLoggedInUser();
 		if (current != null) {
-			sent = messageService.loadSent(current);
+			Page<MessageHeader> page = messageService.sentPage(current.getId(), null, PAGE_SIZE);
+			sent = new ArrayList<>(page.getItems());
+			nextSent = page.getNext();
+		}
+	}
+
+    /** Appends the next page of the inbox */
+	public void loadMoreInbox() {
+		User current = userBean.getLoggedInUser();
+		if (current == null || nextInbox == null) return;
+		Page<MessageHeader> page = messageService.inboxPage(current.getId(), nextInbox, PAGE_SIZE);
+		inbox.addAll(page.getItems());
+		nextInbox = page.getNext();
+		markShown(current, page.getItems());
+	}
+
+    /** Marks the unread messages of a shown inbox page as read (one UPDATE for the page) */
+	private void markShown(User current, List<MessageHeader> shown) {
+		List<Long> unread = new ArrayList<>();
+		for (MessageHeader h : shown) {
+			if (!h.isRead()) unread.add(h.getId());
+		}
+		messageService.markRead(current.getId(), unread);
+	}
+
+    /** Appends the next page of sent messages */
+	public void loadMoreSent() {
+		User current = userBean.getLoggedInUser();
+		if (current == null || nextSent == null) return;
+		Page<MessageHeader> page = messageService.sentPage(current.getId(), nextSent, PAGE_SIZE);
+		sent.addAll(page.getItems());
+		nextSent = page.getNext();
+	}
+
+
+    /** Opens or closes a message; the content is read from the DB once, when opening (only for the sender or the recipient) */
+	public void toggleMessage(Long messageId) {
+		if (openIds.remove(messageId)) {
+			if (contents != null) contents.remove(messageId);
+			return;
+		}
+		User current = userBean.getLoggedInUser();
+		if (current == null) return;
+		if (!contents().containsKey(messageId)) { // already read if it was replied to
+			String content = messageService.loadContent(current, messageId);
+			contents().put(messageId, content != null ? content : "");
+		}
+		openIds.add(messageId);
+	}
+
+	public boolean isOpen(Long messageId) {
+		return openIds.contains(messageId);
+	}
+
+    /** Content of an open message (read from memory; loaded by toggleMessage) */
+	public String contentOf(Long messageId) {
+		return openIds.contains(messageId) ? contents().getOrDefault(messageId, "") : "";
+	}
+
+    /**
+     * The loaded contents. A view restored from its saved state comes without them: the open ones are
+     * read again, in one query, the first time they are needed.
+     */
+	private Map<Long, String> contents() {
+		if (contents == null) {
+			User current = userBean.getLoggedInUser();
+			contents = (current != null && !openIds.isEmpty())
+					? messageService.loadContents(current, openIds) : new HashMap<>();
 		}
+		return contents;
 	}
 
 	
@@ -103,9 +195,11 @@ public class MessageBean implements Serializable {
      * Sets recipient to the original sender, copies subject and animal.
      */
 	public void startReply(Long messageId) {
+		User current = userBean.getLoggedInUser();
 		Message original = messageService.findMessage(messageId);
-		if (original != null) {
+		if (original != null && current != null && original.getRecipient().getId().equals(current.getId())) {
 			replyingToId = messageId;
+			contents().put(messageId, original.getContent() != null ? original.getContent() : "");
 			newMessage = new Message();
 			newMessage.setRecipient(original.getSender());
 			newMessage.setSubject("Re: " + (original.getSubject() != null ? original.getSubject() : ""));
@@ -121,7 +215,7 @@ public class MessageBean implements Serializable {
 	  /**
      * Sends a new message (direct or reply).
      * Validates recipient, subject, and content.
-     * After success, resets form and reloads inbox/sent.
+     * After success, resets the form and redirects to the inbox.
      */
 	public String sendMessage() {
 		FacesContext fc = FacesContext.getCurrentInstance();
@@ -161,14 +255,10 @@ public class MessageBean implements Serializable {
 					newMessage.getContent(),
 					LocalDateTime.now());
 
-            // Reset UI state
+            // Reset UI state (the redirect loads the first page of the inbox again)
 			newMessage = new Message();
 			replyingToId = null;
 
-            // Refresh both inbox and sent
-			inbox = messageService.loadInbox(currentUser);
-			sent = messageService.loadSent(currentUser);
-
 			return "inbox?faces-redirect=true";
 		} catch (Exception e) {
 			fc.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_ERROR, "שגיאה בשליחה", null));
@@ -187,7 +277,9 @@ public class MessageBean implements Serializable {
 			boolean ok = messageService.deleteFromInbox(me, messageId);
 			if (ok) {
 				ctx.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_INFO, "נמחק", "ההודעה נמחקה"));
-				inbox = messageService.loadInbox(me);
+				inbox.removeIf(h -> h.getId().equals(messageId));
+				openIds.remove(messageId);
+				if (contents != null) contents.remove(messageId);
 			} else {
 				ctx.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_ERROR, "שגיאה", "אין הרשאה למחוק"));
 			}
@@ -205,7 +297,9 @@ public class MessageBean implements Serializable {
 			boolean ok = messageService.deleteFromSent(me, messageId);
 			if (ok) {
 				ctx.addMessage(null, new FacesMessage("ההודעה נמחקה."));
-				sent = messageService.loadSent(me);
+				sent.removeIf(h -> h.getId().equals(messageId));
+				openIds.remove(messageId);
+				if (contents != null) contents.remove(messageId);
 			} else {
 				ctx.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_ERROR, "שגיאה", "אין הרשאה למחוק"));
 			}
@@ -225,11 +319,11 @@ public class MessageBean implements Serializable {
 	public Long getAnimalId() { return animalId; }
 	public void setAnimalId(Long animalId) { this.animalId = animalId; }
 
-	public List<Message> getInbox() { return inbox; }
-	public void setInbox(List<Message> inbox) { this.inbox = inbox; }
+	public List<MessageHeader> getInbox() { return inbox; }
+	public List<MessageHeader> getSent() { return sent; }
 
-	public List<Message> getSent() { return sent; }
-	public void setSent(List<Message> sent) { this.sent = sent; }
+	public boolean isHasMoreInbox() { return nextInbox != null; }
+	public boolean isHasMoreSent() { return nextSent != null; }
 
 	public Long getReplyingToId() { return replyingToId; }
 	public void setReplyingToId(Long replyingToId) { this.replyingToId = replyingToId; }
@@ -0,0 +1,119 @@
+package com.petpal.beans;
+
+import com.petpal.model.Category;
+import com.petpal.model.SavedSearch;
+import com.petpal.model.User;
+import com.petpal.service.AnimalService;
+import com.petpal.service.SavedSearchService;
+
+import javax.annotation.PostConstruct;
+import javax.faces.application.FacesMessage;
+import javax.faces.bean.ManagedBean;
+import javax.faces.bean.ManagedProperty;
+import javax.faces.bean.ViewScoped;
+import javax.faces.context.FacesContext;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * JSF ManagedBean (ViewScoped) for the saved searches of the logged-in user (profile page).
+ *
+ * Responsibilities:
+ * - List the user's saved searches with a readable summary of their filters.
+ * - Delete a saved search.
+ *
+ * Searches are saved from the animals page ({@link AnimalBean#saveSearch()}).
+ * Delegates DB logic to {@link SavedSearchService}.
+ */
+//================================================ Saved Search Bean ============================================================//
+
+@ManagedBean(name = "savedSearchBean")
+@ViewScoped
+public class SavedSearchBean implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final SavedSearchService savedSearchService = new SavedSearchService();
+
+    @ManagedProperty("#{userBean}")
+    private UserBean userBean;
+
+    private List<SavedSearch> searches = new ArrayList<>();
+
+    // Category names by id, for the summaries
+    private Map<Long, String> categoryNames = new HashMap<>();
+
+
+
+    //***************************************** initialization *************************************//
+
+    @PostConstruct
+    public void init() {
+        for (Category c : new AnimalService().listCategories()) categoryNames.put(c.getId(), c.getName());
+        load();
+    }
+
+    /** Loads the saved searches of the current user (empty if not logged in) */
+    public void load() {
+        User me = (userBean != null) ? userBean.getLoggedInUser() : null;
+        searches = (me != null) ? savedSearchService.listByUser(me.getId()) : Collections.emptyList();
+    }
+
+
+
+    //***************************************** Actions *********************************************//
+
+    /**
+     * Deletes one of the user's saved searches and reloads the list.
+     *
+     * @param searchId the search to delete
+     */
+    public void delete(Long searchId) {
+        User me = (userBean != null) ? userBean.getLoggedInUser() : null;
+        if (me == null || searchId == null) return;
+        try {
+            if (savedSearchService.delete(me.getId(), searchId)) {
+                FacesContext.getCurrentInstance().addMessage(null,
+                    new FacesMessage(FacesMessage.SEVERITY_INFO, "החיפוש נמחק", null));
+            } else {
+                FacesContext.getCurrentInstance().addMessage(null,
+                    new FacesMessage(FacesMessage.SEVERITY_ERROR, "אין הרשאה למחוק חיפוש זה", null));
+            }
+        } catch (Exception e) {
+            FacesContext.getCurrentInstance().addMessage(null,
+                new FacesMessage(FacesMessage.SEVERITY_ERROR, "תקלה במחיקת החיפוש", null));
+        }
+        load();
+    }
+
+
+
+    //***************************************** Getters & Helpers *********************************************//
+
+    public List<SavedSearch> getSearches() { return searches; }
+
+    /**
+     * The filters of a search in one line, e.g. "טקסט: גור · קטגוריה: כלבים · גיל 1–3 · עד 20 ק״מ".
+     */
+    public String summary(SavedSearch s) {
+        List<String> parts = new ArrayList<>();
+        if (s.getQuery() != null) parts.add("טקסט: " + s.getQuery());
+        if (s.getCategoryId() != null) {
+            parts.add("קטגוריה: " + categoryNames.getOrDefault(s.getCategoryId(), String.valueOf(s.getCategoryId())));
+        }
+        if (s.getGender() != null) parts.add("מין: " + s.getGender());
+        if (s.getMinAge() != null && s.getMaxAge() != null) parts.add("גיל " + s.getMinAge() + "–" + s.getMaxAge());
+        else if (s.getMinAge() != null) parts.add("גיל " + s.getMinAge() + " ומעלה");
+        else if (s.getMaxAge() != null) parts.add("גיל עד " + s.getMaxAge());
+        if (s.getRadiusKm() != null) parts.add("עד " + s.getRadiusKm() + " ק״מ");
+        return String.join(" · ", parts);
+    }
+
+    public void setUserBean(UserBean userBean) { this.userBean = userBean; }
+}
+//===============================================================================================================================//
@@ -8,6 +8,7 @@ import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 
 import com.petpal.model.User;
+import com.petpal.service.UnreadCounters;
 
 import java.io.Serializable;
 
@@ -18,7 +19,7 @@ import java.io.Serializable;
  *  - User login and logout.
  *  - Registration of new users.
  *  - Password reset (temporary password) and password change.
- *  - Store and expose the currently logged-in user.
+ *  - Store and expose the currently logged-in user (and the number of unread messages).
  *
  * Delegates database logic to {@link com.petpal.service.UserService}.
  */
@@ -41,6 +42,8 @@ public class UserBean implements Serializable {
 	/** Fields for forms */
 	private String resetEmail;
 	private String confirmPassword;
+	private Double latitude;
+	private Double longitude;
 
 	@NotBlank(message = "שדה חובה")
 	private String username;
@@ -72,6 +75,8 @@ public class UserBean implements Serializable {
 				this.loggedInUser = u;
 				this.username = u.getUsername();
 				this.email = u.getEmail();
+				this.latitude = u.getLatitude();
+				this.longitude = u.getLongitude();
 				ctx.getExternalContext().getSessionMap().put("user", u);
 				return "index?faces-redirect=true";
 			}
@@ -196,6 +201,31 @@ public class UserBean implements Serializable {
 
 	}
 
+	/**
+	 * Save (or clear, when both fields are empty) the current user's default location,
+	 * used as the starting point of "near me" searches.
+	 */
+	public void saveLocation() {
+		FacesContext ctx = FacesContext.getCurrentInstance();
+
+		User u = getLoggedInUser();
+		if (u == null) {
+			ctx.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_ERROR, "יש להתחבר למערכת", null));
+			return;
+		}
+		try {
+			userService.updateLocation(u.getId(), latitude, longitude);
+			u.setLatitude(latitude);
+			u.setLongitude(longitude);
+			ctx.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_INFO,
+					u.isHasLocation() ? "המיקום נשמר" : "המיקום נמחק", null));
+		} catch (IllegalArgumentException iae) {
+			ctx.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_ERROR, iae.getMessage(), null));
+		} catch (Exception e) {
+			ctx.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_ERROR, "שגיאה בשמירת המיקום", null));
+		}
+	}
+
 	//***************************************** Getters & Setters *********************************************//
 
 	public Long getId() { return id; }
@@ -210,12 +240,23 @@ public class UserBean implements Serializable {
 	public String getEmail() { return email; }
 	public void setEmail(String email) { this.email = email; }
 
+	/** Unread messages of the logged-in user, for the badge in the layout (in-memory, no query) */
+	public int getUnreadCount() {
+		return (loggedInUser != null) ? UnreadCounters.get().unread(loggedInUser.getId()) : 0;
+	}
+
 	public User getLoggedInUser() { return loggedInUser; }
 	public void setLoggedInUser(User loggedInUser) { this.loggedInUser = loggedInUser; }
 
 	public String getResetEmail() { return resetEmail; }
 	public void setResetEmail(String resetEmail) { this.resetEmail = resetEmail; }
 
+	public Double getLatitude() { return latitude; }
+	public void setLatitude(Double latitude) { this.latitude = latitude; }
+
+	public Double getLongitude() { return longitude; }
+	public void setLongitude(Double longitude) { this.longitude = longitude; }
+
 	public String getConfirmPassword() { return confirmPassword; }
 	public void setConfirmPassword(String confirmPassword) { this.confirmPassword = confirmPassword; }
 }
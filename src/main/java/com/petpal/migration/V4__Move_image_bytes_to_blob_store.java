@@ -0,0 +1,72 @@
+package com.petpal.migration;
+
+import com.petpal.service.BlobStore;
+import com.petpal.service.BlobStores;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+
+
+/**
+ * V4: copy every animal_images.data value into the {@link BlobStore} and record its key in blob_key.
+ *
+ * Rows are read in small batches (the MySQL driver buffers a whole result set and originals are up to 10MB).
+ * Only rows without a blob_key are picked, so a failed run can simply be repaired and re-run.
+ * The class name follows Flyway's V{version}__{description} convention.
+ */
+//================================= V4 - Move Image Bytes To Blob Store =========================================================//
+
+public class V4__Move_image_bytes_to_blob_store extends BaseJavaMigration {
+
+	private static final int BATCH_SIZE = 10;
+
+
+	@Override
+	public void migrate(Context context) throws Exception {
+		BlobStore store = BlobStores.get();
+		Connection con = context.getConnection();
+		int n;
+		do {
+			n = migrateBatch(con, store);
+		} while (n == BATCH_SIZE);
+	}
+
+
+	/** Move up to BATCH_SIZE rows; returns how many were moved */
+	private static int migrateBatch(Connection con, BlobStore store) throws SQLException {
+		int n = 0;
+		try (PreparedStatement select = con.prepareStatement(
+				"SELECT animal_id, rendition, data FROM animal_images " +
+				"WHERE blob_key IS NULL AND data IS NOT NULL LIMIT " + BATCH_SIZE);
+			 PreparedStatement update = con.prepareStatement(
+				"UPDATE animal_images SET blob_key = ? WHERE animal_id = ? AND rendition = ?");
+			 ResultSet rs = select.executeQuery()) {
+
+			while (rs.next()) {
+				String key;
+				try (InputStream in = rs.getBinaryStream("data")) {
+					key = store.put(in);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				update.setString(1, key);
+				update.setLong(2, rs.getLong("animal_id"));
+				update.setString(3, rs.getString("rendition"));
+				update.addBatch();
+				n++;
+			}
+			if (n > 0) update.executeBatch();
+		}
+		return n;
+	}
+}
+//===============================================================================================================================//
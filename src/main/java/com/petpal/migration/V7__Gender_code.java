@@ -0,0 +1,74 @@
+package com.petpal.migration;
+
+import com.petpal.model.GenderConverter;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+
+
+/**
+ * V7: store gender as a one-letter code ('M' / 'F') instead of Hebrew text in varchar(255).
+ * The application maps the codes back to the Hebrew labels ({@link GenderConverter}).
+ *
+ * A gender that is neither label cannot be converted (GenderConverter rejects it too), so the migration
+ * lists those animals and fails before changing anything; correct or clear them and run it again.
+ * Blank values become NULL, as the converter stores them.
+ */
+//====================================== V7 - Gender Code =======================================================================//
+
+public class V7__Gender_code extends BaseJavaMigration {
+
+	private static final int MAX_LISTED = 20;
+
+
+	@Override
+	public void migrate(Context context) throws Exception {
+		Connection con = context.getConnection();
+		checkLabels(con);
+
+		try (PreparedStatement update = con.prepareStatement(
+				"UPDATE animals SET gender = CASE TRIM(gender) WHEN ? THEN 'M' WHEN ? THEN 'F' ELSE NULL END " +
+				"WHERE gender IS NOT NULL")) {
+			update.setString(1, GenderConverter.MALE);
+			update.setString(2, GenderConverter.FEMALE);
+			update.executeUpdate();
+		}
+		try (Statement alter = con.createStatement()) {
+			alter.execute("ALTER TABLE animals MODIFY COLUMN gender char(1) CHARACTER SET ascii DEFAULT NULL");
+		}
+	}
+
+
+	/** Fail, naming the animals, if any gender is neither label */
+	private static void checkLabels(Connection con) throws SQLException {
+		List<String> unknown = new ArrayList<>();
+		int count = 0;
+		try (PreparedStatement select = con.prepareStatement(
+				"SELECT id, gender FROM animals " +
+				"WHERE TRIM(gender) <> '' AND TRIM(gender) NOT IN (?, ?) ORDER BY id")) {
+			select.setString(1, GenderConverter.MALE);
+			select.setString(2, GenderConverter.FEMALE);
+			try (ResultSet rs = select.executeQuery()) {
+				while (rs.next()) {
+					if (count++ < MAX_LISTED) unknown.add(rs.getLong("id") + " ('" + rs.getString("gender") + "')");
+				}
+			}
+		}
+		if (count > 0) {
+			throw new FlywayException(count + " animal(s) have a gender that is neither '" + GenderConverter.MALE
+					+ "' nor '" + GenderConverter.FEMALE + "': " + String.join(", ", unknown)
+					+ (count > MAX_LISTED ? ", ..." : "") + ". Correct or clear them, then migrate again.");
+		}
+	}
+}
+//===============================================================================================================================//
@@ -8,7 +8,8 @@ import java.io.Serializable;
 
 /**
  * Entity class representing an animal available for adoption.
- * Includes category, name, owner, descriptive fields, image, timestamp and age/gender.
+ * Includes category, name, owner, descriptive fields, timestamp and age/gender.
+ * The image itself lives in {@link AnimalImage} (table animal_images) and is loaded only on demand.
  */
 //======================================= Animals Table =========================================================================//
 
@@ -40,7 +41,9 @@ public class Animal implements Serializable {
 	
 	private int age;
 
-	@Column(length = 20)    
+	//stored as 'M' / 'F' (CHAR(1)), exposed as the Hebrew label
+	@Convert(converter = GenderConverter.class)
+	@Column(length = 1, columnDefinition = "char(1)")
 	private String gender;
 	
 	@Column(length = 255) 
@@ -49,10 +52,9 @@ public class Animal implements Serializable {
 	@Lob
 	private String fullDescription;
 
-	//animal image
-	@Lob
-	@Column(name = "image_blob")
-	private byte[] imageBlob;
+	//Whether an image exists in animal_images (avoids touching the image table in list queries)
+	@Column(name = "has_image", nullable = false)
+	private boolean hasImage;
 
 	//Date added/updated 
 	@Column(name = "timestamp")
@@ -62,15 +64,14 @@ public class Animal implements Serializable {
 	@JoinColumn(name = "owner_id", nullable = false)
 	private User owner;
 
+	//Optional location (WGS84 degrees); both set or both null
+	private Double latitude;
 
-	/*******************************************************************************************************************/    
-
+	private Double longitude;
 
 
+	/*******************************************************************************************************************/    
 
-	//An auxiliary field not saved in the database that is intended to hold the image after it has been converted from bytes (byte[] imageBlob) to Base64.
-	@Transient
-	private String imageBase64;
 
 
 
@@ -80,14 +81,13 @@ public class Animal implements Serializable {
 
 	public Animal(Category category, String name, int age, 
 			String gender, String shortDescription, String fullDescription,
-			byte[] imageBlob, User owner) {
+			User owner) {
 		this.category = category;
 		this.name = name;
 		this.age = age;
 		this.gender = gender;
 		this.shortDescription = shortDescription;
 		this.fullDescription = fullDescription;
-		this.imageBlob = imageBlob;
 		this.owner = owner;
 	}
 
@@ -120,10 +120,6 @@ public class Animal implements Serializable {
 
 	public void setFullDescription(String fullDescription) {this.fullDescription = fullDescription;}
 
-	public byte[] getImageBlob() {return imageBlob;}
-
-	public void setImageBlob(byte[] imageBlob) {this.imageBlob = imageBlob;}
-
 	public User getOwner() {return owner;}
 
 	public void setOwner(User owner) {this.owner = owner;}
@@ -132,9 +128,21 @@ public class Animal implements Serializable {
 
 	public void setTimestamp(LocalDateTime timestamp) {this.timestamp = timestamp; }
 
-	public String getImageBase64() {return imageBase64;}
+	/**
+	 * Whether an image was uploaded for this animal.
+	 * The image itself is served by AnimalImageServlet at /images/animal/{id}.
+	 */
+	public boolean isHasImage() {return hasImage;}
+
+	public void setHasImage(boolean hasImage) {this.hasImage = hasImage;}
+
+	public Double getLatitude() {return latitude;}
+
+	public void setLatitude(Double latitude) {this.latitude = latitude;}
+
+	public Double getLongitude() {return longitude;}
 
-	public void setImageBase64(String imageBase64) {this.imageBase64 = imageBase64;}
+	public void setLongitude(Double longitude) {this.longitude = longitude;}
 
 
 
@@ -0,0 +1,87 @@
+package com.petpal.model;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+
+/**
+ * Read-only projection of an animal for list views (animals grid, profile, favorites).
+ * Holds only what a card renders - no full description, no image bytes, no owner entity -
+ * and is filled directly by JPQL constructor expressions ("SELECT NEW com.petpal.model.AnimalCard(...)").
+ * Not an entity.
+ */
+//======================================= Animal Card (projection) ==============================================================//
+
+
+
+
+public class AnimalCard implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+
+	/******************************************** Fields ****************************************************************/    
+
+	private final Long id;
+	private final String name;
+	private final int age;
+	private final String gender;
+	private final Long categoryId;
+	private final String categoryName;
+	private final String shortDescription;
+	private final Long ownerId;
+	private final boolean hasImage;
+	private final LocalDateTime timestamp;
+
+	//Distance from the searched location (km); set by a proximity search, null otherwise
+	private Double distanceKm;
+
+	/*******************************************************************************************************************/    
+
+
+	/*************************************** Constructor / Getters ******************************************************/    
+
+	public AnimalCard(Long id, String name, int age, String gender,
+			Long categoryId, String categoryName, String shortDescription,
+			Long ownerId, boolean hasImage, LocalDateTime timestamp) {
+		this.id = id;
+		this.name = name;
+		this.age = age;
+		this.gender = gender;
+		this.categoryId = categoryId;
+		this.categoryName = categoryName;
+		this.shortDescription = shortDescription;
+		this.ownerId = ownerId;
+		this.hasImage = hasImage;
+		this.timestamp = timestamp;
+	}
+
+	public Long getId() {return id;}
+
+	public String getName() {return name;}
+
+	public int getAge() {return age;}
+
+	public String getGender() {return gender;}
+
+	public Long getCategoryId() {return categoryId;}
+
+	public String getCategoryName() {return categoryName;}
+
+	public String getShortDescription() {return shortDescription;}
+
+	public Long getOwnerId() {return ownerId;}
+
+	public boolean isHasImage() {return hasImage;}
+
+	public LocalDateTime getTimestamp() {return timestamp;}
+
+	public Double getDistanceKm() {return distanceKm;}
+
+	public void setDistanceKm(Double distanceKm) {this.distanceKm = distanceKm;}
+
+	/*******************************************************************************************************************/    
+
+}
+
+//===============================================================================================================================//
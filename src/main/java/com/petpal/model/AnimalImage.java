@@ -0,0 +1,98 @@
+package com.petpal.model;
+
+import javax.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+
+/**
+ * Entity class holding one rendition (thumbnail, medium or original) of an animal's image.
+ * Kept in its own table (keyed by animal id + rendition) so that animal queries read only the small metadata columns.
+ * The bytes themselves live in the {@link com.petpal.service.BlobStore}; this row keeps only their content key.
+ */
+//======================================= Animal Images Table ===================================================================//
+
+
+
+
+@Entity
+@Table(name = "animal_images", indexes = @Index(name = "idx_animal_images_blob_key", columnList = "blob_key"))
+public class AnimalImage implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+
+	/******************************************** Entity Fields *********************************************************/    
+
+	//Primary Key - the owning animal's id and the rendition
+	@EmbeddedId
+	private AnimalImageId id;
+
+	@MapsId("animalId")
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "animal_id")
+	private Animal animal;
+
+	@Column(name = "content_type", nullable = false, length = 50)
+	private String contentType;
+
+	@Column(name = "size_bytes", nullable = false)
+	private long sizeBytes;
+
+	private int width;
+
+	private int height;
+
+	//SHA-256 content key of the image bytes in the blob store (shared by identical images)
+	@Column(name = "blob_key", nullable = false, length = 64, columnDefinition = "CHAR(64)")
+	private String blobKey;
+
+	@Column(name = "updated_at", nullable = false)
+	private LocalDateTime updatedAt;
+
+	/*******************************************************************************************************************/    
+
+	/*************************************** Constructors / Getters & Setters ******************************************/    
+
+
+	public AnimalImage() {}
+
+	public AnimalImage(Animal animal, ImageRendition rendition, String contentType,
+			String blobKey, long sizeBytes, int width, int height) {
+		this.id = new AnimalImageId(animal.getId(), rendition);
+		this.animal = animal;
+		this.contentType = contentType;
+		this.blobKey = blobKey;
+		this.sizeBytes = sizeBytes;
+		this.width = width;
+		this.height = height;
+		this.updatedAt = LocalDateTime.now();
+	}
+
+	public AnimalImageId getId() {return id;}
+
+	public Long getAnimalId() {return id.getAnimalId();}
+
+	public ImageRendition getRendition() {return id.getRendition();}
+
+	public Animal getAnimal() {return animal;}
+
+	public String getContentType() {return contentType;}
+
+	public long getSizeBytes() {return sizeBytes;}
+
+	public String getBlobKey() {return blobKey;}
+
+	public int getWidth() {return width;}
+
+	public int getHeight() {return height;}
+
+	public LocalDateTime getUpdatedAt() {return updatedAt;}
+
+	/*******************************************************************************************************************/    
+
+}
+
+
+//================================================================================================================================//
@@ -0,0 +1,49 @@
+package com.petpal.model;
+
+import javax.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+
+/**
+ * Composite primary key of {@link AnimalImage}: one row per (animal, rendition).
+ */
+//======================================= Animal Image Key ======================================================================//
+
+@Embeddable
+public class AnimalImageId implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@Column(name = "animal_id")
+	private Long animalId;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "rendition", length = 10)
+	private ImageRendition rendition;
+
+
+	public AnimalImageId() {}
+
+	public AnimalImageId(Long animalId, ImageRendition rendition) {
+		this.animalId = animalId;
+		this.rendition = rendition;
+	}
+
+	public Long getAnimalId() {return animalId;}
+
+	public ImageRendition getRendition() {return rendition;}
+
+
+	@Override public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof AnimalImageId)) return false;
+		AnimalImageId other = (AnimalImageId) o;
+		return Objects.equals(animalId, other.animalId) && rendition == other.rendition;
+	}
+
+	@Override public int hashCode() { return Objects.hash(animalId, rendition); }
+}
+
+//===============================================================================================================================//
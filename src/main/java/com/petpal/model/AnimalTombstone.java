@@ -0,0 +1,69 @@
+package com.petpal.model;
+
+import javax.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+
+/**
+ * Entity class recording that an animal was deleted (a "tombstone").
+ * Lets the incremental export tell partners which animals disappeared since their last pull,
+ * although the animal row itself is gone. Only ids are kept - no relations to the deleted rows.
+ */
+//======================================= Animal Tombstones Table ===============================================================//
+
+
+
+
+@Entity
+@Table(name = "animal_tombstones", indexes = @Index(name = "idx_animal_tombstones_deleted_at", columnList = "deleted_at"))
+public class AnimalTombstone implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+
+	/******************************************** Entity Fields *********************************************************/    
+
+	//Primary Key
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(name = "animal_id", nullable = false)
+	private Long animalId;
+
+	//category at deletion time, so category-filtered feeds can include the deletion
+	@Column(name = "category_id")
+	private Long categoryId;
+
+	@Column(name = "deleted_at", nullable = false)
+	private LocalDateTime deletedAt;
+
+	/*******************************************************************************************************************/    
+
+	/*************************************** Constructors / Getters & Setters ******************************************/    
+
+
+	public AnimalTombstone() {}
+
+	public AnimalTombstone(Long animalId, Long categoryId) {
+		this.animalId = animalId;
+		this.categoryId = categoryId;
+		this.deletedAt = LocalDateTime.now();
+	}
+
+	public Long getId() {return id;}
+
+	public Long getAnimalId() {return animalId;}
+
+	public Long getCategoryId() {return categoryId;}
+
+	public LocalDateTime getDeletedAt() {return deletedAt;}
+
+	/*******************************************************************************************************************/    
+
+}
+
+
+//================================================================================================================================//
@@ -1,6 +1,10 @@
 package com.petpal.model;
 
 import javax.persistence.*;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import java.io.Serializable;
 
 
@@ -14,6 +18,8 @@ import java.io.Serializable;
 
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY) // second-level cache: rows are only ever inserted
 @Table(name = "categories",uniqueConstraints = @UniqueConstraint(name = "uk_category_name", columnNames = "name"))
 public class Category implements Serializable {
 
@@ -0,0 +1,42 @@
+package com.petpal.model;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+
+
+/**
+ * Stores an animal's gender as a one-letter code (animals.gender CHAR(1)) while the application
+ * keeps working with the Hebrew labels shown in the forms and filters ("זכר" / "נקבה").
+ * Query parameters compared with Animal.gender are converted the same way.
+ */
+//============================================= Gender Converter ================================================================//
+
+@Converter
+public class GenderConverter implements AttributeConverter<String, String> {
+
+	public static final String MALE = "זכר";
+	public static final String FEMALE = "נקבה";
+
+
+	@Override
+	public String convertToDatabaseColumn(String label) {
+		if (label == null || label.trim().isEmpty()) return null;
+		switch (label.trim()) {
+		case MALE:   return "M";
+		case FEMALE: return "F";
+		default: throw new IllegalArgumentException("Unknown gender: " + label);
+		}
+	}
+
+	@Override
+	public String convertToEntityAttribute(String code) {
+		if (code == null) return null;
+		switch (code) {
+		case "M": return MALE;
+		case "F": return FEMALE;
+		default:  return null;
+		}
+	}
+}
+//===============================================================================================================================//
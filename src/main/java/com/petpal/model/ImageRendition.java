@@ -0,0 +1,43 @@
+package com.petpal.model;
+
+
+/**
+ * The sizes in which an uploaded animal image is stored.
+ * THUMB is used by the card grids, MEDIUM for larger displays, ORIGINAL is the uploaded file as-is.
+ */
+//======================================= Image Renditions ======================================================================//
+
+public enum ImageRendition {
+
+	THUMB(320),
+	MEDIUM(960),
+	ORIGINAL(0);
+
+
+	/** Longest edge in pixels (0 = unchanged) */
+	private final int maxEdge;
+
+	ImageRendition(int maxEdge) {
+		this.maxEdge = maxEdge;
+	}
+
+	public int getMaxEdge() {return maxEdge;}
+
+
+	/**
+	 * Parse a size name from a URL ("thumb", "medium", "original").
+	 *
+	 * @param name size name (case-insensitive, nullable)
+	 * @return the rendition, or ORIGINAL when the name is missing or unknown
+	 */
+	public static ImageRendition fromName(String name) {
+		if (name != null) {
+			for (ImageRendition r : values()) {
+				if (r.name().equalsIgnoreCase(name)) return r;
+			}
+		}
+		return ORIGINAL;
+	}
+}
+
+//===============================================================================================================================//
@@ -0,0 +1,80 @@
+package com.petpal.model;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+
+/**
+ * Read-only projection of a message for the inbox and sent lists.
+ * Holds only what a list row renders - no content, no user or animal entities -
+ * and is filled directly by JPQL constructor expressions ("SELECT NEW com.petpal.model.MessageHeader(...)").
+ * The content is loaded separately, when the message is opened. Not an entity.
+ */
+//======================================= Message Header (projection) ===========================================================//
+
+
+
+
+public class MessageHeader implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+
+	/******************************************** Fields ****************************************************************/
+
+	private final Long id;
+	//the sender in the inbox, the recipient in the sent list
+	private final Long otherUserId;
+	private final String otherUsername;
+	private final String subject;
+	private final Long animalId;
+	private final String animalName;
+	private final LocalDateTime timestamp;
+	private final boolean read;
+
+	/*******************************************************************************************************************/
+
+
+	/*************************************** Constructor / Getters ******************************************************/
+
+	public MessageHeader(Long id, Long otherUserId, String otherUsername, String subject,
+			Long animalId, String animalName, LocalDateTime timestamp, boolean read) {
+		this.id = id;
+		this.otherUserId = otherUserId;
+		this.otherUsername = otherUsername;
+		this.subject = subject;
+		this.animalId = animalId;
+		this.animalName = animalName;
+		this.timestamp = timestamp;
+		this.read = read;
+	}
+
+	public Long getId() {return id;}
+
+	public Long getOtherUserId() {return otherUserId;}
+
+	public String getOtherUsername() {return otherUsername;}
+
+	public String getSubject() {return subject;}
+
+	public Long getAnimalId() {return animalId;}
+
+	public String getAnimalName() {return animalName;}
+
+	public LocalDateTime getTimestamp() {return timestamp;}
+
+	public boolean isRead() {return read;}
+
+	/** "dd/MM/yyyy HH:mm" (24-hour clock), or "" without a timestamp - as {@link Message#getTimestampFormatted()} */
+	public String getTimestampFormatted() {
+		return (timestamp == null) ? "" : timestamp.format(DISPLAY_FORMAT);
+	}
+
+	/*******************************************************************************************************************/
+
+}
+
+//===============================================================================================================================//
@@ -0,0 +1,128 @@
+package com.petpal.model;
+
+import javax.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+
+/**
+ * Entity class representing a search a user saved, to be told about new animals that match it.
+ * Stores the filters of the search (as in the animals page, without the sort order);
+ * every filter is optional, and a location only counts together with a radius.
+ */
+//======================================= Saved Searches Table ==================================================================//
+
+
+
+
+@Entity
+@Table(name = "saved_searches", indexes = @Index(name = "idx_saved_searches_user", columnList = "user_id"))
+public class SavedSearch implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+
+	/******************************************** Entity Fields *********************************************************/
+
+	//Primary Key
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@ManyToOne
+	@JoinColumn(name = "user_id", nullable = false)
+	private User user;
+
+	@Column(nullable = false, length = 100)
+	private String name;
+
+	//free text, as typed in the search box
+	@Column(length = 255)
+	private String query;
+
+	@Column(name = "category_id")
+	private Long categoryId;
+
+	//stored as 'M' / 'F' (CHAR(1)), exposed as the Hebrew label
+	@Convert(converter = GenderConverter.class)
+	@Column(length = 1, columnDefinition = "char(1)")
+	private String gender;
+
+	@Column(name = "min_age")
+	private Integer minAge;
+
+	@Column(name = "max_age")
+	private Integer maxAge;
+
+	private Double latitude;
+
+	private Double longitude;
+
+	@Column(name = "radius_km")
+	private Integer radiusKm;
+
+	@Column(name = "created_at", nullable = false)
+	private LocalDateTime createdAt;
+
+	/*******************************************************************************************************************/
+
+	/*************************************** Constructors / Getters & Setters ******************************************/
+
+
+	public SavedSearch() {this.createdAt = LocalDateTime.now();}
+
+	public SavedSearch(User user, String name) {
+		this.user = user;
+		this.name = name;
+		this.createdAt = LocalDateTime.now();
+	}
+
+	public Long getId() {return id;}
+
+	public User getUser() {return user;}
+
+	public String getName() {return name;}
+
+	public void setName(String name) {this.name = name;}
+
+	public String getQuery() {return query;}
+
+	public void setQuery(String query) {this.query = query;}
+
+	public Long getCategoryId() {return categoryId;}
+
+	public void setCategoryId(Long categoryId) {this.categoryId = categoryId;}
+
+	public String getGender() {return gender;}
+
+	public void setGender(String gender) {this.gender = gender;}
+
+	public Integer getMinAge() {return minAge;}
+
+	public void setMinAge(Integer minAge) {this.minAge = minAge;}
+
+	public Integer getMaxAge() {return maxAge;}
+
+	public void setMaxAge(Integer maxAge) {this.maxAge = maxAge;}
+
+	public Double getLatitude() {return latitude;}
+
+	public void setLatitude(Double latitude) {this.latitude = latitude;}
+
+	public Double getLongitude() {return longitude;}
+
+	public void setLongitude(Double longitude) {this.longitude = longitude;}
+
+	public Integer getRadiusKm() {return radiusKm;}
+
+	public void setRadiusKm(Integer radiusKm) {this.radiusKm = radiusKm;}
+
+	public LocalDateTime getCreatedAt() {return createdAt;}
+
+	/*******************************************************************************************************************/
+
+}
+
+
+//================================================================================================================================//
@@ -3,9 +3,13 @@ package com.petpal.model;
 import java.io.Serializable;
 
 import javax.persistence.*;
+
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 
 /**
  * Entity class representing application users.
@@ -17,6 +21,8 @@ import javax.validation.constraints.NotBlank;
 
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE) // second-level cache: profile updates invalidate the cached entry
 @Table(name = "users")
 public class User implements Serializable {
 
@@ -42,6 +48,15 @@ public class User implements Serializable {
     @Column(nullable = false, length = 255)
 	private String email;
 
+	//Default location for "near me" searches (WGS84 degrees); both set or both null
+	private Double latitude;
+
+	private Double longitude;
+
+	//The account that sends automatic messages (saved-search matches); it cannot log in
+	@Column(name = "system_account", nullable = false, updatable = false)
+	private boolean systemAccount;
+
 	/********************************************************************************************************************/
 
 	/*************************************** Constructors / Getters & Setters *******************************************/    
@@ -68,6 +83,18 @@ public class User implements Serializable {
 
 	public void setEmail(String email) {this.email = email;}
 
+	public Double getLatitude() {return latitude;}
+
+	public void setLatitude(Double latitude) {this.latitude = latitude;}
+
+	public Double getLongitude() {return longitude;}
+
+	public void setLongitude(Double longitude) {this.longitude = longitude;}
+
+	public boolean isHasLocation() {return latitude != null && longitude != null;}
+
+	public boolean isSystemAccount() {return systemAccount;}
+
 	/*******************************************************************************************************************/
 
 }
@@ -0,0 +1,531 @@
+package com.petpal.service;
+
+import com.petpal.model.Animal;
+import com.petpal.model.GenderConverter;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+
+
+/**
+ * Application-wide, in-memory copy of the searchable state of every animal, stored column by column
+ * in primitive arrays (struct-of-arrays): id, category, gender, age, timestamp, owner, location and a name sort key.
+ * Filters and sort orders of the animal search are evaluated here; the database is asked only for the
+ * cards of the page that is actually shown.
+ *
+ * How:
+ *  - Rows are kept in ascending id order (new animals have the highest ids), so an id is found by binary search.
+ *  - A search scans the columns once, keeps the rows after the cursor, and selects the best pageSize + 1
+ *    with a bounded heap; catalogs above catalog.parallelThreshold rows are scanned in parallel chunks.
+ *  - Sort keys are longs: timestamp in epoch millis, age, and for names (of the animal or its category) the
+ *    first 10 characters packed 6 bits each (equal keys compare the whole names); for distance, metres from the
+ *    searched point. Ties continue by id.
+ *  - Text and proximity searches arrive with their candidate ids (from the {@link TextIndex} / {@link GeoIndex});
+ *    only those rows are visited, so distances are computed for the candidates near the point alone.
+ *  - Loaded from the database on first use (or at startup), kept current by {@link CatalogListener} events.
+ *
+ * Notes:
+ *  - About 60 bytes per animal, plus its name.
+ *  - Deleted rows are marked and removed in bulk once they make up a quarter of the catalog.
+ *  - Reads share a read lock; updates take the write lock.
+ */
+//============================================== Animal Catalog =================================================================//
+
+public final class AnimalCatalog implements CatalogListener {
+
+	private static final Logger LOG = Logger.getLogger(AnimalCatalog.class.getName());
+
+	private static final AnimalCatalog INSTANCE = new AnimalCatalog();
+
+	/** Catalogs with more rows than this are scanned in parallel */
+	private static final int PARALLEL_THRESHOLD = AppConfig.getInt("catalog.parallelThreshold", 50_000);
+
+	private static final int NO_CATEGORY = -1;
+
+	private static final byte MALE = 'M';
+	private static final byte FEMALE = 'F';
+
+	/** Name characters kept in the 64-bit sort key */
+	private static final int NAME_KEY_CHARS = 10;
+
+	/** Hebrew letters in alphabetical order (final forms are folded to these) */
+	private static final String HEBREW_ALPHABET =
+			"\u05D0\u05D1\u05D2\u05D3\u05D4\u05D5\u05D6\u05D7\u05D8\u05D9\u05DB\u05DC\u05DE\u05E0\u05E1\u05E2\u05E4\u05E6\u05E7\u05E8\u05E9\u05EA";
+
+
+	/**
+	 * The rows of one page: animal ids in page order and their sort values (for the next cursor) -
+	 * the sort key as a Long, or the name itself when sorting by name or category (null = no category).
+	 */
+	static final class Slice {
+		final long[] ids;
+		final Serializable[] sortValues;
+
+		Slice(long[] ids, Serializable[] sortValues) {
+			this.ids = ids;
+			this.sortValues = sortValues;
+		}
+	}
+
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// ---- columns (index = row) ----
+	private long[] ids = new long[1024];
+	private int[] categories = new int[1024];
+	private byte[] genders = new byte[1024];
+	private short[] ages = new short[1024];
+	private long[] timestamps = new long[1024];
+	private long[] owners = new long[1024];
+	private long[] nameKeys = new long[1024];
+	private String[] names = new String[1024];
+	private float[] latitudes = new float[1024];   // NaN = no location
+	private float[] longitudes = new float[1024];
+	private int size;
+
+	private final BitSet deleted = new BitSet();
+	private int deletedCount;
+
+	// ---- categories: dense index (in order of appearance) → id, name and name key (the "category" sort) ----
+	private long[] categoryIds = new long[0];
+	private String[] categoryNames = new String[0];
+	private long[] categoryKeys = new long[0];
+
+	private final LoadJournal journal = new LoadJournal(lock.writeLock());
+
+
+	private AnimalCatalog() {
+		CatalogEvents.addListener(this);
+	}
+
+	public static AnimalCatalog get() {
+		return INSTANCE;
+	}
+
+
+
+	//***************************************** Loading *********************************************//
+
+	/**
+	 * Load the catalog from the database unless already done.
+	 * The {@link LoadJournal} keeps the catalog events that arrive during the scan.
+	 */
+	public void ensureLoaded() {
+		if (journal.isLoaded()) return;
+		long started = System.currentTimeMillis();
+		AnimalService service = new AnimalService();
+		journal.load(() -> {
+			try {
+				service.scanCatalog(row -> addLocked((Long) row[0], (Long) row[1], (String) row[2], (String) row[3],
+						(Integer) row[4], (LocalDateTime) row[5], (Long) row[6], (String) row[7], (Double) row[8],
+						(Double) row[9]));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, () -> LOG.info("Animal catalog: " + (size - deletedCount) + " animals in "
+				+ (System.currentTimeMillis() - started) + " ms"));
+	}
+
+
+	private static int indexOf(long[] a, long v) {
+		for (int i = 0; i < a.length; i++) if (a[i] == v) return i;
+		return NO_CATEGORY;
+	}
+
+	/**
+	 * Index of the category, added at the end if it is new (categories are never renamed or deleted,
+	 * so the indexes of existing rows stay valid).
+	 */
+	private int categoryIndexLocked(Long categoryId, String categoryName) {
+		if (categoryId == null) return NO_CATEGORY;
+		int idx = indexOf(categoryIds, categoryId);
+		if (idx == NO_CATEGORY) {
+			idx = categoryIds.length;
+			categoryIds = Arrays.copyOf(categoryIds, idx + 1);
+			categoryNames = Arrays.copyOf(categoryNames, idx + 1);
+			categoryKeys = Arrays.copyOf(categoryKeys, idx + 1);
+			categoryIds[idx] = categoryId;
+			categoryNames[idx] = categoryName;
+			categoryKeys[idx] = nameKey(categoryName);
+		}
+		return idx;
+	}
+
+
+
+	//***************************************** Updates *********************************************//
+
+	@Override
+	public void animalAdded(Animal animal) {
+		Long categoryId = (animal.getCategory() != null) ? animal.getCategory().getId() : null;
+		String categoryName = (animal.getCategory() != null) ? animal.getCategory().getName() : null;
+		Long ownerId = (animal.getOwner() != null) ? animal.getOwner().getId() : null;
+		journal.apply(() -> addLocked(animal.getId(), categoryId, categoryName, animal.getGender(), animal.getAge(), animal.getTimestamp(),
+				ownerId, animal.getName(), animal.getLatitude(), animal.getLongitude()));
+	}
+
+	@Override
+	public void animalDeleted(Long animalId, Long categoryId) {
+		journal.apply(() -> deleteLocked(animalId));
+	}
+
+
+	private void deleteLocked(long animalId) {
+		int row = Arrays.binarySearch(ids, 0, size, animalId);
+		if (row < 0 || deleted.get(row)) return;
+		deleted.set(row);
+		deletedCount++;
+		if (deletedCount > 1024 && deletedCount > size / 4) compactLocked();
+	}
+
+
+	private void addLocked(long id, Long categoryId, String categoryName, String gender, int age, LocalDateTime timestamp,
+			Long ownerId, String name, Double latitude, Double longitude) {
+
+		int row = Arrays.binarySearch(ids, 0, size, id);
+		if (row >= 0) {
+			if (deleted.get(row)) { deleted.clear(row); deletedCount--; } // same id again: overwrite in place
+		} else {
+			row = -row - 1;
+			if (size == ids.length) grow(size * 2);
+			if (row < size) shift(row); // an older id arrived late (rare)
+			size++;
+		}
+
+		ids[row] = id;
+		categories[row] = categoryIndexLocked(categoryId, categoryName);
+		genders[row] = GenderConverter.MALE.equals(gender) ? MALE : GenderConverter.FEMALE.equals(gender) ? FEMALE : 0;
+		ages[row] = (short) Math.max(0, Math.min(Short.MAX_VALUE, age));
+		timestamps[row] = (timestamp != null) ? timestamp.toInstant(ZoneOffset.UTC).toEpochMilli() : Long.MIN_VALUE;
+		owners[row] = (ownerId != null) ? ownerId : 0L;
+		nameKeys[row] = nameKey(name);
+		names[row] = name;
+		boolean located = Geo.isValid(latitude, longitude);
+		latitudes[row] = located ? latitude.floatValue() : Float.NaN;
+		longitudes[row] = located ? longitude.floatValue() : Float.NaN;
+	}
+
+	private void grow(int capacity) {
+		ids = Arrays.copyOf(ids, capacity);
+		categories = Arrays.copyOf(categories, capacity);
+		genders = Arrays.copyOf(genders, capacity);
+		ages = Arrays.copyOf(ages, capacity);
+		timestamps = Arrays.copyOf(timestamps, capacity);
+		owners = Arrays.copyOf(owners, capacity);
+		nameKeys = Arrays.copyOf(nameKeys, capacity);
+		names = Arrays.copyOf(names, capacity);
+		latitudes = Arrays.copyOf(latitudes, capacity);
+		longitudes = Arrays.copyOf(longitudes, capacity);
+	}
+
+	/** Open a gap at row (every later row moves up by one) */
+	private void shift(int row) {
+		int n = size - row;
+		System.arraycopy(ids, row, ids, row + 1, n);
+		System.arraycopy(categories, row, categories, row + 1, n);
+		System.arraycopy(genders, row, genders, row + 1, n);
+		System.arraycopy(ages, row, ages, row + 1, n);
+		System.arraycopy(timestamps, row, timestamps, row + 1, n);
+		System.arraycopy(owners, row, owners, row + 1, n);
+		System.arraycopy(nameKeys, row, nameKeys, row + 1, n);
+		System.arraycopy(names, row, names, row + 1, n);
+		System.arraycopy(latitudes, row, latitudes, row + 1, n);
+		System.arraycopy(longitudes, row, longitudes, row + 1, n);
+		for (int i = deleted.previousSetBit(size - 1); i >= row; i = deleted.previousSetBit(i - 1)) {
+			deleted.clear(i);
+			deleted.set(i + 1);
+		}
+	}
+
+	private void compactLocked() {
+		int n = 0;
+		for (int row = 0; row < size; row++) {
+			if (deleted.get(row)) continue;
+			ids[n] = ids[row];
+			categories[n] = categories[row];
+			genders[n] = genders[row];
+			ages[n] = ages[row];
+			timestamps[n] = timestamps[row];
+			owners[n] = owners[row];
+			nameKeys[n] = nameKeys[row];
+			names[n] = names[row];
+			latitudes[n] = latitudes[row];
+			longitudes[n] = longitudes[row];
+			n++;
+		}
+		Arrays.fill(names, n, size, null);
+		size = n;
+		deleted.clear();
+		deletedCount = 0;
+	}
+
+
+	/**
+	 * Order-preserving 64-bit prefix of a name: 10 characters of 6 bits
+	 * (separators &lt; digits &lt; Latin &lt; Hebrew, case and final letters folded, as in a case-insensitive collation).
+	 */
+	static long nameKey(String name) {
+		long key = 0;
+		int n = 0;
+		if (name != null) {
+			for (int i = 0; i < name.length() && n < NAME_KEY_CHARS; i++, n++) {
+				key = (key << 6) | charCode(name.charAt(i));
+			}
+		}
+		for (; n < NAME_KEY_CHARS; n++) key <<= 6; // shorter names first
+		return key;
+	}
+
+	/** Whole-name order, the same as {@link #nameKey} for the first 10 characters */
+	static int compareNames(String a, String b) {
+		if (a == null || b == null) return (a == null) ? ((b == null) ? 0 : -1) : 1;
+		int n = Math.min(a.length(), b.length());
+		for (int i = 0; i < n; i++) {
+			int c = Integer.compare(charCode(a.charAt(i)), charCode(b.charAt(i)));
+			if (c != 0) return c;
+		}
+		return Integer.compare(a.length(), b.length());
+	}
+
+	private static int charCode(char ch) {
+		if (ch >= '0' && ch <= '9') return 2 + (ch - '0');                  // 2..11
+		char lower = Character.toLowerCase(ch);
+		if (lower >= 'a' && lower <= 'z') return 12 + (lower - 'a');       // 12..37
+		switch (ch) {                                                      // final letters sort as their letter
+		case '\u05DA': ch = '\u05DB'; break;                                // final kaf → kaf
+		case '\u05DD': ch = '\u05DE'; break;                                // final mem → mem
+		case '\u05DF': ch = '\u05E0'; break;                                // final nun → nun
+		case '\u05E3': ch = '\u05E4'; break;                                // final pe → pe
+		case '\u05E5': ch = '\u05E6'; break;                                // final tsadi → tsadi
+		default: break;
+		}
+		int hebrew = HEBREW_ALPHABET.indexOf(ch);
+		if (hebrew >= 0) return 38 + hebrew;                               // 38..59
+		return 1;                                                          // space, punctuation, other scripts
+	}
+
+
+
+	//***************************************** Search *********************************************//
+
+	/**
+	 * The rows of one page: matching the filter (and the text / proximity candidates, if given), ordered by the
+	 * filter's sort column and id, strictly after the cursor. Returns up to pageSize + 1 rows (the extra row means "more").
+	 *
+	 * @param textIds ids matched by the text query (null = no text query)
+	 * @param nearIds ids within the searched distance (null = no proximity search)
+	 * @param after the cursor of the previous page: sort value (see {@link Slice}) and id; null for the first page
+	 */
+	Slice page(AnimalFilter filter, long[] textIds, long[] nearIds, PageCursor after, int pageSize) {
+		ensureLoaded();
+		lock.readLock().lock();
+		try {
+			Query q = new Query(filter, textIds, nearIds, after, pageSize + 1);
+			int[] top;
+			if (size < PARALLEL_THRESHOLD) {
+				top = q.topK(0, size);
+			} else {
+				int chunks = Runtime.getRuntime().availableProcessors() * 4;
+				int chunk = (size + chunks - 1) / chunks;
+				top = IntStream.range(0, chunks).parallel()
+						.mapToObj(c -> q.topK(c * chunk, Math.min(size, (c + 1) * chunk)))
+						.reduce(q::merge)
+						.orElse(new int[0]);
+			}
+
+			long[] pageIds = new long[top.length];
+			Serializable[] sortValues = new Serializable[top.length];
+			for (int i = 0; i < top.length; i++) {
+				pageIds[i] = ids[top[i]];
+				sortValues[i] = q.byText ? q.text(top[i]) : (Serializable) q.key(top[i]);
+			}
+			return new Slice(pageIds, sortValues);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+
+	/** One evaluation of a filter + sort + cursor over the columns (used under the read lock) */
+	private final class Query {
+		final int category;
+		final byte gender;
+		final int minAge;
+		final int maxAge;
+		/** Rows allowed by the text and proximity candidates (null = all) */
+		final BitSet candidates;
+		final double latitude;
+		final double longitude;
+		final String sortBy;
+		/** Sorted by the animal's or the category's name: equal keys compare the whole names */
+		final boolean byText;
+		final boolean descending;
+		final boolean hasCursor;
+		final long cursorKey;
+		final String cursorText;
+		final long cursorId;
+		final int k;
+		final boolean empty;
+
+		Query(AnimalFilter f, long[] textIds, long[] nearIds, PageCursor after, int k) {
+			int cat = NO_CATEGORY;
+			boolean none = false;
+			if (f.getCategoryId() != null) {
+				cat = indexOf(categoryIds, f.getCategoryId());
+				none = (cat == NO_CATEGORY);
+			}
+			category = cat;
+			gender = GenderConverter.MALE.equals(f.getGender()) ? MALE
+					: GenderConverter.FEMALE.equals(f.getGender()) ? FEMALE : 0;
+			minAge = (f.getMinAge() != null) ? f.getMinAge() : Integer.MIN_VALUE;
+			maxAge = (f.getMaxAge() != null) ? f.getMaxAge() : Integer.MAX_VALUE;
+
+			BitSet text = rowsOf(textIds);
+			BitSet near = rowsOf(nearIds);
+			if (text != null && near != null) text.and(near);
+			candidates = (text != null) ? text : near;
+			latitude = f.hasLocation() ? f.getLatitude() : Double.NaN;
+			longitude = f.hasLocation() ? f.getLongitude() : Double.NaN;
+
+			sortBy = f.getSortBy();
+			byText = AnimalFilter.SORT_NAME.equals(sortBy) || AnimalFilter.SORT_CATEGORY.equals(sortBy);
+			descending = f.isDescending();
+			Serializable value = (after != null) ? after.getSortValue() : null;
+			hasCursor = (after != null) && (byText ? value == null || value instanceof String : value instanceof Long);
+			cursorText = byText && hasCursor ? (String) value : null;
+			cursorKey = !hasCursor ? 0L : byText ? textKey(cursorText) : (Long) value;
+			cursorId = hasCursor ? after.getLastId() : 0L;
+			this.k = k;
+			empty = none || (f.getGender() != null && gender == 0);
+		}
+
+		private BitSet rowsOf(long[] animalIds) {
+			if (animalIds == null) return null;
+			BitSet rows = new BitSet(size);
+			for (long id : animalIds) {
+				int row = Arrays.binarySearch(ids, 0, size, id);
+				if (row >= 0) rows.set(row);
+			}
+			return rows;
+		}
+
+		/** The filter conditions (the candidates are checked by the scan itself) */
+		boolean matches(int row) {
+			if (deleted.get(row)) return false;
+			if (category != NO_CATEGORY && categories[row] != category) return false;
+			if (gender != 0 && genders[row] != gender) return false;
+			return ages[row] >= minAge && ages[row] <= maxAge;
+		}
+
+		long key(int row) {
+			switch (sortBy) {
+			case AnimalFilter.SORT_NAME:     return nameKeys[row];
+			case AnimalFilter.SORT_AGE:      return ages[row];
+			case AnimalFilter.SORT_CATEGORY: return categories[row] == NO_CATEGORY
+					? Long.MAX_VALUE : categoryKeys[categories[row]];
+			case AnimalFilter.SORT_DISTANCE: return Float.isNaN(latitudes[row]) ? Long.MAX_VALUE
+					: Math.round(1000 * Geo.distanceKm(latitude, longitude, latitudes[row], longitudes[row]));
+			default:                         return timestamps[row];
+			}
+		}
+
+		/** The name the row is sorted by (null = no category) */
+		String text(int row) {
+			if (AnimalFilter.SORT_NAME.equals(sortBy)) return names[row];
+			return categories[row] == NO_CATEGORY ? null : categoryNames[categories[row]];
+		}
+
+		/** The key of a text cursor: rows without a category come last */
+		private long textKey(String text) {
+			return (text == null && AnimalFilter.SORT_CATEGORY.equals(sortBy)) ? Long.MAX_VALUE : nameKey(text);
+		}
+
+		/** Negative if row a comes before row b in the requested order */
+		int compare(int a, int b) {
+			int c = Long.compare(key(a), key(b));
+			if (c == 0 && byText) c = compareNames(text(a), text(b));
+			if (c == 0) c = Long.compare(ids[a], ids[b]);
+			return descending ? -c : c;
+		}
+
+		boolean afterCursor(int row) {
+			if (!hasCursor) return true;
+			int c = Long.compare(key(row), cursorKey);
+			if (c == 0 && byText) c = compareNames(text(row), cursorText);
+			if (c == 0) c = Long.compare(ids[row], cursorId);
+			return descending ? c < 0 : c > 0;
+		}
+
+
+		/** The first k matching rows of [from, to) in order, via a bounded max-heap (root = worst kept row) */
+		int[] topK(int from, int to) {
+			if (empty) return new int[0];
+			int[] heap = new int[k];
+			int n = 0;
+			int row = (candidates != null) ? candidates.nextSetBit(from) : from;
+			for (; row >= 0 && row < to; row = (candidates != null) ? candidates.nextSetBit(row + 1) : row + 1) {
+				if (!matches(row) || !afterCursor(row)) continue;
+				if (n < k) {
+					heap[n] = row;
+					siftUp(heap, n++);
+				} else if (compare(row, heap[0]) < 0) {
+					heap[0] = row;
+					siftDown(heap, n);
+				}
+			}
+			int[] out = Arrays.copyOf(heap, n);
+			// heap → sorted (small n: insertion sort)
+			for (int i = 1; i < out.length; i++) {
+				int v = out[i], j = i - 1;
+				while (j >= 0 && compare(out[j], v) > 0) { out[j + 1] = out[j]; j--; }
+				out[j + 1] = v;
+			}
+			return out;
+		}
+
+		/** Merge two sorted partial results, keeping the first k */
+		int[] merge(int[] a, int[] b) {
+			int[] out = new int[Math.min(k, a.length + b.length)];
+			int i = 0, j = 0;
+			for (int o = 0; o < out.length; o++) {
+				out[o] = (j >= b.length || (i < a.length && compare(a[i], b[j]) <= 0)) ? a[i++] : b[j++];
+			}
+			return out;
+		}
+
+		private void siftUp(int[] heap, int i) {
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				if (compare(heap[i], heap[parent]) <= 0) return;
+				swap(heap, i, parent);
+				i = parent;
+			}
+		}
+
+		private void siftDown(int[] heap, int n) {
+			int i = 0;
+			while (true) {
+				int l = 2 * i + 1, r = l + 1, worst = i;
+				if (l < n && compare(heap[l], heap[worst]) > 0) worst = l;
+				if (r < n && compare(heap[r], heap[worst]) > 0) worst = r;
+				if (worst == i) return;
+				swap(heap, i, worst);
+				i = worst;
+			}
+		}
+
+		private void swap(int[] a, int i, int j) {
+			int t = a[i]; a[i] = a[j]; a[j] = t;
+		}
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,171 @@
+package com.petpal.service;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+
+
+/**
+ * Immutable, normalized set of search filters and sort order for animals.
+ *
+ * Normalization rules (so that equal searches produce equal filters):
+ *  - empty gender → null (no gender filter)
+ *  - blank text query → null (no text search)
+ *  - a location needs both coordinates in range, otherwise it is dropped; a radius (km, positive) needs a location
+ *  - unknown sort column → "timestamp"; "relevance" only with a text query, and always descending;
+ *    "distance" only with a location, and always ascending (nearest first)
+ *  - a location with neither a radius nor the distance sort changes nothing and is dropped
+ *  - sort direction is either "ASC" or "DESC" (default "ASC", as in the original search)
+ */
+//============================================== Animal Filter ==================================================================//
+
+public final class AnimalFilter implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final String SORT_TIMESTAMP = "timestamp";
+	public static final String SORT_NAME      = "name";
+	public static final String SORT_AGE       = "age";
+	public static final String SORT_CATEGORY  = "category";
+	/** Best text match first (only with a text query; always descending) */
+	public static final String SORT_RELEVANCE = "relevance";
+	/** Nearest first (only with a location; always ascending) */
+	public static final String SORT_DISTANCE  = "distance";
+
+	private final String query;
+	private final Long categoryId;
+	private final String gender;
+	private final Integer minAge;
+	private final Integer maxAge;
+	private final Double latitude;
+	private final Double longitude;
+	private final Integer radiusKm;
+	private final String sortBy;
+	private final String sortDir;
+
+
+
+	//***************************************** Construction *********************************************//
+
+	/**
+	 * @param query free text searched in name and descriptions (nullable/empty = no text search)
+	 * @param categoryId filter by category (nullable)
+	 * @param gender filter by gender (nullable/empty)
+	 * @param minAge minimum age (nullable)
+	 * @param maxAge maximum age (nullable)
+	 * @param latitude searched location (nullable; WGS84 degrees)
+	 * @param longitude searched location (nullable)
+	 * @param radiusKm only animals at most this far from the location (nullable = no limit)
+	 * @param sortBy column to sort by (name/age/category/timestamp, relevance with a query, distance with a location)
+	 * @param sortDir sort direction (ASC/DESC)
+	 */
+	public AnimalFilter(String query, Long categoryId, String gender, Integer minAge, Integer maxAge,
+			Double latitude, Double longitude, Integer radiusKm, String sortBy, String sortDir) {
+		this.query = (query == null || query.trim().isEmpty()) ? null : query.trim();
+		this.categoryId = categoryId;
+		this.gender = (gender == null || gender.trim().isEmpty()) ? null : gender.trim();
+		this.minAge = minAge;
+		this.maxAge = maxAge;
+
+		boolean located = Geo.isValid(latitude, longitude);
+		this.radiusKm = (located && radiusKm != null && radiusKm > 0) ? radiusKm : null;
+		this.sortBy = normalizeSort(sortBy, this.query != null, located);
+		boolean keepLocation = located && (this.radiusKm != null || SORT_DISTANCE.equals(this.sortBy));
+		this.latitude = keepLocation ? latitude : null;
+		this.longitude = keepLocation ? longitude : null;
+
+		this.sortDir = SORT_DISTANCE.equals(this.sortBy) ? "ASC"
+				: ("DESC".equalsIgnoreCase(sortDir) || SORT_RELEVANCE.equals(this.sortBy)) ? "DESC" : "ASC";
+	}
+
+	/** Without a location */
+	public AnimalFilter(String query, Long categoryId, String gender, Integer minAge, Integer maxAge,
+			String sortBy, String sortDir) {
+		this(query, categoryId, gender, minAge, maxAge, null, null, null, sortBy, sortDir);
+	}
+
+	/** Without a text query */
+	public AnimalFilter(Long categoryId, String gender, Integer minAge, Integer maxAge,
+			String sortBy, String sortDir) {
+		this(null, categoryId, gender, minAge, maxAge, sortBy, sortDir);
+	}
+
+
+	/** A filter that matches every animal, newest first */
+	public static AnimalFilter all() {
+		return new AnimalFilter(null, null, null, null, SORT_TIMESTAMP, "DESC");
+	}
+
+
+	private static String normalizeSort(String sortBy, boolean hasQuery, boolean hasLocation) {
+		if (SORT_NAME.equals(sortBy) || SORT_AGE.equals(sortBy) || SORT_CATEGORY.equals(sortBy)) {
+			return sortBy;
+		}
+		if (SORT_RELEVANCE.equals(sortBy) && hasQuery) return sortBy;
+		if (SORT_DISTANCE.equals(sortBy) && hasLocation) return sortBy;
+		return SORT_TIMESTAMP;
+	}
+
+
+
+	//***************************************** Getters *********************************************//
+
+	public String getQuery() { return query; }
+
+	public Long getCategoryId() { return categoryId; }
+
+	public String getGender() { return gender; }
+
+	public Integer getMinAge() { return minAge; }
+
+	public Integer getMaxAge() { return maxAge; }
+
+	public Double getLatitude() { return latitude; }
+
+	public Double getLongitude() { return longitude; }
+
+	public Integer getRadiusKm() { return radiusKm; }
+
+	/** A proximity search: a radius, the distance sort or both (only animals with a location match) */
+	public boolean hasLocation() { return latitude != null; }
+
+	public String getSortBy() { return sortBy; }
+
+	public String getSortDir() { return sortDir; }
+
+	public boolean isDescending() { return "DESC".equals(sortDir); }
+
+
+
+	//***************************************** Identity *********************************************//
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof AnimalFilter)) return false;
+		AnimalFilter f = (AnimalFilter) o;
+		return Objects.equals(query, f.query)
+				&& Objects.equals(categoryId, f.categoryId)
+				&& Objects.equals(gender, f.gender)
+				&& Objects.equals(minAge, f.minAge)
+				&& Objects.equals(maxAge, f.maxAge)
+				&& Objects.equals(latitude, f.latitude)
+				&& Objects.equals(longitude, f.longitude)
+				&& Objects.equals(radiusKm, f.radiusKm)
+				&& sortBy.equals(f.sortBy)
+				&& sortDir.equals(f.sortDir);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(query, categoryId, gender, minAge, maxAge, latitude, longitude, radiusKm, sortBy, sortDir);
+	}
+
+	@Override
+	public String toString() {
+		return "AnimalFilter[q=" + query + ", cat=" + categoryId + ", gender=" + gender + ", age=" + minAge + ".." + maxAge
+				+ (hasLocation() ? ", near=" + latitude + "," + longitude + (radiusKm != null ? " ≤" + radiusKm + "km" : "") : "")
+				+ ", sort=" + sortBy + " " + sortDir + "]";
+	}
+}
+//===============================================================================================================================//
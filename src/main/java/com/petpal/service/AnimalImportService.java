@@ -0,0 +1,466 @@
+package com.petpal.service;
+
+import com.petpal.model.Animal;
+import com.petpal.model.Category;
+import com.petpal.model.GenderConverter;
+import com.petpal.model.ImageRendition;
+import com.petpal.model.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+
+
+/**
+ * Bulk import of animals for one owner (e.g. a shelter joining with its whole catalog),
+ * from CSV or the XML shape written by the export, plus an optional zip of images.
+ *
+ * How:
+ *  - The file is parsed as a stream, one record at a time ({@link ImportReader}).
+ *  - Each record is validated on its own; a bad record is reported with its number and skipped,
+ *    the rest of the import goes on.
+ *  - Categories are resolved by name or id through a map loaded once per import (from the cached category list).
+ *  - Rows are written with plain JDBC: prepared-statement batches of import.batchSize rows, committed per batch
+ *    (with rewriteBatchedStatements the driver sends each batch as one multi-row INSERT). A pooled connection is
+ *    borrowed only once a batch is prepared, so rendering its images never holds one.
+ *    If a batch fails, it is rolled back and its rows are retried one by one, so only the offending rows are lost.
+ *  - Images are looked up in the zip by the record's "image" column and go through the same
+ *    {@link StagedImage} / {@link ImagePipeline} / {@link BlobStore} path as a single upload.
+ *
+ * Columns: name, category (name or id), age, gender (M/F or the Hebrew label), shortDescription,
+ * fullDescription, image (file name inside the zip), latitude and longitude (optional, degrees). Export-only columns (id, owner, hasImage, timestamp) are ignored.
+ */
+//========================================== Animal Import Service ==============================================================//
+
+public class AnimalImportService {
+
+	/** Rows per JDBC batch (and per commit) */
+	private static final int BATCH_SIZE = AppConfig.getInt("import.batchSize", 500);
+
+	/** At most this many row errors are reported in detail (all of them are counted) */
+	private static final int MAX_REPORTED_ERRORS = AppConfig.getInt("import.maxReportedErrors", 1000);
+
+	private static final String INSERT_ANIMAL =
+			"INSERT INTO animals (name, category_id, age, gender, shortDescription, fullDescription, " +
+			"has_image, timestamp, owner_id, latitude, longitude) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String INSERT_IMAGE =
+			"INSERT INTO animal_images (animal_id, rendition, content_type, size_bytes, width, height, blob_key, updated_at) " +
+			"VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+	/** Animals loaded per query when notifying the catalog listeners after the import */
+	private static final int NOTIFY_CHUNK = 500;
+
+	private static final EntityManagerFactory emf = PersistenceManager.getEntityManagerFactory();
+
+	private final AnimalService animalService = new AnimalService();
+
+	private final ImagePipeline imagePipeline = new ImagePipeline();
+
+	private final BlobStore blobStore = BlobStores.get();
+
+	private final SearchCache searchCache = SearchCache.get();
+
+
+
+	//***************************************** Result *********************************************//
+
+	/** Supported input formats */
+	public enum Format {
+		CSV, XML;
+
+		/** By file extension ("animals.csv"), else by content type; null if neither tells */
+		public static Format detect(String fileName, String contentType) {
+			String name = (fileName != null) ? fileName.toLowerCase(Locale.ROOT) : "";
+			String type = (contentType != null) ? contentType.toLowerCase(Locale.ROOT) : "";
+			if (name.endsWith(".csv") || type.startsWith("text/csv")) return CSV;
+			if (name.endsWith(".xml") || type.contains("xml")) return XML;
+			return null;
+		}
+	}
+
+
+	/** A record that was not imported */
+	public static final class RowError {
+		private final int row;
+		private final String message;
+
+		RowError(int row, String message) {
+			this.row = row;
+			this.message = message;
+		}
+
+		/** 1-based record number in the file */
+		public int getRow() { return row; }
+		public String getMessage() { return message; }
+	}
+
+
+	/** Outcome of one import */
+	public static final class Result {
+		private int imported;
+		private int failed;
+		private final List<RowError> errors = new ArrayList<>();
+		private long elapsedMillis;
+
+		void error(int row, String message) {
+			failed++;
+			if (errors.size() < MAX_REPORTED_ERRORS) errors.add(new RowError(row, message));
+		}
+
+		public int getImported() { return imported; }
+		public int getFailed() { return failed; }
+		/** The first import.maxReportedErrors errors, in file order */
+		public List<RowError> getErrors() { return Collections.unmodifiableList(errors); }
+		public long getElapsedMillis() { return elapsedMillis; }
+	}
+
+
+	/** A validated record waiting for its batch */
+	private static final class PendingRow {
+		final int row;
+		final String name;
+		final Long categoryId;
+		final int age;
+		final String genderCode;
+		final String shortDescription;
+		final String fullDescription;
+		final Double latitude;
+		final Double longitude;
+		final List<ImageRow> images;
+		Long id;
+
+		PendingRow(int row, String name, Long categoryId, int age, String genderCode, String shortDescription,
+				String fullDescription, Double latitude, Double longitude, List<ImageRow> images) {
+			this.row = row;
+			this.name = name;
+			this.categoryId = categoryId;
+			this.age = age;
+			this.genderCode = genderCode;
+			this.shortDescription = shortDescription;
+			this.fullDescription = fullDescription;
+			this.latitude = latitude;
+			this.longitude = longitude;
+			this.images = images;
+		}
+	}
+
+
+	/** Metadata of one stored rendition; the bytes are already in the blob store, so a batch holds no image data */
+	private static final class ImageRow {
+		final ImageRendition rendition;
+		final String contentType;
+		final long size;
+		final int width;
+		final int height;
+		final String blobKey;
+
+		ImageRow(ImagePipeline.Rendered r, String blobKey) {
+			this.rendition = r.getRendition();
+			this.contentType = r.getContentType();
+			this.size = r.getSize();
+			this.width = r.getWidth();
+			this.height = r.getHeight();
+			this.blobKey = blobKey;
+		}
+	}
+
+
+
+	//***************************************** Import *********************************************//
+
+
+	/**
+	 * Import every valid record of the file as an animal of the owner.
+	 *
+	 * @param data the uploaded file (closed by this method)
+	 * @param format its format
+	 * @param imagesZip optional zip with the images named in the "image" column (null = no images)
+	 * @param owner the logged-in user who becomes the owner of every animal
+	 * @return counts and per-record errors
+	 * @throws IllegalArgumentException if the file cannot be parsed at all (e.g. broken XML, missing CSV header)
+	 * @throws IllegalStateException if no user is logged in
+	 * @throws IOException if reading the upload fails
+	 * @throws SQLException if the database is unreachable
+	 */
+	public Result importAnimals(InputStream data, Format format, Path imagesZip, User owner)
+			throws IOException, SQLException {
+
+		if (owner == null) throw new IllegalStateException("משתמש לא מחובר");
+		long started = System.currentTimeMillis();
+
+		Result result = new Result();
+		List<Long> importedIds = new ArrayList<>();
+		Map<String, Long> categories = categoryLookup();
+
+		try (ImportReader reader = (format == Format.XML) ? new XmlImportReader(data) : new CsvImportReader(data);
+				ZipFile zip = (imagesZip != null) ? new ZipFile(imagesZip.toFile(), StandardCharsets.UTF_8) : null) {
+
+			// A batch is read and prepared (images rendered and stored) without a connection;
+			// one is borrowed from the pool only to insert and commit it
+			List<PendingRow> pending = new ArrayList<>(BATCH_SIZE);
+			Map<String, String> record;
+			while ((record = reader.next()) != null) {
+				PendingRow row = prepare(reader.getRecordNumber(), record, categories, zip, result);
+				if (row == null) continue;
+				pending.add(row);
+				if (pending.size() >= BATCH_SIZE) {
+					write(pending, owner.getId(), result, importedIds);
+					pending.clear();
+				}
+			}
+			write(pending, owner.getId(), result, importedIds);
+		} finally {
+			// whatever was committed is visible - also after a failure halfway through
+			if (!importedIds.isEmpty()) {
+				notifyListeners(importedIds);
+				searchCache.invalidateAll();
+			}
+		}
+
+		result.elapsedMillis = System.currentTimeMillis() - started;
+		return result;
+	}
+
+
+	/**
+	 * Validate one record and store its images.
+	 * @return the row to insert, or null if the record was rejected (the error is in the result)
+	 */
+	private PendingRow prepare(int rowNumber, Map<String, String> r, Map<String, Long> categories, ZipFile zip,
+			Result result) {
+
+		String name = text(r, "name");
+		if (name == null) { result.error(rowNumber, "Missing name"); return null; }
+		if (name.length() > 100) { result.error(rowNumber, "Name longer than 100 characters"); return null; }
+
+		String category = text(r, "category");
+		Long categoryId = (category != null) ? categories.get(category.toLowerCase(Locale.ROOT)) : null;
+		if (categoryId == null) {
+			result.error(rowNumber, category == null ? "Missing category" : "Unknown category: " + category);
+			return null;
+		}
+
+		int age;
+		try {
+			String v = text(r, "age");
+			age = (v != null) ? Integer.parseInt(v) : 0;
+			if (age < 0) throw new NumberFormatException();
+		} catch (NumberFormatException e) {
+			result.error(rowNumber, "Invalid age: " + r.get("age"));
+			return null;
+		}
+
+		String gender = text(r, "gender");
+		String genderCode = null;
+		if (gender != null) {
+			if (gender.equalsIgnoreCase("M") || gender.equalsIgnoreCase("F")) {
+				genderCode = gender.toUpperCase(Locale.ROOT);
+			} else if (gender.equals(GenderConverter.MALE) || gender.equals(GenderConverter.FEMALE)) {
+				genderCode = new GenderConverter().convertToDatabaseColumn(gender);
+			} else {
+				result.error(rowNumber, "Invalid gender: " + gender);
+				return null;
+			}
+		}
+
+		String shortDescription = text(r, "shortDescription");
+		if (shortDescription != null && shortDescription.length() > 255) {
+			result.error(rowNumber, "Short description longer than 255 characters");
+			return null;
+		}
+
+		Double latitude;
+		Double longitude;
+		try {
+			String lat = text(r, "latitude");
+			String lon = text(r, "longitude");
+			latitude = (lat != null) ? Double.valueOf(lat) : null;
+			longitude = (lon != null) ? Double.valueOf(lon) : null;
+			if ((latitude != null || longitude != null) && !Geo.isValid(latitude, longitude)) {
+				throw new NumberFormatException();
+			}
+		} catch (NumberFormatException e) {
+			result.error(rowNumber, "Invalid location: " + r.get("latitude") + ", " + r.get("longitude"));
+			return null;
+		}
+
+		List<ImageRow> images = Collections.emptyList();
+		String image = text(r, "image");
+		if (image != null) {
+			ZipEntry entry = (zip != null) ? zip.getEntry(image) : null;
+			if (entry == null || entry.isDirectory()) {
+				result.error(rowNumber, "Image not found in the zip: " + image);
+				return null;
+			}
+			// Blobs of rows that fail later stay unreferenced and are removed by the periodic GC sweep
+			try (StagedImage upload = StagedImage.receive(StagedImage.Source.of(zip.getInputStream(entry)), entry.getSize())) {
+				List<ImagePipeline.Rendered> renditions = imagePipeline.render(upload);
+				images = new ArrayList<>(renditions.size());
+				for (ImagePipeline.Rendered rendition : renditions) {
+					try (InputStream in = rendition.openStream()) {
+						images.add(new ImageRow(rendition, blobStore.put(in)));
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				result.error(rowNumber, "Image " + image + ": " + e.getMessage());
+				return null;
+			}
+		}
+
+		return new PendingRow(rowNumber, name, categoryId, age, genderCode, shortDescription,
+				text(r, "fullDescription"), latitude, longitude, images);
+	}
+
+
+	/**
+	 * Insert the rows as one batch in one transaction; on failure, roll back and insert them one at a time.
+	 * Runs on a pooled connection held only for these statements.
+	 * Each transaction is stamped just before it is written (not at the start of the import, nor before its images
+	 * were prepared), so the rows of a long import do not fall behind a change-feed cursor handed out meanwhile.
+	 */
+	private static void write(List<PendingRow> rows, Long ownerId, Result result, List<Long> importedIds)
+			throws SQLException {
+
+		if (rows.isEmpty()) return;
+		try (Connection con = PersistenceManager.getDataSource().getConnection()) {
+			con.setAutoCommit(false);
+			try {
+				insert(con, rows, ownerId, LocalDateTime.now());
+				con.commit();
+				for (PendingRow row : rows) importedIds.add(row.id);
+				result.imported += rows.size();
+				return;
+			} catch (SQLException e) {
+				con.rollback();
+			}
+
+			// Find the offending rows: each one in its own transaction
+			for (PendingRow row : rows) {
+				try {
+					insert(con, Collections.singletonList(row), ownerId, LocalDateTime.now());
+					con.commit();
+					importedIds.add(row.id);
+					result.imported++;
+				} catch (SQLException e) {
+					con.rollback();
+					result.error(row.row, "Database error: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+
+	/** Batch INSERT of the animals (generated ids read back in order), then of their image rows */
+	private static void insert(Connection con, List<PendingRow> rows, Long ownerId, LocalDateTime time)
+			throws SQLException {
+
+		// a Timestamp, as Hibernate binds it: the driver converts it to the connection's serverTimezone
+		Timestamp now = Timestamp.valueOf(time);
+		boolean anyImage = false;
+		try (PreparedStatement ps = con.prepareStatement(INSERT_ANIMAL, Statement.RETURN_GENERATED_KEYS)) {
+			for (PendingRow row : rows) {
+				ps.setString(1, row.name);
+				ps.setLong(2, row.categoryId);
+				ps.setInt(3, row.age);
+				if (row.genderCode != null) ps.setString(4, row.genderCode); else ps.setNull(4, Types.CHAR);
+				ps.setString(5, row.shortDescription);
+				ps.setString(6, row.fullDescription);
+				ps.setBoolean(7, !row.images.isEmpty());
+				ps.setTimestamp(8, now);
+				ps.setLong(9, ownerId);
+				if (row.latitude != null) ps.setDouble(10, row.latitude); else ps.setNull(10, Types.DOUBLE);
+				if (row.longitude != null) ps.setDouble(11, row.longitude); else ps.setNull(11, Types.DOUBLE);
+				ps.addBatch();
+				anyImage |= !row.images.isEmpty();
+			}
+			ps.executeBatch();
+			try (ResultSet keys = ps.getGeneratedKeys()) {
+				for (PendingRow row : rows) {
+					if (!keys.next()) throw new SQLException("Missing generated id for record " + row.row);
+					row.id = keys.getLong(1);
+				}
+			}
+		}
+		if (!anyImage) return;
+
+		try (PreparedStatement ps = con.prepareStatement(INSERT_IMAGE)) {
+			for (PendingRow row : rows) {
+				for (ImageRow image : row.images) {
+					ps.setLong(1, row.id);
+					ps.setString(2, image.rendition.name());
+					ps.setString(3, image.contentType);
+					ps.setLong(4, image.size);
+					ps.setInt(5, image.width);
+					ps.setInt(6, image.height);
+					ps.setString(7, image.blobKey);
+					ps.setTimestamp(8, now);
+					ps.addBatch();
+				}
+			}
+			ps.executeBatch();
+		}
+	}
+
+
+
+	//***************************************** Helpers *********************************************//
+
+
+	/** Category id by lower-case name and by id, built once per import from the (query-cached) category list */
+	private Map<String, Long> categoryLookup() {
+		Map<String, Long> map = new HashMap<>();
+		for (Category c : animalService.listCategories()) {
+			map.put(c.getName().trim().toLowerCase(Locale.ROOT), c.getId());
+			map.put(String.valueOf(c.getId()), c.getId());
+		}
+		return map;
+	}
+
+
+	/** Trimmed value of the column, null if missing or blank */
+	private static String text(Map<String, String> record, String column) {
+		String v = record.get(column);
+		if (v == null) return null;
+		v = v.trim();
+		return v.isEmpty() ? null : v;
+	}
+
+
+	/** Tell the catalog listeners about the new animals, loading them in chunks */
+	private static void notifyListeners(List<Long> ids) {
+		for (int from = 0; from < ids.size(); from += NOTIFY_CHUNK) {
+			List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + NOTIFY_CHUNK));
+			EntityManager em = emf.createEntityManager();
+			try {
+				List<Animal> animals = em.createQuery(
+						"SELECT a FROM Animal a JOIN FETCH a.category JOIN FETCH a.owner WHERE a.id IN :ids", Animal.class)
+						.setParameter("ids", chunk)
+						.getResultList();
+				for (Animal a : animals) CatalogEvents.fireAdded(a);
+			} finally { em.close(); }
+		}
+	}
+}
+//===============================================================================================================================//
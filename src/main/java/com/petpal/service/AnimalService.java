@@ -1,16 +1,30 @@
 package com.petpal.service;
 
 import com.petpal.model.Animal;
+import com.petpal.model.AnimalCard;
+import com.petpal.model.AnimalImage;
+import com.petpal.model.AnimalTombstone;
 import com.petpal.model.Category;
 import com.petpal.model.User;
 
 import javax.persistence.*;
-import java.io.ByteArrayOutputStream;
+
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+
+import java.io.IOException;
 import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Base64;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 
 /**
@@ -24,13 +38,51 @@ import java.util.List;
 
 public class AnimalService {
 
+	/**
+	 * JPQL select list that fills an {@link AnimalCard} from "Animal a" and "Category c".
+	 * a.owner.id is read from the owner_id column, without joining users.
+	 */
+	static final String CARD_SELECT =
+			"SELECT NEW com.petpal.model.AnimalCard(a.id, a.name, a.age, a.gender, c.id, c.name, " +
+			"a.shortDescription, a.owner.id, a.hasImage, a.timestamp) ";
+
+
 	/**
 	 * Single EntityManagerFactory for the entire application.
-	 * Created from the persistence unit "PetPalPU" (see persistence.xml).
+	 * Shared through {@link PersistenceManager} (one metamodel, one connection pool).
 	 * Used to create EntityManager instances for DB operations.
 	 */
-	private static final EntityManagerFactory emf =
-			Persistence.createEntityManagerFactory("PetPalPU");
+	private static final EntityManagerFactory emf = PersistenceManager.getEntityManagerFactory();
+
+	/** Produces thumbnail/medium renditions of uploaded images (bounded concurrency) */
+	private final ImagePipeline imagePipeline = new ImagePipeline();
+
+	/** Content-addressed storage of the image bytes */
+	private final BlobStore blobStore = BlobStores.get();
+
+	/** Rows per database round trip when streaming an export */
+	private static final int EXPORT_FETCH_SIZE = 500;
+
+	/** Recently returned search pages; invalidated by category on every write */
+	private final SearchCache searchCache = SearchCache.get();
+
+	/** Full-text index over names and descriptions (kept current through {@link CatalogEvents}) */
+	private final TextIndex textIndex = TextIndex.get();
+
+	/** Columnar in-memory copy of the searchable attributes; evaluates the search filters and sorts */
+	private final AnimalCatalog catalog = AnimalCatalog.get();
+
+	/** Bitmap index behind the facet counts */
+	private final FacetIndex facetIndex = FacetIndex.get();
+
+	/** Geohash grid of the animals' locations (proximity search) */
+	private final GeoIndex geoIndex = GeoIndex.get();
+
+	/** First radius tried by a nearest-first search without a radius; widened 4x until the page is full */
+	private static final double NEAREST_START_KM = 25;
+
+	/** Upper bound on the text matches ranked for a relevance-ordered search (the best-scoring ones) */
+	private static final int MAX_TEXT_HITS = AppConfig.getInt("search.text.maxHits", 5000);
 
 
 
@@ -46,6 +98,7 @@ public class AnimalService {
 		EntityManager em = emf.createEntityManager();
 		try {
 			return em.createQuery("SELECT c FROM Category c ORDER BY c.name", Category.class)
+					.setHint("org.hibernate.cacheable", true) // query cache; rows come from the Category region
 					.getResultList();
 		} finally { em.close(); }
 	}
@@ -53,61 +106,404 @@ public class AnimalService {
 
 
 	/**
-	 * Search animals by filters and sort order.
-	 * Optionally converts image blobs to Base64 for UI display.
+	 * Search one page of animals by filters and sort order, using keyset (seek) pagination.
+	 * Rows are ordered by the sort column and then by id (same direction), so the order is total
+	 * and the next page starts strictly after the last row of the previous one.
+	 * Filtering and sorting run on the in-memory {@link AnimalCatalog}; the database only returns the page's cards.
+	 * Returns card projections only; images are referenced by URL (/images/animal/{id})
+	 * and the full description is loaded on demand ({@link #findFullDescription}).
+	 * With a text query, only the animals matched by the {@link TextIndex} are considered (no LIKE scans);
+	 * sorting by relevance pages through the index ranking instead of a database order.
+	 * With a location, only animals within the radius (from the {@link GeoIndex} grid) are considered, and the
+	 * distance sort is nearest first; the cards then carry their distance.
+	 * Pages are served from the {@link SearchCache} when possible.
 	 *
-	 * @param categoryId filter by category (nullable)
-	 * @param gender filter by gender (nullable/empty)
-	 * @param minAge minimum age (nullable)
-	 * @param maxAge maximum age (nullable)
-	 * @param sortBy column to sort by (name/age/category/timestamp)
-	 * @param sortDir sort direction (ASC/DESC)
-	 * @param withBase64 whether to convert images to Base64 for display
-	 * @return list of matching animals
+	 * @param filter normalized filters and sort order
+	 * @param after cursor returned with the previous page (null for the first page)
+	 * @param pageSize maximum number of animals to return
+	 * @return the page of matching animals and the cursor for the next page
+	 */
+	public Page<AnimalCard> search(AnimalFilter filter, PageCursor after, int pageSize) {
+		return searchCache.getOrLoad(filter, after, pageSize, () -> querySearch(filter, after, pageSize));
+	}
+
+
+	/**
+	 * Behind {@link #search}: the {@link AnimalCatalog} picks the ids of the page (filters, sort, cursor - in memory),
+	 * then only those cards are read from the database, by primary key.
+	 */
+	private Page<AnimalCard> querySearch(AnimalFilter filter, PageCursor after, int pageSize) {
+
+		long[] textIds = null;
+		if (filter.getQuery() != null) {
+			if (AnimalFilter.SORT_RELEVANCE.equals(filter.getSortBy())) {
+				TextIndex.Hits hits = textIndex.search(filter.getQuery(), MAX_TEXT_HITS);
+				if (filter.getRadiusKm() != null) hits = withinRadius(hits, filter);
+				if (hits.size() == 0) return new Page<>(Collections.emptyList(), null);
+				return relevancePage(filter, hits, after, pageSize);
+			}
+			// every match, not only the best-scoring ones: the catalog filters and sorts them all
+			textIds = textIndex.matches(filter.getQuery());
+			if (textIds.length == 0) return new Page<>(Collections.emptyList(), null);
+		}
+
+		//One extra row tells whether another page exists
+		AnimalCatalog.Slice slice = filter.hasLocation()
+				? nearbySlice(filter, textIds, after, pageSize)
+				: catalog.page(filter, textIds, null, after, pageSize);
+		int n = Math.min(pageSize, slice.ids.length);
+		if (n == 0) return new Page<>(Collections.emptyList(), null);
+
+		List<Long> ids = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) ids.add(slice.ids[i]);
+		List<AnimalCard> items = findCards(ids);
+		if (filter.hasLocation()) setDistances(items, filter);
+
+		PageCursor next = (slice.ids.length > pageSize)
+				? new PageCursor(slice.sortValues[pageSize - 1], slice.ids[pageSize - 1]) : null;
+		return new Page<>(items, next);
+	}
+
+
+	/**
+	 * A page of a proximity search. With a radius, the candidates are the animals inside it.
+	 * Nearest first without a radius: the circle starts at NEAREST_START_KM (or twice the cursor's distance) and
+	 * grows 4x until it holds a full page after the cursor - every animal nearer than the radius is then known,
+	 * so the page is exact - or until it covers the whole earth.
 	 */
-	public List<Animal> search(Long categoryId, String gender,Integer minAge, Integer maxAge,String sortBy, String sortDir,boolean withBase64) {
+	private AnimalCatalog.Slice nearbySlice(AnimalFilter filter, long[] textIds, PageCursor after, int pageSize) {
+		double lat = filter.getLatitude();
+		double lon = filter.getLongitude();
+		if (filter.getRadiusKm() != null) {
+			return catalog.page(filter, textIds, geoIndex.within(lat, lon, filter.getRadiusKm()).ids, after, pageSize);
+		}
+		double km = NEAREST_START_KM;
+		if (after != null && after.getSortValue() instanceof Long) {
+			km = Math.max(km, 2 * (Long) after.getSortValue() / 1000.0);
+		}
+		while (true) {
+			boolean everything = km >= Geo.MAX_DISTANCE_KM;
+			AnimalCatalog.Slice slice = catalog.page(filter, textIds,
+					geoIndex.within(lat, lon, everything ? Geo.MAX_DISTANCE_KM : km).ids, after, pageSize);
+			if (slice.ids.length > pageSize || everything) return slice;
+			km *= 4;
+		}
+	}
 
+	/** The hits (in their order) that lie within the filter's radius */
+	private TextIndex.Hits withinRadius(TextIndex.Hits hits, AnimalFilter filter) {
+		GeoIndex.Nearby near = geoIndex.within(filter.getLatitude(), filter.getLongitude(), filter.getRadiusKm());
+		Set<Long> inside = new HashSet<>(near.size() * 2);
+		for (long id : near.ids) inside.add(id);
+		long[] ids = new long[hits.size()];
+		float[] scores = new float[hits.size()];
+		int n = 0;
+		for (int i = 0; i < hits.size(); i++) {
+			if (!inside.contains(hits.ids[i])) continue;
+			ids[n] = hits.ids[i];
+			scores[n] = hits.scores[i];
+			n++;
+		}
+		return new TextIndex.Hits(Arrays.copyOf(ids, n), Arrays.copyOf(scores, n));
+	}
+
+	/** Distance of every card from the searched location */
+	private void setDistances(List<AnimalCard> cards, AnimalFilter filter) {
+		for (AnimalCard card : cards) {
+			card.setDistanceKm(geoIndex.distanceKm(card.getId(), filter.getLatitude(), filter.getLongitude()));
+		}
+	}
+
+
+	/** Cards of the given animals, in the given order (animals deleted meanwhile are left out) */
+	List<AnimalCard> findCards(List<Long> ids) {
 		EntityManager em = emf.createEntityManager();
+		try {
+			Map<Long, AnimalCard> byId = new HashMap<>();
+			for (AnimalCard card : em.createQuery(CARD_SELECT +
+					"FROM Animal a JOIN a.category c WHERE a.id IN :ids", AnimalCard.class)
+					.setParameter("ids", ids)
+					.getResultList()) {
+				byId.put(card.getId(), card);
+			}
+			List<AnimalCard> out = new ArrayList<>(ids.size());
+			for (Long id : ids) {
+				AnimalCard card = byId.get(id);
+				if (card != null) out.add(card);
+			}
+			return out;
+		} finally { em.close(); }
+	}
 
+
+	/**
+	 * Count, for every category, gender and age bucket, how many animals the search would return
+	 * with that choice (each facet under all the other filters). Computed on the in-memory {@link FacetIndex}.
+	 *
+	 * @param filter the active filters (sort order is ignored)
+	 */
+	public FacetCounts facets(AnimalFilter filter) {
+		return facetIndex.count(filter);
+	}
+
+
+	/**
+	 * One page in relevance order: walks the ranked hits after the cursor (score, id) and loads their cards
+	 * in chunks, applying the other filters in the database, until the page is full.
+	 */
+	private Page<AnimalCard> relevancePage(AnimalFilter filter, TextIndex.Hits hits, PageCursor after, int pageSize) {
+		int start = 0;
+		if (after != null) {
+			float lastScore = ((Number) after.getSortValue()).floatValue();
+			long lastId = after.getLastId();
+			while (start < hits.size() && (hits.scores[start] > lastScore
+					|| (hits.scores[start] == lastScore && hits.ids[start] >= lastId))) {
+				start++;
+			}
+		}
+
+		List<AnimalCard> items = new ArrayList<>(pageSize + 1);
+		List<Float> itemScores = new ArrayList<>(pageSize + 1);
+		EntityManager em = emf.createEntityManager();
 		try {
-			StringBuilder jpql = new StringBuilder(
-					"SELECT a FROM Animal a " +
-							"JOIN FETCH a.category " +
-							"JOIN FETCH a.owner " +
-							"WHERE 1=1"
-					);
-			if (categoryId != null)               jpql.append(" AND a.category.id = :catId");
-			if (gender != null && !gender.isEmpty()) jpql.append(" AND a.gender = :gender");
-			if (minAge != null)                   jpql.append(" AND a.age >= :minAge");
-			if (maxAge != null)                   jpql.append(" AND a.age <= :maxAge");
-
-			String sortColumn;
-			switch (sortBy != null ? sortBy : "") {
-			case "name":     sortColumn = "a.name"; break;
-			case "age":      sortColumn = "a.age"; break;
-			case "category": sortColumn = "a.category.name"; break;
-			default:         sortColumn = "a.timestamp";
+			StringBuilder jpql = new StringBuilder(CARD_SELECT + "FROM Animal a JOIN a.category c WHERE 1=1");
+			appendFilters(jpql, filter);
+			jpql.append(" AND a.id IN :ids");
+
+			int chunk = Math.max(pageSize * 2, 50);
+			for (int from = start; from < hits.size() && items.size() <= pageSize; from += chunk) {
+				int to = Math.min(hits.size(), from + chunk);
+				List<Long> ids = new ArrayList<>(to - from);
+				for (int i = from; i < to; i++) ids.add(hits.ids[i]);
+
+				TypedQuery<AnimalCard> q = em.createQuery(jpql.toString(), AnimalCard.class);
+				bindFilters(q, filter);
+				Map<Long, AnimalCard> byId = new HashMap<>();
+				for (AnimalCard card : q.setParameter("ids", ids).getResultList()) byId.put(card.getId(), card);
+
+				for (int i = from; i < to && items.size() <= pageSize; i++) {
+					AnimalCard card = byId.get(hits.ids[i]);
+					if (card == null) continue; // filtered out (or deleted meanwhile)
+					items.add(card);
+					itemScores.add(hits.scores[i]);
+				}
 			}
-			String dir = "DESC".equalsIgnoreCase(sortDir) ? "DESC" : "ASC";
-			jpql.append(" ORDER BY ").append(sortColumn).append(" ").append(dir);
-
-			TypedQuery<Animal> q = em.createQuery(jpql.toString(), Animal.class);
-			if (categoryId != null)                 q.setParameter("catId", categoryId);
-			if (gender != null && !gender.isEmpty()) q.setParameter("gender", gender);
-			if (minAge != null)                     q.setParameter("minAge", minAge);
-			if (maxAge != null)                     q.setParameter("maxAge", maxAge);
-
-			List<Animal> list = q.getResultList();
-			if (!withBase64) return list;
-
-			for (Animal a : list) {
-				if (a.getImageBlob() != null && a.getImageBlob().length > 0) {
-					a.setImageBase64(Base64.getEncoder().encodeToString(a.getImageBlob()));
-				} else {
-					a.setImageBase64(null);
+		} finally { em.close(); }
+
+		if (filter.hasLocation()) setDistances(items, filter);
+		if (items.size() <= pageSize) return new Page<>(items, null);
+		items = new ArrayList<>(items.subList(0, pageSize));
+		AnimalCard last = items.get(pageSize - 1);
+		return new Page<>(items, new PageCursor(itemScores.get(pageSize - 1), last.getId()));
+	}
+
+
+	/** WHERE conditions of the filter (aliases "a" = animal, "c" = category), appended after "WHERE 1=1" */
+	private static void appendFilters(StringBuilder jpql, AnimalFilter filter) {
+		if (filter.getCategoryId() != null) jpql.append(" AND c.id = :catId");
+		if (filter.getGender() != null)     jpql.append(" AND a.gender = :gender");
+		if (filter.getMinAge() != null)     jpql.append(" AND a.age >= :minAge");
+		if (filter.getMaxAge() != null)     jpql.append(" AND a.age <= :maxAge");
+	}
+
+	/** Bind the parameters used by {@link #appendFilters} */
+	private static void bindFilters(Query q, AnimalFilter filter) {
+		if (filter.getCategoryId() != null) q.setParameter("catId", filter.getCategoryId());
+		if (filter.getGender() != null)     q.setParameter("gender", filter.getGender());
+		if (filter.getMinAge() != null)     q.setParameter("minAge", filter.getMinAge());
+		if (filter.getMaxAge() != null)     q.setParameter("maxAge", filter.getMaxAge());
+	}
+
+
+	/** JPQL expression of the requested sort column (aliases as in {@link #search}) */
+	private static String sortColumn(String sortBy) {
+		switch (sortBy) {
+		case AnimalFilter.SORT_NAME:     return "a.name";
+		case AnimalFilter.SORT_AGE:      return "a.age";
+		case AnimalFilter.SORT_CATEGORY: return "c.name";
+		default:                         return "a.timestamp";
+		}
+	}
+
+
+	/**
+	 * Receives the rows of {@link #export}, one at a time.
+	 */
+	public interface ExportRowHandler {
+		/** @param values one value per requested field, in the requested order */
+		void row(Object[] values) throws IOException;
+	}
+
+
+	/**
+	 * Stream the animals matching the filter, reading only the requested fields.
+	 * Rows come from a forward-only cursor (EXPORT_FETCH_SIZE rows per round trip, server-side with
+	 * useCursorFetch) and are handed to the handler as they arrive; scalar rows never enter the persistence context,
+	 * so memory stays flat whatever the catalog size.
+	 *
+	 * @param filter filters and sort order (same semantics as {@link #search})
+	 * @param fields the columns to read, in output order
+	 * @param until inclusive upper bound of the animals' timestamps (the watermark of the export's resume cursor);
+	 *              animals without a timestamp (rows older than the column) are always included
+	 * @param handler called once per row
+	 * @return number of rows exported
+	 * @throws IOException if the handler fails (e.g. the client disconnected)
+	 */
+	public long export(AnimalFilter filter, List<ExportField> fields, LocalDateTime until, ExportRowHandler handler)
+			throws IOException {
+		StringBuilder jpql = exportSelect(fields);
+		appendFilters(jpql, filter);
+		jpql.append(" AND (a.timestamp <= :until OR a.timestamp IS NULL)");
+		String dir = filter.getSortDir();
+		jpql.append(" ORDER BY ").append(sortColumn(filter.getSortBy())).append(' ').append(dir)
+		    .append(", a.id ").append(dir);
+
+		return scroll(jpql.toString(), q -> {
+			bindFilters(q, filter);
+			q.setParameter("until", until);
+		}, handler);
+	}
+
+
+	/**
+	 * Stream only what changed in the window (since, until]: animals added in it (oldest first, filtered like
+	 * {@link #export}), then animals deleted in it (from the tombstones; only the category filter applies to them,
+	 * since the deleted rows' other attributes are gone).
+	 *
+	 * @param since exclusive lower bound (the previous watermark)
+	 * @param until inclusive upper bound (the new watermark)
+	 * @param added receives the requested fields of each added animal
+	 * @param deleted receives {animal id, deletion time} of each deleted animal
+	 * @return number of rows exported (added + deleted)
+	 */
+	public long exportChanges(AnimalFilter filter, List<ExportField> fields, LocalDateTime since, LocalDateTime until,
+			ExportRowHandler added, ExportRowHandler deleted) throws IOException {
+
+		StringBuilder jpql = exportSelect(fields);
+		appendFilters(jpql, filter);
+		jpql.append(" AND a.timestamp > :since AND a.timestamp <= :until ORDER BY a.timestamp, a.id");
+		long count = scroll(jpql.toString(), q -> {
+			bindFilters(q, filter);
+			q.setParameter("since", since);
+			q.setParameter("until", until);
+		}, added);
+
+		String tombstones = "SELECT t.animalId, t.deletedAt FROM AnimalTombstone t " +
+				"WHERE t.deletedAt > :since AND t.deletedAt <= :until" +
+				(filter.getCategoryId() != null ? " AND t.categoryId = :catId" : "") +
+				" ORDER BY t.deletedAt, t.id";
+		count += scroll(tombstones, q -> {
+			q.setParameter("since", since);
+			q.setParameter("until", until);
+			if (filter.getCategoryId() != null) q.setParameter("catId", filter.getCategoryId());
+		}, deleted);
+		return count;
+	}
+
+
+	/**
+	 * Fingerprint of the catalog (for ETag / Last-Modified): changes whenever an animal is added or deleted.
+	 */
+	public CatalogVersion catalogVersion() {
+		EntityManager em = emf.createEntityManager();
+		try {
+			Object[] animals = em.createQuery("SELECT MAX(a.id), MAX(a.timestamp) FROM Animal a", Object[].class)
+					.getSingleResult();
+			Object[] tombstones = em.createQuery(
+					"SELECT MAX(t.id), MAX(t.deletedAt) FROM AnimalTombstone t", Object[].class)
+					.getSingleResult();
+			return new CatalogVersion((Long) animals[0], (Long) tombstones[0],
+					(LocalDateTime) animals[1], (LocalDateTime) tombstones[1]);
+		} finally { em.close(); }
+	}
+
+
+	/**
+	 * Stream (id, name, shortDescription, fullDescription) of every animal - the input of the {@link TextIndex}.
+	 */
+	void scanSearchText(ExportRowHandler handler) throws IOException {
+		scroll("SELECT a.id, a.name, a.shortDescription, a.fullDescription FROM Animal a ORDER BY a.id",
+				q -> {}, handler);
+	}
+
+
+	/**
+	 * Stream (id, category id, category name, gender, age, timestamp, owner id, name, latitude, longitude) of every
+	 * animal - the input of the {@link AnimalCatalog}.
+	 */
+	void scanCatalog(ExportRowHandler handler) throws IOException {
+		scroll("SELECT a.id, c.id, c.name, a.gender, a.age, a.timestamp, a.owner.id, a.name, a.latitude, a.longitude " +
+				"FROM Animal a LEFT JOIN a.category c ORDER BY a.id", q -> {}, handler);
+	}
+
+
+	/**
+	 * Stream (id, latitude, longitude) of every animal that has a location - the input of the {@link GeoIndex}.
+	 */
+	void scanLocations(ExportRowHandler handler) throws IOException {
+		scroll("SELECT a.id, a.latitude, a.longitude FROM Animal a " +
+				"WHERE a.latitude IS NOT NULL AND a.longitude IS NOT NULL ORDER BY a.id", q -> {}, handler);
+	}
+
+
+	/**
+	 * Stream (id, category id, gender, age) of every animal - the input of the {@link FacetIndex}.
+	 */
+	void scanFacets(ExportRowHandler handler) throws IOException {
+		scroll("SELECT a.id, c.id, a.gender, a.age FROM Animal a LEFT JOIN a.category c ORDER BY a.id",
+				q -> {}, handler);
+	}
+
+
+	/**
+	 * Stream (id, category id, category name, name) of every animal - the input of the {@link SuggestIndex}.
+	 */
+	void scanSuggest(ExportRowHandler handler) throws IOException {
+		scroll("SELECT a.id, c.id, c.name, a.name FROM Animal a LEFT JOIN a.category c ORDER BY a.id",
+				q -> {}, handler);
+	}
+
+
+	/**
+	 * Stream (user id, animal id) of every favorite - the input of the {@link SimilarAnimalsIndex}.
+	 */
+	void scanFavorites(ExportRowHandler handler) throws IOException {
+		scroll("SELECT f.user.id, f.animal.id FROM Favorite f", q -> {}, handler);
+	}
+
+
+	/** "SELECT <field expressions> FROM Animal a JOIN a.category c JOIN a.owner o WHERE 1=1" */
+	private static StringBuilder exportSelect(List<ExportField> fields) {
+		StringBuilder jpql = new StringBuilder("SELECT ");
+		for (int i = 0; i < fields.size(); i++) {
+			if (i > 0) jpql.append(", ");
+			jpql.append(fields.get(i).getExpression());
+		}
+		return jpql.append(" FROM Animal a JOIN a.category c JOIN a.owner o WHERE 1=1");
+	}
+
+
+	/**
+	 * Run a read-only scalar query on a forward-only cursor (EXPORT_FETCH_SIZE rows per round trip)
+	 * and hand each row to the handler.
+	 */
+	private long scroll(String jpql, Consumer<Query> binder, ExportRowHandler handler) throws IOException {
+		EntityManager em = emf.createEntityManager();
+		try {
+			org.hibernate.query.Query<?> q = em.createQuery(jpql).unwrap(org.hibernate.query.Query.class);
+			binder.accept(q);
+			q.setFetchSize(EXPORT_FETCH_SIZE)
+			 .setReadOnly(true)
+			 .setCacheMode(CacheMode.IGNORE);
+
+			long count = 0;
+			try (ScrollableResults rows = q.scroll(ScrollMode.FORWARD_ONLY)) {
+				while (rows.next()) {
+					handler.row(rows.get());
+					count++;
 				}
 			}
-			return list;
+			return count;
 		} finally { em.close(); }
 	}
 
@@ -127,6 +523,23 @@ public class AnimalService {
 		finally { em.close(); }
 	}
 
+
+
+	/**
+	 * Load only the full description of an animal (shown when a card's details are expanded).
+	 * @param id animal id
+	 * @return the full description, or null if the animal does not exist or has none
+	 */
+	public String findFullDescription(Long id) {
+		if (id == null) return null;
+		EntityManager em = emf.createEntityManager();
+		try {
+			return em.createQuery("SELECT a.fullDescription FROM Animal a WHERE a.id = :id", String.class)
+					.setParameter("id", id)
+					.getResultStream().findFirst().orElse(null);
+		} finally { em.close(); }
+	}
+
 	/*****************************************************************************************************************************/
 
 
@@ -137,37 +550,42 @@ public class AnimalService {
 	/**
 	 * Save a new animal to the DB.
 	 * Sets owner, category, timestamp and optional image.
+	 * The upload is staged to a temp file (size limit, type check, concurrency limit - see {@link StagedImage}),
+	 * re-encoded into its renditions by {@link ImagePipeline} and written to the {@link BlobStore};
+	 * animal_images rows keep only the content keys.
 	 *
 	 * @param animal the Animal entity (without owner/category yet)
 	 * @param owner the currently logged in user
 	 * @param categoryId the selected category id
-	 * @param uploadedImageStream optional image input stream
+	 * @param uploadedImage optional image upload (null if none)
+	 * @param uploadedImageSize size of the upload as reported by the container (-1 if unknown)
 	 * @throws Exception if validation fails or database error occurs
 	 */
-	public void saveAnimal(Animal animal, User owner, Long categoryId, InputStream uploadedImageStream) throws Exception {
+	public void saveAnimal(Animal animal, User owner, Long categoryId,
+			StagedImage.Source uploadedImage, long uploadedImageSize) throws Exception {
 
 		if (owner == null) throw new IllegalStateException("משתמש לא מחובר");
 		if (categoryId == null) throw new IllegalStateException("לא נבחרה קטגוריה");
+		Geo.checkOptional(animal.getLatitude(), animal.getLongitude());
 
+		StagedImage upload = null;
 		EntityManager em = emf.createEntityManager();
 		EntityTransaction tx = em.getTransaction();
 		try {
 			Category cat = em.find(Category.class, categoryId);
 			if (cat == null) throw new IllegalStateException("קטגוריה לא נמצאה");
 
-
-
-			/*This section takes the image that the user uploaded (InputStream), 
-			  reads it into memory, and converts it to a byte array (byte[]) that can be stored in a table
-			 */
-			byte[] blob = null;
-			if (uploadedImageStream != null) {
-				try (InputStream in = uploadedImageStream;
-						ByteArrayOutputStream buf = new ByteArrayOutputStream()) {
-					byte[] data = new byte[2048];
-					int n;
-					while ((n = in.read(data)) != -1) buf.write(data, 0, n);
-					blob = buf.toByteArray();
+			//Receive the upload into a temp file, produce the renditions and store their bytes - all outside the transaction.
+			//If the transaction fails later, the stored blobs are unreferenced and the periodic GC sweep removes them.
+			List<ImagePipeline.Rendered> renditions = Collections.emptyList();
+			List<String> keys = new ArrayList<>();
+			if (uploadedImage != null) {
+				upload = StagedImage.receive(uploadedImage, uploadedImageSize);
+				renditions = imagePipeline.render(upload);
+				for (ImagePipeline.Rendered r : renditions) {
+					try (InputStream in = r.openStream()) {
+						keys.add(blobStore.put(in));
+					}
 				}
 			}
 
@@ -175,16 +593,28 @@ public class AnimalService {
 			animal.setOwner(owner);
 			animal.setCategory(cat);
 			animal.setTimestamp(LocalDateTime.now());
-			if (blob != null && blob.length > 0) animal.setImageBlob(blob);
+			animal.setHasImage(!renditions.isEmpty());
 			em.persist(animal);
+			//The image metadata goes to its own table, keyed by the (now generated) animal id + rendition
+			for (int i = 0; i < renditions.size(); i++) {
+				ImagePipeline.Rendered r = renditions.get(i);
+				em.persist(new AnimalImage(animal, r.getRendition(), r.getContentType(),
+						keys.get(i), r.getSize(), r.getWidth(), r.getHeight()));
+			}
 			tx.commit();
+			//indexes first, so a search that repopulates the cache already sees the new animal
+			CatalogEvents.fireAdded(animal);
+			searchCache.invalidateCategory(categoryId);
 			
 		} catch (Exception e) {
 			
 			if (tx.isActive()) tx.rollback();
 			throw e;
 			
-		} finally { em.close(); }
+		} finally {
+			em.close();
+			if (upload != null) upload.close();
+		}
 	}
 
 	
@@ -193,7 +623,8 @@ public class AnimalService {
 	
 	/**
 	 * Delete an animal only if it belongs to the given owner.
-	 * Also deletes related Favorites and Messages before removing the animal.
+	 * Also deletes related Favorites, Messages and the image rows before removing the animal, and records a tombstone;
+	 * the image bytes are removed from the blob store in the background once no other row uses them.
 	 *
 	 * @param animalId the ID of the animal to delete
 	 * @param ownerId the ID of the user attempting the deletion
@@ -223,13 +654,37 @@ public class AnimalService {
 	          .setParameter("aid", animalId)
 	          .executeUpdate();
 
+	        //unread messages about the animal, per recipient: taken off the unread counters after the commit
+	        List<Object[]> unread = em.createQuery(
+	            "SELECT m.recipient.id, COUNT(m) FROM Message m WHERE m.animal.id = :aid AND m.isRead = false " +
+	            "GROUP BY m.recipient.id", Object[].class)
+	          .setParameter("aid", animalId)
+	          .getResultList();
+
 	        em.createQuery("DELETE FROM Message m WHERE m.animal.id = :aid")
 	          .setParameter("aid", animalId)
 	          .executeUpdate();
 
+	        List<String> blobKeys = em.createQuery(
+	            "SELECT i.blobKey FROM AnimalImage i WHERE i.id.animalId = :aid", String.class)
+	          .setParameter("aid", animalId)
+	          .getResultList();
+
+	        em.createQuery("DELETE FROM AnimalImage i WHERE i.id.animalId = :aid")
+	          .setParameter("aid", animalId)
+	          .executeUpdate();
+
+	        Long categoryId = (a.getCategory() != null) ? a.getCategory().getId() : null;
 	        em.remove(em.contains(a) ? a : em.merge(a));
 
+	        //lets the incremental export report the deletion
+	        em.persist(new AnimalTombstone(animalId, categoryId));
+
 	        tx.commit();
+	        CatalogEvents.fireDeleted(animalId, categoryId);
+	        for (Object[] r : unread) UnreadCounters.get().add((Long) r[0], -((Long) r[1]).intValue());
+	        searchCache.invalidateCategory(categoryId);
+	        BlobGarbageCollector.collectAsync(blobKeys);
 	        return true;
 	    } catch (Exception e) {
 	        if (tx.isActive()) tx.rollback();
@@ -243,36 +698,22 @@ public class AnimalService {
 
 	
 	/**
-	 * Retrieve all animals owned by the given user, ordered by timestamp (newest first).
-	 * Optionally converts image blobs to Base64 for display in the UI.
+	 * Retrieve all animals owned by the given user as card projections, ordered by timestamp (newest first).
 	 *
 	 * @param ownerId the ID of the user whose animals to retrieve
-	 * @param withBase64 whether to convert image data to Base64 for rendering
 	 * @return list of animals owned by the user (empty list if ownerId is null)
 	 */
-	public List<Animal> listByOwner(Long ownerId, boolean withBase64) {
+	public List<AnimalCard> listByOwner(Long ownerId) {
 	    if (ownerId == null) return java.util.Collections.emptyList();
 	    EntityManager em = emf.createEntityManager();
 	    try {
-	        List<Animal> list = em.createQuery(
-	            "SELECT a FROM Animal a " +
-	            "JOIN FETCH a.category " +
-	            "JOIN FETCH a.owner " +
+	        return em.createQuery(CARD_SELECT +
+	            "FROM Animal a " +
+	            "LEFT JOIN a.category c " +
 	            "WHERE a.owner.id = :ownerId " +
-	            "ORDER BY a.timestamp DESC", Animal.class)
+	            "ORDER BY a.timestamp DESC", AnimalCard.class)
 	            .setParameter("ownerId", ownerId)
 	            .getResultList();
-
-	        if (!withBase64) return list;
-
-	        for (Animal a : list) {
-	            if (a.getImageBlob() != null && a.getImageBlob().length > 0) {
-	                a.setImageBase64(java.util.Base64.getEncoder().encodeToString(a.getImageBlob()));
-	            } else {
-	                a.setImageBase64(null);
-	            }
-	        }
-	        return list;
 	    } finally {
 	        em.close();
 	    }
@@ -0,0 +1,58 @@
+package com.petpal.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+
+
+/**
+ * Application settings read from "petpal.properties" on the classpath (src/main/resources).
+ * Any key can be overridden at deploy time with a JVM system property of the same name,
+ * e.g. -Dupload.maxBytes=20971520.
+ */
+//================================================ App Config ===================================================================//
+
+public final class AppConfig {
+
+	private static final String FILE = "petpal.properties";
+
+	private static final Properties PROPS = load();
+
+
+	private AppConfig() {}
+
+
+	private static Properties load() {
+		Properties p = new Properties();
+		try (InputStream in = AppConfig.class.getClassLoader().getResourceAsStream(FILE)) {
+			if (in != null) p.load(in);
+		} catch (IOException e) {
+			System.err.println("⚠ Could not read " + FILE + ": " + e.getMessage());
+		}
+		return p;
+	}
+
+
+	/**
+	 * @param key setting name
+	 * @param def value used when the setting is missing
+	 * @return system property, else the value in petpal.properties, else def
+	 */
+	public static String get(String key, String def) {
+		String v = System.getProperty(key);
+		if (v == null) v = PROPS.getProperty(key);
+		return (v == null || v.trim().isEmpty()) ? def : v.trim();
+	}
+
+	public static int getInt(String key, int def) {
+		try { return Integer.parseInt(get(key, String.valueOf(def))); }
+		catch (NumberFormatException e) { return def; }
+	}
+
+	public static long getLong(String key, long def) {
+		try { return Long.parseLong(get(key, String.valueOf(def))); }
+		catch (NumberFormatException e) { return def; }
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,157 @@
+package com.petpal.service;
+
+import javax.persistence.EntityManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+
+/**
+ * Removes blobs that no animal_images row references any more.
+ *
+ * Two paths:
+ *  - {@link #collectAsync(Collection)}: after an animal is deleted, its former keys are checked in the background
+ *    and deleted right away if unreferenced.
+ *  - {@link #start()}: a periodic full sweep of the store catches anything the first path missed
+ *    (crashes, failed uploads that stored bytes but rolled back).
+ *
+ * A blob written or reused within the grace period (blobstore.gc.graceMinutes) is never deleted:
+ * its upload may have stored the bytes but not committed its row yet.
+ */
+//=========================================== Blob Garbage Collector ============================================================//
+
+public final class BlobGarbageCollector {
+
+	private static final Logger LOG = Logger.getLogger(BlobGarbageCollector.class.getName());
+
+	private static final long GRACE_MILLIS =
+			TimeUnit.MINUTES.toMillis(AppConfig.getLong("blobstore.gc.graceMinutes", 60));
+
+	private static final long SWEEP_INTERVAL_MINUTES = AppConfig.getLong("blobstore.gc.intervalMinutes", 360);
+
+	/** Keys checked against the DB per query */
+	private static final int BATCH_SIZE = 500;
+
+	private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "petpal-blob-gc");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private BlobGarbageCollector() {}
+
+
+
+	//***************************************** Lifecycle *********************************************//
+
+	/** Schedule the periodic sweep (called once at application startup) */
+	public static void start() {
+		EXECUTOR.scheduleWithFixedDelay(BlobGarbageCollector::sweepQuietly,
+				SWEEP_INTERVAL_MINUTES, SWEEP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+	}
+
+	/** Stop the background thread (called at application shutdown) */
+	public static void stop() {
+		EXECUTOR.shutdownNow();
+	}
+
+
+
+	//***************************************** Collection *********************************************//
+
+	/**
+	 * Check the given keys in the background and delete the ones no row references.
+	 * Call after the transaction that removed the references has committed.
+	 */
+	public static void collectAsync(Collection<String> keys) {
+		if (keys == null || keys.isEmpty()) return;
+		List<String> copy = new ArrayList<>(keys);
+		try {
+			EXECUTOR.execute(() -> {
+				try {
+					deleteUnreferenced(copy);
+				} catch (Exception e) {
+					LOG.log(Level.WARNING, "Blob cleanup failed; the periodic sweep will retry", e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// shutting down - the next sweep takes care of them
+		}
+	}
+
+
+	/** Scan the whole store and delete every unreferenced blob older than the grace period */
+	public static int sweep() throws IOException {
+		BlobStore store = BlobStores.get();
+		List<String> batch = new ArrayList<>(BATCH_SIZE);
+		int[] deleted = {0};
+		store.forEachKeyOlderThan(GRACE_MILLIS, key -> {
+			batch.add(key);
+			if (batch.size() == BATCH_SIZE) {
+				deleted[0] += deleteUnreferenced(batch);
+				batch.clear();
+			}
+		});
+		if (!batch.isEmpty()) deleted[0] += deleteUnreferenced(batch);
+		return deleted[0];
+	}
+
+
+
+	//***************************************** Helpers *********************************************//
+
+	private static void sweepQuietly() {
+		try {
+			int n = sweep();
+			if (n > 0) LOG.info("Blob sweep deleted " + n + " unreferenced blob(s)");
+		} catch (Exception e) {
+			LOG.log(Level.WARNING, "Blob sweep failed", e);
+		}
+	}
+
+
+	/** Delete the keys (at most BATCH_SIZE) that are unreferenced and outside the grace period */
+	private static int deleteUnreferenced(List<String> keys) {
+		Set<String> referenced = referencedKeys(keys);
+		BlobStore store = BlobStores.get();
+		long cutoff = System.currentTimeMillis() - GRACE_MILLIS;
+		int deleted = 0;
+		for (String key : keys) {
+			if (referenced.contains(key)) continue;
+			try {
+				long modified = store.lastModified(key);
+				if (modified < 0 || modified >= cutoff) continue;
+				store.delete(key);
+				deleted++;
+			} catch (IOException e) {
+				LOG.log(Level.WARNING, "Cannot delete blob " + key, e);
+			}
+		}
+		return deleted;
+	}
+
+
+	private static Set<String> referencedKeys(List<String> keys) {
+		EntityManager em = PersistenceManager.createEntityManager();
+		try {
+			return new HashSet<>(em.createQuery(
+					"SELECT DISTINCT i.blobKey FROM AnimalImage i WHERE i.blobKey IN :keys", String.class)
+					.setParameter("keys", keys)
+					.getResultList());
+		} finally {
+			em.close();
+		}
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,57 @@
+package com.petpal.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.Consumer;
+
+
+
+/**
+ * Storage for image bytes, addressed by content: the key of a blob is the SHA-256 of its bytes,
+ * so identical files are stored once no matter how many animals use them.
+ *
+ * The database keeps only the key (animal_images.blob_key); the bytes live in the store.
+ * The implementation is chosen by the "blobstore.class" setting (see {@link BlobStores}).
+ */
+//================================================ Blob Store ===================================================================//
+
+public interface BlobStore {
+
+	/**
+	 * Store the bytes of the stream (deduplicated by content).
+	 *
+	 * @param in data to store (read to the end, not closed)
+	 * @return the content key (lower-case hex SHA-256)
+	 */
+	String put(InputStream in) throws IOException;
+
+	/** @return true if a blob with this key exists */
+	boolean exists(String key);
+
+	/** @return size in bytes of the blob, or -1 if it does not exist */
+	long size(String key) throws IOException;
+
+	/** @return last write/reuse time of the blob (epoch millis), or -1 if it does not exist */
+	long lastModified(String key) throws IOException;
+
+	/** Open the blob for reading (caller closes) */
+	InputStream open(String key) throws IOException;
+
+	/**
+	 * Copy the whole blob to the target channel, zero-copy where the platform allows it.
+	 *
+	 * @return number of bytes transferred
+	 */
+	long transferTo(String key, WritableByteChannel target) throws IOException;
+
+	/** Delete a blob; no-op if missing */
+	void delete(String key) throws IOException;
+
+	/**
+	 * Visit every stored key that was last written or reused more than graceMillis ago
+	 * (newer blobs may belong to an upload that has not committed yet).
+	 */
+	void forEachKeyOlderThan(long graceMillis, Consumer<String> visitor) throws IOException;
+}
+//===============================================================================================================================//
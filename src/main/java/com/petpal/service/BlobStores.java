@@ -0,0 +1,37 @@
+package com.petpal.service;
+
+
+
+/**
+ * Holder of the application's {@link BlobStore}.
+ * The implementation class is read from the "blobstore.class" setting (petpal.properties);
+ * it must have a public no-argument constructor. Default: {@link FileSystemBlobStore}.
+ */
+//================================================ Blob Stores ==================================================================//
+
+public final class BlobStores {
+
+	private BlobStores() {}
+
+
+	private static final class Holder {
+		private static final BlobStore STORE = create();
+	}
+
+
+	/** @return the configured blob store (created on first use) */
+	public static BlobStore get() {
+		return Holder.STORE;
+	}
+
+
+	private static BlobStore create() {
+		String impl = AppConfig.get("blobstore.class", FileSystemBlobStore.class.getName());
+		try {
+			return (BlobStore) Class.forName(impl).getConstructor().newInstance();
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			throw new IllegalStateException("Cannot create blob store " + impl, e);
+		}
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,59 @@
+package com.petpal.service;
+
+import com.petpal.model.Animal;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+
+/**
+ * Application-wide registry of {@link CatalogListener}s, notified by {@link AnimalService} after each commit.
+ * A failing listener is logged and skipped; it never fails the user's request or the other listeners.
+ */
+//============================================== Catalog Events =================================================================//
+
+public final class CatalogEvents {
+
+	private static final Logger LOG = Logger.getLogger(CatalogEvents.class.getName());
+
+	private static final CopyOnWriteArrayList<CatalogListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+
+	private CatalogEvents() {}
+
+
+	public static void addListener(CatalogListener listener) {
+		LISTENERS.addIfAbsent(listener);
+	}
+
+	public static void removeListener(CatalogListener listener) {
+		LISTENERS.remove(listener);
+	}
+
+
+
+	//***************************************** Firing *********************************************//
+
+	static void fireAdded(Animal animal) {
+		for (CatalogListener l : LISTENERS) {
+			try {
+				l.animalAdded(animal);
+			} catch (RuntimeException e) {
+				LOG.log(Level.WARNING, "Catalog listener failed: " + l, e);
+			}
+		}
+	}
+
+	static void fireDeleted(Long animalId, Long categoryId) {
+		for (CatalogListener l : LISTENERS) {
+			try {
+				l.animalDeleted(animalId, categoryId);
+			} catch (RuntimeException e) {
+				LOG.log(Level.WARNING, "Catalog listener failed: " + l, e);
+			}
+		}
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,33 @@
+package com.petpal.service;
+
+import com.petpal.model.Animal;
+
+
+
+/**
+ * Receives changes to the animal catalog, after the changing transaction has committed.
+ * Register with {@link CatalogEvents#addListener(CatalogListener)}.
+ *
+ * Called on the request thread that made the change, so implementations must be quick
+ * (hand heavy work to a background thread) and thread-safe.
+ */
+//============================================= Catalog Listener ================================================================//
+
+public interface CatalogListener {
+
+	/**
+	 * An animal was added.
+	 *
+	 * @param animal the saved animal (detached; id, category and owner are set)
+	 */
+	default void animalAdded(Animal animal) {}
+
+	/**
+	 * An animal was deleted.
+	 *
+	 * @param animalId id of the deleted animal
+	 * @param categoryId its category (may be null)
+	 */
+	default void animalDeleted(Long animalId, Long categoryId) {}
+}
+//===============================================================================================================================//
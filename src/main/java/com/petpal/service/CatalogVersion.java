@@ -0,0 +1,45 @@
+package com.petpal.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+
+
+/**
+ * Cheap fingerprint of the animal catalog, used for ETag / Last-Modified of the export.
+ *
+ * Animals are only ever inserted or deleted (never edited), and every delete writes a tombstone, so
+ * (highest animal id, highest tombstone id) changes exactly when the catalog changes.
+ * Both are single index lookups (MAX over a primary key).
+ */
+//============================================= Catalog Version =================================================================//
+
+public final class CatalogVersion {
+
+	private final long maxAnimalId;
+	private final long maxTombstoneId;
+	private final long lastModified;
+
+
+	CatalogVersion(Long maxAnimalId, Long maxTombstoneId, LocalDateTime lastInsert, LocalDateTime lastDelete) {
+		this.maxAnimalId = (maxAnimalId != null) ? maxAnimalId : 0L;
+		this.maxTombstoneId = (maxTombstoneId != null) ? maxTombstoneId : 0L;
+		this.lastModified = Math.max(toMillis(lastInsert), toMillis(lastDelete));
+	}
+
+	private static long toMillis(LocalDateTime t) {
+		return (t != null) ? t.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0L;
+	}
+
+
+	/** Opaque token that changes whenever an animal is added or deleted */
+	public String getTag() {
+		return maxAnimalId + "." + maxTombstoneId;
+	}
+
+	/** Time of the latest insert or delete (epoch millis), 0 if the catalog was never changed */
+	public long getLastModified() {
+		return lastModified;
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,52 @@
+package com.petpal.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+
+
+/**
+ * Resume position of the incremental export: every change up to and including {@link #getWatermark()}
+ * has been delivered. Travels to the client as an opaque URL-safe token; clients must not parse it.
+ */
+//=============================================== Change Cursor =================================================================//
+
+public final class ChangeCursor {
+
+	private static final String VERSION = "v1:";
+
+	private final LocalDateTime watermark;
+
+
+	public ChangeCursor(LocalDateTime watermark) {
+		this.watermark = watermark;
+	}
+
+	public LocalDateTime getWatermark() { return watermark; }
+
+
+	/** @return the opaque token for this cursor */
+	public String encode() {
+		byte[] raw = (VERSION + watermark).getBytes(StandardCharsets.UTF_8);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+	}
+
+
+	/**
+	 * @param token a token produced by {@link #encode()}
+	 * @return the cursor
+	 * @throws IllegalArgumentException if the token is malformed
+	 */
+	public static ChangeCursor decode(String token) {
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+			if (!raw.startsWith(VERSION)) throw new IllegalArgumentException("Invalid cursor");
+			return new ChangeCursor(LocalDateTime.parse(raw.substring(VERSION.length())));
+		} catch (DateTimeParseException e) {
+			throw new IllegalArgumentException("Invalid cursor", e);
+		}
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,116 @@
+package com.petpal.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+
+/**
+ * RFC 4180 CSV in UTF-8 (the shape written by the CSV export): a header row with the column names,
+ * then one record per line. Quoted values may contain commas, doubled quotes and line breaks;
+ * CRLF and LF line ends are both accepted, and a leading byte-order mark is skipped.
+ */
+//============================================= CSV Import Reader ===============================================================//
+
+class CsvImportReader implements ImportReader {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Reader in;
+	private final List<String> header;
+	private final StringBuilder value = new StringBuilder(64);
+	private int recordNumber;
+	private boolean eof;
+
+
+	CsvImportReader(InputStream stream) throws IOException {
+		in = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+		in.mark(1);
+		if (in.read() != '\uFEFF') in.reset();
+
+		header = readRecord();
+		if (header == null) throw new IllegalArgumentException("Empty file: a header row is required");
+		for (int i = 0; i < header.size(); i++) header.set(i, header.get(i).trim());
+	}
+
+
+	@Override
+	public Map<String, String> next() throws IOException {
+		List<String> values;
+		do {
+			values = readRecord();
+			if (values == null) return null;
+		} while (values.size() == 1 && values.get(0).isEmpty()); // blank line
+
+		recordNumber++;
+		Map<String, String> record = new HashMap<>(header.size() * 2);
+		for (int i = 0; i < header.size() && i < values.size(); i++) {
+			record.put(header.get(i), values.get(i));
+		}
+		return record;
+	}
+
+	@Override
+	public int getRecordNumber() {
+		return recordNumber;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+
+	/** The values of the next physical record (may span lines inside quotes), or null at the end */
+	private List<String> readRecord() throws IOException {
+		if (eof) return null;
+		List<String> values = new ArrayList<>();
+		value.setLength(0);
+		boolean quoted = false;
+		boolean any = false;
+
+		int c;
+		while ((c = in.read()) != -1) {
+			any = true;
+			char ch = (char) c;
+			if (quoted) {
+				if (ch != '"') {
+					value.append(ch);
+					continue;
+				}
+				in.mark(1);
+				if (in.read() == '"') {
+					value.append('"');
+				} else {
+					in.reset();
+					quoted = false;
+				}
+			} else if (ch == '"' && value.length() == 0) {
+				quoted = true;
+			} else if (ch == ',') {
+				values.add(value.toString());
+				value.setLength(0);
+			} else if (ch == '\n') {
+				values.add(value.toString());
+				return values;
+			} else if (ch != '\r') {
+				value.append(ch);
+			}
+		}
+
+		eof = true;
+		if (quoted) throw new IllegalArgumentException("Unterminated quoted value in record " + (recordNumber + 1));
+		if (!any) return null;
+		values.add(value.toString());
+		return values;
+	}
+}
+//===============================================================================================================================//
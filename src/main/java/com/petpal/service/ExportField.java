@@ -0,0 +1,80 @@
+package com.petpal.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+
+/**
+ * The columns an animal export can contain, in their default order.
+ * Without a field selection an export has the original columns of the XML export ({@link #DEFAULTS});
+ * shortDescription and hasImage come only when asked for. Each field knows its public name (used in the "fields" parameter and as the column/element name)
+ * and the JPQL expression that reads it ("Animal a JOIN a.category c JOIN a.owner o").
+ */
+//=============================================== Export Field ==================================================================//
+
+public enum ExportField {
+
+	ID("id", "a.id"),
+	NAME("name", "a.name"),
+	CATEGORY("category", "c.name"),
+	GENDER("gender", "a.gender"),
+	AGE("age", "a.age"),
+	OWNER("owner", "o.username"),
+	SHORT_DESCRIPTION("shortDescription", "a.shortDescription"),
+	HAS_IMAGE("hasImage", "a.hasImage"),
+	TIMESTAMP("timestamp", "a.timestamp");
+
+
+	/** The columns of an export without a field selection, as the XML export always had them */
+	public static final List<ExportField> DEFAULTS = Collections.unmodifiableList(
+			Arrays.asList(ID, NAME, CATEGORY, GENDER, AGE, OWNER, TIMESTAMP));
+
+
+	private final String fieldName;
+	private final String expression;
+
+	ExportField(String fieldName, String expression) {
+		this.fieldName = fieldName;
+		this.expression = expression;
+	}
+
+	/** Public name, e.g. "shortDescription" */
+	public String getFieldName() { return fieldName; }
+
+	/** JPQL select expression */
+	String getExpression() { return expression; }
+
+
+
+	/**
+	 * Parse a comma-separated field list ("id,name,age").
+	 *
+	 * @param csv field names (null/blank = the {@link #DEFAULTS})
+	 * @return the fields in the requested order, without duplicates
+	 * @throws IllegalArgumentException on an unknown field name
+	 */
+	public static List<ExportField> parseList(String csv) {
+		if (csv == null || csv.trim().isEmpty()) return DEFAULTS;
+		List<ExportField> out = new ArrayList<>();
+		for (String part : csv.split(",")) {
+			String name = part.trim();
+			if (name.isEmpty()) continue;
+			ExportField f = byName(name);
+			if (f == null) throw new IllegalArgumentException("Unknown field: " + name);
+			if (!out.contains(f)) out.add(f);
+		}
+		if (out.isEmpty()) throw new IllegalArgumentException("No fields selected");
+		return out;
+	}
+
+	private static ExportField byName(String name) {
+		for (ExportField f : values()) {
+			if (f.fieldName.equalsIgnoreCase(name)) return f;
+		}
+		return null;
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,84 @@
+package com.petpal.service;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+
+
+/**
+ * How many animals each filter choice would give, shown next to the choices in the filter bar.
+ * Every facet is counted under all the other active filters, but not its own
+ * (the category counts ignore the selected category, and so on), so the numbers say what picking that value gives.
+ */
+//=============================================== Facet Counts ==================================================================//
+
+public final class FacetCounts implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+
+	/** One age range of the age facet */
+	public static final class AgeBucket implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final String label;
+		private final int minAge;
+		private final Integer maxAge;
+		private final int count;
+
+		AgeBucket(String label, int minAge, Integer maxAge, int count) {
+			this.label = label;
+			this.minAge = minAge;
+			this.maxAge = maxAge;
+			this.count = count;
+		}
+
+		public String getLabel() { return label; }
+		public int getMinAge() { return minAge; }
+		/** null = no upper bound */
+		public Integer getMaxAge() { return maxAge; }
+		public int getCount() { return count; }
+	}
+
+
+	private final int total;
+	private final Map<Long, Integer> categories;
+	private final Map<String, Integer> genders;
+	private final List<AgeBucket> ages;
+
+
+	FacetCounts(int total, Map<Long, Integer> categories, Map<String, Integer> genders, List<AgeBucket> ages) {
+		this.total = total;
+		this.categories = Collections.unmodifiableMap(categories);
+		this.genders = Collections.unmodifiableMap(genders);
+		this.ages = Collections.unmodifiableList(ages);
+	}
+
+
+	/** Animals matching all active filters */
+	public int getTotal() { return total; }
+
+	/** @return matches if this category were selected (0 for a category without matches) */
+	public int categoryCount(Long categoryId) {
+		Integer n = (categoryId != null) ? categories.get(categoryId) : null;
+		return (n != null) ? n : 0;
+	}
+
+	/** @return matches if this gender (Hebrew label) were selected */
+	public int genderCount(String gender) {
+		Integer n = (gender != null) ? genders.get(gender) : null;
+		return (n != null) ? n : 0;
+	}
+
+	/** Category id → count, for categories with at least one match */
+	public Map<Long, Integer> getCategories() { return categories; }
+
+	/** Gender label → count */
+	public Map<String, Integer> getGenders() { return genders; }
+
+	/** Age buckets in ascending order, with counts */
+	public List<AgeBucket> getAges() { return ages; }
+}
+//===============================================================================================================================//
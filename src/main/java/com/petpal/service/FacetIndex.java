@@ -0,0 +1,246 @@
+package com.petpal.service;
+
+import com.petpal.model.Animal;
+import com.petpal.model.GenderConverter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+
+
+/**
+ * In-memory bitmap index of the facet attributes (category, gender, age) of every animal,
+ * used to count the matches of each filter choice without a GROUP BY query per facet.
+ *
+ * How:
+ *  - Every animal gets a document number; one BitSet per category, per gender and per exact age
+ *    has a bit set for each animal with that value.
+ *  - A filter becomes the AND of the bitsets of its conditions (an age range = the OR of its ages);
+ *    a facet count is the cardinality of (filter without that facet) AND (facet value).
+ *  - A text query is turned into a bitset from all the {@link TextIndex} matches, a location into one from the
+ *    {@link GeoIndex} animals inside the radius.
+ *  - Loaded from the database on first use (or at startup), kept current by {@link CatalogListener} events.
+ *
+ * Notes:
+ *  - Document numbers of deleted animals are not reused; their bits are cleared.
+ *  - Reads share a read lock; updates take the write lock.
+ */
+//================================================ Facet Index ==================================================================//
+
+public final class FacetIndex implements CatalogListener {
+
+	private static final Logger LOG = Logger.getLogger(FacetIndex.class.getName());
+
+	private static final FacetIndex INSTANCE = new FacetIndex();
+
+	/** Age facet buckets: label, lowest age, highest age (null = open) */
+	private static final Object[][] AGE_BUCKETS = {
+			{ "עד שנה", 0, 1 },
+			{ "2–4", 2, 4 },
+			{ "5–8", 5, 8 },
+			{ "9+", 9, null },
+	};
+
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<Long, Integer> docByAnimal = new HashMap<>();
+	private long[] animalIds = new long[1024];
+	private int docCount;
+
+	private final BitSet live = new BitSet();
+	private final Map<Long, BitSet> byCategory = new HashMap<>();
+	private final Map<String, BitSet> byGender = new HashMap<>();
+	private final TreeMap<Integer, BitSet> byAge = new TreeMap<>();
+
+	private final LoadJournal journal = new LoadJournal(lock.writeLock());
+
+
+	private FacetIndex() {
+		CatalogEvents.addListener(this);
+	}
+
+	public static FacetIndex get() {
+		return INSTANCE;
+	}
+
+
+
+	//***************************************** Loading *********************************************//
+
+	/**
+	 * Build the index from the database unless already done.
+	 * Events fired while it scans are replayed (see {@link LoadJournal}).
+	 */
+	public void ensureLoaded() {
+		if (journal.isLoaded()) return;
+		long started = System.currentTimeMillis();
+		journal.load(() -> {
+			try {
+				new AnimalService().scanFacets(row ->
+						addLocked((Long) row[0], (Long) row[1], (String) row[2], (Integer) row[3]));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, () -> LOG.info("Facet index: " + docByAnimal.size() + " animals in "
+				+ (System.currentTimeMillis() - started) + " ms"));
+	}
+
+
+
+	//***************************************** Updates *********************************************//
+
+	@Override
+	public void animalAdded(Animal animal) {
+		Long categoryId = (animal.getCategory() != null) ? animal.getCategory().getId() : null;
+		journal.apply(() -> addLocked(animal.getId(), categoryId, animal.getGender(), animal.getAge()));
+	}
+
+	@Override
+	public void animalDeleted(Long animalId, Long categoryId) {
+		journal.apply(() -> removeLocked(animalId));
+	}
+
+
+	private void addLocked(long animalId, Long categoryId, String gender, int age) {
+		removeLocked(animalId);
+		if (docCount == animalIds.length) animalIds = Arrays.copyOf(animalIds, docCount * 2);
+		int doc = docCount++;
+		animalIds[doc] = animalId;
+		docByAnimal.put(animalId, doc);
+
+		live.set(doc);
+		if (categoryId != null) byCategory.computeIfAbsent(categoryId, k -> new BitSet()).set(doc);
+		if (gender != null) byGender.computeIfAbsent(gender, k -> new BitSet()).set(doc);
+		byAge.computeIfAbsent(age, k -> new BitSet()).set(doc);
+	}
+
+	private void removeLocked(long animalId) {
+		Integer doc = docByAnimal.remove(animalId);
+		if (doc == null) return;
+		live.clear(doc);
+		for (BitSet b : byCategory.values()) b.clear(doc);
+		for (BitSet b : byGender.values()) b.clear(doc);
+		for (BitSet b : byAge.values()) b.clear(doc);
+	}
+
+
+
+	//***************************************** Counting *********************************************//
+
+	/**
+	 * Facet counts under the filter (its sort order is irrelevant).
+	 */
+	public FacetCounts count(AnimalFilter filter) {
+		ensureLoaded();
+
+		// Text hits and animals in the radius first (outside the lock - those indexes have their own)
+		long[] textIds = null;
+		if (filter.getQuery() != null) {
+			textIds = TextIndex.get().matches(filter.getQuery());
+		}
+		long[] nearIds = null;
+		if (filter.hasLocation()) { // nearest first without a radius still shows only located animals
+			double km = (filter.getRadiusKm() != null) ? filter.getRadiusKm() : Geo.MAX_DISTANCE_KM;
+			nearIds = GeoIndex.get().within(filter.getLatitude(), filter.getLongitude(), km).ids;
+		}
+
+		lock.readLock().lock();
+		try {
+			BitSet base = (BitSet) live.clone();
+			if (textIds != null) base.and(docs(textIds));
+			if (nearIds != null) base.and(docs(nearIds));
+
+			BitSet category = (filter.getCategoryId() != null) ? bits(byCategory.get(filter.getCategoryId())) : null;
+			BitSet gender = (filter.getGender() != null) ? bits(byGender.get(filter.getGender())) : null;
+			BitSet age = (filter.getMinAge() != null || filter.getMaxAge() != null)
+					? ageRange(filter.getMinAge(), filter.getMaxAge()) : null;
+
+			// total = all filters; each facet = all filters but its own
+			int total = and(base, category, gender, age).cardinality();
+
+			BitSet forCategory = and(base, null, gender, age);
+			Map<Long, Integer> categories = new HashMap<>();
+			for (Map.Entry<Long, BitSet> e : byCategory.entrySet()) {
+				int n = intersectionSize(forCategory, e.getValue());
+				if (n > 0) categories.put(e.getKey(), n);
+			}
+
+			BitSet forGender = and(base, category, null, age);
+			Map<String, Integer> genders = new LinkedHashMap<>();
+			for (String g : new String[] { GenderConverter.MALE, GenderConverter.FEMALE }) {
+				genders.put(g, intersectionSize(forGender, bits(byGender.get(g))));
+			}
+
+			BitSet forAge = and(base, category, gender, null);
+			List<FacetCounts.AgeBucket> ages = new ArrayList<>(AGE_BUCKETS.length);
+			for (Object[] b : AGE_BUCKETS) {
+				Integer min = (Integer) b[1];
+				Integer max = (Integer) b[2];
+				ages.add(new FacetCounts.AgeBucket((String) b[0], min, max,
+						intersectionSize(forAge, ageRange(min, max))));
+			}
+
+			return new FacetCounts(total, categories, genders, ages);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+
+	/** Documents of the animals (unknown ids are skipped) */
+	private BitSet docs(long[] animalIds) {
+		BitSet out = new BitSet(docCount);
+		for (long id : animalIds) {
+			Integer doc = docByAnimal.get(id);
+			if (doc != null) out.set(doc);
+		}
+		return out;
+	}
+
+	private static BitSet bits(BitSet b) {
+		return (b != null) ? b : new BitSet();
+	}
+
+	/** OR of the per-age bitsets in [min, max] (either bound may be null) */
+	private BitSet ageRange(Integer min, Integer max) {
+		Map<Integer, BitSet> range;
+		if (min != null && max != null) {
+			if (min > max) return new BitSet();
+			range = byAge.subMap(min, true, max, true);
+		} else if (min != null) {
+			range = byAge.tailMap(min, true);
+		} else {
+			range = byAge.headMap(max, true);
+		}
+		BitSet out = new BitSet();
+		for (BitSet b : range.values()) out.or(b);
+		return out;
+	}
+
+	/** base AND every non-null condition (a new bitset) */
+	private static BitSet and(BitSet base, BitSet a, BitSet b, BitSet c) {
+		BitSet out = (BitSet) base.clone();
+		if (a != null) out.and(a);
+		if (b != null) out.and(b);
+		if (c != null) out.and(c);
+		return out;
+	}
+
+	private static int intersectionSize(BitSet a, BitSet b) {
+		BitSet x = (BitSet) a.clone();
+		x.and(b);
+		return x.cardinality();
+	}
+}
+//===============================================================================================================================//
@@ -1,14 +1,14 @@
 package com.petpal.service;
 
 import com.petpal.model.Animal;
+import com.petpal.model.AnimalCard;
 import com.petpal.model.Favorite;
 import com.petpal.model.User;
 
 import javax.persistence.EntityManager;
-import javax.persistence.EntityManagerFactory;
-import javax.persistence.Persistence;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 
@@ -16,17 +16,15 @@ import java.util.List;
 /**
  * Service layer for managing Favorites.
  * Handles adding, removing, and retrieving user's favorite animals.
+ * Every committed change is also applied to the {@link SimilarAnimalsIndex}.
  */
 
 //============================================== Favorite Service ===============================================================//
 
 public class FavoriteService {
 
-	private static final EntityManagerFactory emf =
-			Persistence.createEntityManagerFactory("PetPalPU");
-
 	private EntityManager getEntityManager() {
-		return emf.createEntityManager();
+		return PersistenceManager.createEntityManager();
 	}
 
 
@@ -66,6 +64,7 @@ public class FavoriteService {
 			}
 
 			em.getTransaction().commit();
+			if (!exists) SimilarAnimalsIndex.get().favoriteAdded(userId, animalId);
 		} catch (Exception e) {
 			em.getTransaction().rollback();
 			e.printStackTrace();
@@ -108,6 +107,7 @@ public class FavoriteService {
 			}
 
 			em.getTransaction().commit();
+			if (!favorites.isEmpty()) SimilarAnimalsIndex.get().favoriteRemoved(userId, animalId);
 		} catch (Exception e) {
 			em.getTransaction().rollback();
 			e.printStackTrace();
@@ -117,19 +117,20 @@ public class FavoriteService {
 	}
 
 	/**
-     * Retrieves all favorite entries (Favorite objects) for a given user.
-     *
-     * @param userId the user ID
-     * @return list of Favorite entities
-     */	public List<Favorite> getFavoritesByUser(Long userId) {
+	 * Retrieves the animals the given user marked as favorites, as card projections
+	 * (most recently saved first). Reads only the columns a card renders.
+	 *
+	 * @param userId the user ID
+	 * @return list of animal cards (empty if the user has no favorites)
+	 */
+	public List<AnimalCard> getFavoriteCardsByUser(Long userId) {
 		EntityManager em = getEntityManager();
 		try {
-			User user = em.find(User.class, userId);
-			if (user == null) {
-				return new ArrayList<>();
-			}
-			return em.createQuery("SELECT f FROM Favorite f WHERE f.user = :user", Favorite.class)
-					.setParameter("user", user)
+			return em.createQuery(AnimalService.CARD_SELECT +
+					"FROM Favorite f JOIN f.animal a LEFT JOIN a.category c " +
+					"WHERE f.user.id = :userId " +
+					"ORDER BY f.timestamp DESC", AnimalCard.class)
+					.setParameter("userId", userId)
 					.getResultList();
 		} finally {
 			em.close();
@@ -137,6 +138,25 @@ public class FavoriteService {
 	}
 
 
+	/**
+	 * "People who saved this also saved…": the animals most often saved together with the given one,
+	 * as card projections (best first). Answered from the in-memory {@link SimilarAnimalsIndex};
+	 * only the cards are read from the database.
+	 *
+	 * @param animalId the animal ID
+	 * @param limit    most cards returned
+	 * @return list of animal cards (empty if nobody saved the animal together with another one)
+	 */
+	public List<AnimalCard> getSimilarCards(Long animalId, int limit) {
+		if (animalId == null || limit <= 0) return Collections.emptyList();
+		long[] ids = SimilarAnimalsIndex.get().similar(animalId, limit);
+		if (ids.length == 0) return Collections.emptyList();
+		List<Long> list = new ArrayList<>(ids.length);
+		for (long id : ids) list.add(id);
+		return new AnimalService().findCards(list);
+	}
+
+
      /**
       * Retrieves only the animals that the given user has marked as favorites.
       *
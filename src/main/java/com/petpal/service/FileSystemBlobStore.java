@@ -0,0 +1,200 @@
+package com.petpal.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+
+
+/**
+ * {@link BlobStore} on the local file system.
+ *
+ * Layout: {root}/ab/cd/abcdef...  (two directory levels from the hash keep directories small)
+ *         {root}/tmp/             (files being written; moved into place atomically when complete)
+ *
+ * Notes:
+ *  - The root is the "blobstore.dir" setting (default: ~/petpal-blobs).
+ *  - Writing an existing blob only refreshes its modification time; the garbage collector
+ *    treats recently touched blobs as in use (see {@link BlobGarbageCollector}).
+ *  - Reads use FileChannel.transferTo, letting the OS copy file pages to the socket without a user-space buffer.
+ */
+//=========================================== File System Blob Store ============================================================//
+
+public class FileSystemBlobStore implements BlobStore {
+
+	private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}");
+
+	private final Path root;
+	private final Path tmp;
+
+
+	public FileSystemBlobStore() {
+		this(Paths.get(AppConfig.get("blobstore.dir",
+				Paths.get(System.getProperty("user.home"), "petpal-blobs").toString())));
+	}
+
+	public FileSystemBlobStore(Path root) {
+		this.root = root.toAbsolutePath();
+		this.tmp = this.root.resolve("tmp");
+		try {
+			Files.createDirectories(tmp);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot create blob store directory " + tmp, e);
+		}
+	}
+
+
+
+	//***************************************** Write *********************************************//
+
+	@Override
+	public String put(InputStream in) throws IOException {
+		MessageDigest sha = sha256();
+		Path partial = Files.createTempFile(tmp, "blob-", ".part");
+		try {
+			try (DigestInputStream din = new DigestInputStream(in, sha)) {
+				Files.copy(din, partial, StandardCopyOption.REPLACE_EXISTING);
+			}
+			String key = toHex(sha.digest());
+			Path target = pathOf(key);
+
+			if (Files.exists(target)) {
+				// duplicate content: keep the existing file, mark it as recently used
+				Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+				return key;
+			}
+			Files.createDirectories(target.getParent());
+			try {
+				Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(partial, target);
+			} catch (FileAlreadyExistsException e) {
+				// the same content was stored concurrently - fine
+			}
+			return key;
+		} finally {
+			Files.deleteIfExists(partial);
+		}
+	}
+
+
+
+	//***************************************** Read *********************************************//
+
+	@Override
+	public boolean exists(String key) {
+		return isKey(key) && Files.exists(pathOf(key));
+	}
+
+	@Override
+	public long size(String key) throws IOException {
+		if (!isKey(key)) return -1;
+		try {
+			return Files.size(pathOf(key));
+		} catch (NoSuchFileException e) {
+			return -1;
+		}
+	}
+
+	@Override
+	public long lastModified(String key) throws IOException {
+		if (!isKey(key)) return -1;
+		try {
+			return Files.getLastModifiedTime(pathOf(key)).toMillis();
+		} catch (NoSuchFileException e) {
+			return -1;
+		}
+	}
+
+	@Override
+	public InputStream open(String key) throws IOException {
+		return Files.newInputStream(checked(key));
+	}
+
+	@Override
+	public long transferTo(String key, WritableByteChannel target) throws IOException {
+		try (FileChannel ch = FileChannel.open(checked(key), StandardOpenOption.READ)) {
+			long size = ch.size();
+			long pos = 0;
+			while (pos < size) {
+				pos += ch.transferTo(pos, size - pos, target);
+			}
+			return pos;
+		}
+	}
+
+
+
+	//***************************************** Delete / Scan *********************************************//
+
+	@Override
+	public void delete(String key) throws IOException {
+		if (isKey(key)) Files.deleteIfExists(pathOf(key));
+	}
+
+	@Override
+	public void forEachKeyOlderThan(long graceMillis, Consumer<String> visitor) throws IOException {
+		long cutoff = System.currentTimeMillis() - graceMillis;
+		try (Stream<Path> files = Files.walk(root, 3)) {
+			files.filter(p -> !p.startsWith(tmp))
+				.filter(p -> isKey(p.getFileName().toString()))
+				.filter(p -> {
+					try { return Files.getLastModifiedTime(p).toMillis() < cutoff; }
+					catch (IOException e) { return false; }
+				})
+				.forEach(p -> visitor.accept(p.getFileName().toString()));
+		}
+	}
+
+
+
+	//***************************************** Helpers *********************************************//
+
+	private Path pathOf(String key) {
+		return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+	}
+
+	/** Resolve a key, rejecting anything that is not a SHA-256 hex string (no path tricks) */
+	private Path checked(String key) throws IOException {
+		if (!isKey(key)) throw new NoSuchFileException(String.valueOf(key));
+		return pathOf(key);
+	}
+
+	private static boolean isKey(String key) {
+		return key != null && KEY.matcher(key).matches();
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,53 @@
+package com.petpal.service;
+
+
+
+/**
+ * Coordinates on the earth: validation and great-circle distance (WGS84 degrees, spherical earth).
+ */
+//==================================================== Geo ======================================================================//
+
+public final class Geo {
+
+	/** Mean earth radius */
+	public static final double EARTH_RADIUS_KM = 6371.0088;
+
+	/** Half the circumference: no two points are farther apart */
+	public static final double MAX_DISTANCE_KM = Math.PI * EARTH_RADIUS_KM;
+
+	/** Kilometres per degree of latitude (and of longitude at the equator) */
+	static final double KM_PER_DEGREE = MAX_DISTANCE_KM / 180;
+
+
+	private Geo() {}
+
+
+	/** Both coordinates given and within range */
+	public static boolean isValid(Double latitude, Double longitude) {
+		return latitude != null && longitude != null
+				&& latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180;
+	}
+
+	/**
+	 * Check an optional location as entered by a user: both coordinates or neither.
+	 *
+	 * @throws IllegalArgumentException (user-facing message) if only one is given or one is out of range
+	 */
+	public static void checkOptional(Double latitude, Double longitude) {
+		if (latitude == null && longitude == null) return;
+		if (!isValid(latitude, longitude)) {
+			throw new IllegalArgumentException("מיקום לא תקין: יש להזין קו רוחב (‎-90..90) וקו אורך (‎-180..180)");
+		}
+	}
+
+
+	/** Great-circle (haversine) distance in km */
+	public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+		double dLat = Math.toRadians(lat2 - lat1);
+		double dLon = Math.toRadians(lon2 - lon1);
+		double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+				+ Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+		return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,302 @@
+package com.petpal.service;
+
+import com.petpal.model.Animal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+
+
+/**
+ * In-memory spatial index of the animals that have a location: a geohash grid.
+ *
+ * How:
+ *  - Every located animal is filed under the 25-bit geohash of its position (12 latitude + 13 longitude bits,
+ *    interleaved as in a 5-character geohash: cells of about 5 x 5 km at the equator, narrower towards the poles).
+ *  - A "within R km" lookup enumerates the cells that overlap the bounding box of the circle, and keeps the animals
+ *    of those cells whose exact (haversine) distance is at most R; only those animals are ever measured.
+ *    When the box spans more cells than there are occupied cells, the occupied cells are scanned instead.
+ *  - Loaded from the database on first use (or at startup), kept current by {@link CatalogListener} events.
+ *
+ * Notes:
+ *  - Reads share a read lock; updates take the write lock.
+ */
+//================================================= Geo Index ===================================================================//
+
+public final class GeoIndex implements CatalogListener {
+
+	private static final Logger LOG = Logger.getLogger(GeoIndex.class.getName());
+
+	private static final GeoIndex INSTANCE = new GeoIndex();
+
+	private static final int LAT_BITS = 12;
+	private static final int LON_BITS = 13;
+	private static final int LAT_CELLS = 1 << LAT_BITS;
+	private static final int LON_CELLS = 1 << LON_BITS;
+
+
+	/** Position of one animal and its cell */
+	private static final class Located {
+		final double latitude;
+		final double longitude;
+		final long cell;
+
+		Located(double latitude, double longitude, long cell) {
+			this.latitude = latitude;
+			this.longitude = longitude;
+			this.cell = cell;
+		}
+	}
+
+	/** Animal ids of one cell (unordered) */
+	private static final class Cell {
+		long[] ids = new long[4];
+		int size;
+
+		void add(long id) {
+			if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+			ids[size++] = id;
+		}
+
+		void remove(long id) {
+			for (int i = 0; i < size; i++) {
+				if (ids[i] == id) {
+					ids[i] = ids[--size];
+					return;
+				}
+			}
+		}
+	}
+
+
+	/** Ids within a distance, with their distances (same order) */
+	static final class Nearby {
+		final long[] ids;
+		final double[] distancesKm;
+
+		Nearby(long[] ids, double[] distancesKm) {
+			this.ids = ids;
+			this.distancesKm = distancesKm;
+		}
+
+		int size() { return ids.length; }
+	}
+
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<Long, Located> byAnimal = new HashMap<>();
+	private final Map<Long, Cell> cells = new HashMap<>();
+
+	private final LoadJournal journal = new LoadJournal(lock.writeLock());
+
+
+	private GeoIndex() {
+		CatalogEvents.addListener(this);
+	}
+
+	public static GeoIndex get() {
+		return INSTANCE;
+	}
+
+
+
+	//***************************************** Loading *********************************************//
+
+	/**
+	 * Build the index from the database unless already done (catalog events that arrive meanwhile: {@link LoadJournal}).
+	 */
+	public void ensureLoaded() {
+		if (journal.isLoaded()) return;
+		long started = System.currentTimeMillis();
+		journal.load(() -> {
+			try {
+				new AnimalService().scanLocations(row -> addLocked((Long) row[0], (Double) row[1], (Double) row[2]));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, () -> LOG.info("Geo index: " + byAnimal.size() + " located animals in " + cells.size() + " cells, "
+				+ (System.currentTimeMillis() - started) + " ms"));
+	}
+
+
+
+	//***************************************** Updates *********************************************//
+
+	@Override
+	public void animalAdded(Animal animal) {
+		journal.apply(() -> addLocked(animal.getId(), animal.getLatitude(), animal.getLongitude()));
+	}
+
+	@Override
+	public void animalDeleted(Long animalId, Long categoryId) {
+		journal.apply(() -> removeLocked(animalId));
+	}
+
+
+	private void addLocked(long animalId, Double latitude, Double longitude) {
+		removeLocked(animalId); // re-adding replaces (the location may have changed or been removed)
+		if (!Geo.isValid(latitude, longitude)) return;
+		long cell = cellKey(latCell(latitude), lonCell(longitude));
+		byAnimal.put(animalId, new Located(latitude, longitude, cell));
+		cells.computeIfAbsent(cell, k -> new Cell()).add(animalId);
+	}
+
+	private void removeLocked(long animalId) {
+		Located old = byAnimal.remove(animalId);
+		if (old == null) return;
+		Cell c = cells.get(old.cell);
+		c.remove(animalId);
+		if (c.size == 0) cells.remove(old.cell);
+	}
+
+
+
+	//***************************************** Lookup *********************************************//
+
+	/**
+	 * The animals at most radiusKm from the point (unordered).
+	 *
+	 * @param radiusKm {@link Geo#MAX_DISTANCE_KM} or more = every located animal
+	 */
+	Nearby within(double latitude, double longitude, double radiusKm) {
+		ensureLoaded();
+		lock.readLock().lock();
+		try {
+			// bounding box of the circle, in cells
+			double dLat = radiusKm / Geo.KM_PER_DEGREE;
+			int latFrom = latCell(Math.max(-90, latitude - dLat));
+			int latTo = latCell(Math.min(90, latitude + dLat));
+			int lonFrom = 0;
+			int lonCount = LON_CELLS;
+			if (latitude - dLat > -90 && latitude + dLat < 90) { // no pole inside: the longitude span is limited
+				double maxAbsLat = Math.max(Math.abs(latitude - dLat), Math.abs(latitude + dLat));
+				double dLon = dLat / Math.cos(Math.toRadians(maxAbsLat));
+				if (dLon < 180) {
+					lonFrom = lonCell(wrap(longitude - dLon));
+					lonCount = Math.min(LON_CELLS, (int) Math.ceil(2 * dLon / 360 * LON_CELLS) + 2);
+				}
+			}
+
+			Collector out = new Collector(latitude, longitude, radiusKm);
+			long boxCells = (long) (latTo - latFrom + 1) * lonCount;
+			if (boxCells <= cells.size()) {
+				for (int la = latFrom; la <= latTo; la++) {
+					for (int i = 0; i < lonCount; i++) {
+						Cell c = cells.get(cellKey(la, (lonFrom + i) % LON_CELLS));
+						if (c != null) out.addCell(c);
+					}
+				}
+			} else {
+				// wide circle, sparse grid: visit the occupied cells and skip those outside the box
+				for (Map.Entry<Long, Cell> e : cells.entrySet()) {
+					long key = e.getKey();
+					int la = latOf(key);
+					int lo = Math.floorMod(lonOf(key) - lonFrom, LON_CELLS);
+					if (la >= latFrom && la <= latTo && lo < lonCount) out.addCell(e.getValue());
+				}
+			}
+			return out.result();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+
+	/**
+	 * Distance of one animal from the point.
+	 *
+	 * @return km, or null if the animal has no location
+	 */
+	Double distanceKm(long animalId, double latitude, double longitude) {
+		ensureLoaded();
+		lock.readLock().lock();
+		try {
+			Located l = byAnimal.get(animalId);
+			return (l != null) ? Geo.distanceKm(latitude, longitude, l.latitude, l.longitude) : null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+
+	/** Measures the animals of the visited cells and keeps those within the radius (used under the read lock) */
+	private final class Collector {
+		final double latitude;
+		final double longitude;
+		final double radiusKm;
+		long[] ids = new long[64];
+		double[] distances = new double[64];
+		int size;
+
+		Collector(double latitude, double longitude, double radiusKm) {
+			this.latitude = latitude;
+			this.longitude = longitude;
+			this.radiusKm = radiusKm;
+		}
+
+		void addCell(Cell c) {
+			for (int i = 0; i < c.size; i++) {
+				long id = c.ids[i];
+				Located l = byAnimal.get(id);
+				double d = Geo.distanceKm(latitude, longitude, l.latitude, l.longitude);
+				if (d > radiusKm) continue;
+				if (size == ids.length) {
+					ids = Arrays.copyOf(ids, size * 2);
+					distances = Arrays.copyOf(distances, size * 2);
+				}
+				ids[size] = id;
+				distances[size] = d;
+				size++;
+			}
+		}
+
+		Nearby result() {
+			return new Nearby(Arrays.copyOf(ids, size), Arrays.copyOf(distances, size));
+		}
+	}
+
+
+
+	//***************************************** Geohash *********************************************//
+
+	private static int latCell(double latitude) {
+		return Math.min(LAT_CELLS - 1, (int) Math.floor((latitude + 90) / 180 * LAT_CELLS));
+	}
+
+	private static int lonCell(double longitude) {
+		return Math.min(LON_CELLS - 1, (int) Math.floor((longitude + 180) / 360 * LON_CELLS));
+	}
+
+	private static double wrap(double longitude) {
+		return (longitude < -180) ? longitude + 360 : (longitude >= 180) ? longitude - 360 : longitude;
+	}
+
+	/** Interleave the bits as a geohash does: longitude first, then latitude, alternating (most significant first) */
+	private static long cellKey(int lat, int lon) {
+		long key = 0;
+		for (int i = LON_BITS - 1; i >= 0; i--) {
+			key = (key << 1) | ((lon >>> i) & 1);
+			if (i > 0) key = (key << 1) | ((lat >>> (i - 1)) & 1);
+		}
+		return key;
+	}
+
+	private static int lonOf(long key) {
+		int lon = 0;
+		for (int bit = LON_BITS + LAT_BITS - 1; bit >= 0; bit -= 2) lon = (lon << 1) | (int) ((key >>> bit) & 1);
+		return lon;
+	}
+
+	private static int latOf(long key) {
+		int lat = 0;
+		for (int bit = LON_BITS + LAT_BITS - 2; bit >= 0; bit -= 2) lat = (lat << 1) | (int) ((key >>> bit) & 1);
+		return lat;
+	}
+}
+//===============================================================================================================================//
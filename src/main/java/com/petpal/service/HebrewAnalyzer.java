@@ -0,0 +1,153 @@
+package com.petpal.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+
+
+/**
+ * Turns free text (Hebrew, English, digits) into the terms used by the full-text index.
+ *
+ * How:
+ *  - Niqqud and cantillation marks are dropped, so pointed and unpointed spellings are the same term.
+ *  - Final letters are folded to their regular form (ך→כ, ם→מ, ן→נ, ף→פ, ץ→צ), Latin letters are lower-cased.
+ *  - Geresh / gershayim and apostrophes inside a word are removed (ג׳ק = ג'ק = גק); any other character separates words.
+ *  - Common function words (של, עם, את, the, and...) are not indexed.
+ *  - Hebrew attaches prepositions and the article to the word (הכלב, לכלב, וכשהכלב), so a Hebrew term also has
+ *    "forms" with up to three leading prefix letters (ו ה ב כ ל מ ש) removed, as long as three letters remain.
+ *    Documents are indexed under every form and queries look up every form, so "כלב" finds "לכלב" and "הכלב"
+ *    (but not "כלבים" - suffixes are not stemmed).
+ */
+//============================================== Hebrew Analyzer ================================================================//
+
+public final class HebrewAnalyzer {
+
+	/** Letters that can be attached in front of a Hebrew word */
+	private static final String PREFIX_LETTERS = "ובכלמשה";
+
+	private static final int MAX_PREFIX = 3;
+
+	private static final int MIN_STEM = 3;
+
+	/** Compared after folding (final letters), like every token */
+	private static final Set<String> STOP_WORDS = folded(Arrays.asList(
+			"של", "עם", "את", "על", "אל", "גם", "או", "זה", "זו", "זאת", "הוא", "היא", "הם", "הן",
+			"לא", "כן", "יש", "אין", "כל", "אבל", "כי", "אם", "מאוד", "עוד", "רק", "כמו", "מן", "אך",
+			"the", "a", "an", "and", "or", "of", "with", "to", "in", "is", "for"));
+
+
+	private HebrewAnalyzer() {}
+
+
+	private static Set<String> folded(List<String> words) {
+		Set<String> out = new HashSet<>();
+		for (String w : words) {
+			StringBuilder sb = new StringBuilder(w.length());
+			for (int i = 0; i < w.length(); i++) sb.append(fold(w.charAt(i)));
+			out.add(sb.toString());
+		}
+		return out;
+	}
+
+
+
+	//***************************************** Tokens *********************************************//
+
+	/**
+	 * Normalized words of the text, in order, stop words removed.
+	 *
+	 * @param text any text (null = no words)
+	 */
+	public static List<String> tokens(String text) {
+		return words(text, true);
+	}
+
+
+	/**
+	 * The normalized words of the text joined by single spaces, stop words kept
+	 * (the key of a whole name in the typeahead, where "של" in "מלך של הבית" is part of what is typed).
+	 *
+	 * @param text any text (null = "")
+	 */
+	public static String normalize(String text) {
+		return String.join(" ", words(text, false));
+	}
+
+
+	private static List<String> words(String text, boolean dropStopWords) {
+		List<String> out = new ArrayList<>();
+		if (text == null) return out;
+
+		StringBuilder word = new StringBuilder(16);
+		for (int i = 0, n = text.length(); i <= n; i++) {
+			char ch = (i < n) ? text.charAt(i) : ' ';
+			if (isPoint(ch)) continue;
+			if (isWordChar(ch)) {
+				word.append(fold(ch));
+			} else if (isInnerMark(ch) && word.length() > 0 && i + 1 < n && isWordChar(text.charAt(i + 1))) {
+				continue;
+			} else if (word.length() > 0) {
+				String w = word.toString();
+				if (!dropStopWords || !STOP_WORDS.contains(w)) out.add(w);
+				word.setLength(0);
+			}
+		}
+		return out;
+	}
+
+
+	/**
+	 * The word itself followed by its prefix-stripped forms (Hebrew only), most specific first.
+	 * E.g. "וכשהכלב" → [וכשהכלב, כשהכלב, שהכלב, הכלב]; "לברדור" → [לברדור, ברדור].
+	 */
+	public static List<String> forms(String token) {
+		List<String> out = new ArrayList<>(MAX_PREFIX + 1);
+		out.add(token);
+		int cut = 0;
+		while (cut < MAX_PREFIX && token.length() - cut - 1 >= MIN_STEM
+				&& isHebrewLetter(token.charAt(cut)) && PREFIX_LETTERS.indexOf(token.charAt(cut)) >= 0) {
+			cut++;
+			out.add(token.substring(cut));
+		}
+		return out;
+	}
+
+
+
+	//***************************************** Characters *********************************************//
+
+	private static boolean isHebrewLetter(char ch) {
+		return ch >= '\u05D0' && ch <= '\u05EA'; // alef..tav
+	}
+
+	/** Niqqud, cantillation and other combining marks of the Hebrew block */
+	private static boolean isPoint(char ch) {
+		// U+0591..U+05C7, except the punctuation in that range (maqaf, paseq, sof pasuq, nun hafukha)
+		return (ch >= '\u0591' && ch <= '\u05C7' && ch != '\u05BE' && ch != '\u05C0' && ch != '\u05C3' && ch != '\u05C6')
+				|| Character.getType(ch) == Character.NON_SPACING_MARK;
+	}
+
+	/** Geresh, gershayim and apostrophes/quotes written inside a word */
+	private static boolean isInnerMark(char ch) {
+		return ch == '\u05F3' || ch == '\u05F4' || ch == '\'' || ch == '"' || ch == '\u2019';
+	}
+
+	private static boolean isWordChar(char ch) {
+		return isHebrewLetter(ch) || Character.isLetterOrDigit(ch);
+	}
+
+	private static char fold(char ch) {
+		switch (ch) {
+		case '\u05DA': return '\u05DB'; // final kaf → kaf
+		case '\u05DD': return '\u05DE'; // final mem → mem
+		case '\u05DF': return '\u05E0'; // final nun → nun
+		case '\u05E3': return '\u05E4'; // final pe → pe
+		case '\u05E5': return '\u05E6'; // final tsadi → tsadi
+		default:  return (ch < 0x0590) ? Character.toLowerCase(ch) : ch;
+		}
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,265 @@
+package com.petpal.service;
+
+import com.petpal.model.ImageRendition;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+
+
+/**
+ * Upload stage that turns one uploaded image into the fixed set of stored renditions
+ * ({@link ImageRendition#THUMB}, {@link ImageRendition#MEDIUM} and the untouched {@link ImageRendition#ORIGINAL}).
+ *
+ * How:
+ *  - Reads the image dimensions from the header first and rejects images with too many pixels.
+ *  - Decodes once, already subsampled to roughly twice the largest rendition, so a 12MP phone photo
+ *    never becomes a full-size bitmap in memory.
+ *  - Scales down in halving steps (good quality with bilinear filtering) and re-encodes as JPEG.
+ *
+ * Notes:
+ *  - Decoding is memory-heavy, so at most image.maxConcurrent images are decoded at once across the application
+ *    (a subset of the upload.maxConcurrent uploads in progress); further uploads wait up to image.waitSeconds.
+ *  - Formats ImageIO cannot decode (e.g. WebP) are stored as ORIGINAL only; the image servlet falls back to it.
+ */
+//============================================== Image Pipeline =================================================================//
+
+public class ImagePipeline {
+
+	/** Upper bound on decoded pixels (≈ 40MP); larger images are rejected before decoding */
+	private static final long MAX_PIXELS = 40_000_000L;
+
+	/** JPEG quality of the generated renditions */
+	private static final float JPEG_QUALITY = 0.82f;
+
+	/** How many images may be decoded/scaled at the same time (default: half the cores) */
+	private static final int MAX_CONCURRENT = AppConfig.getInt("image.maxConcurrent",
+			Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+	/** How long an upload waits for a processing slot before giving up */
+	private static final long WAIT_SECONDS = AppConfig.getLong("image.waitSeconds", 30);
+
+	private static final Semaphore PERMITS = new Semaphore(MAX_CONCURRENT, true);
+
+
+
+	//***************************************** Result *********************************************//
+
+	/**
+	 * One rendition, ready to be stored.
+	 * Generated renditions are small and kept in memory; the ORIGINAL stays in the staged upload file.
+	 */
+	public static final class Rendered {
+		private final ImageRendition rendition;
+		private final String contentType;
+		private final byte[] data;
+		private final Path file;
+		private final long size;
+		private final int width;
+		private final int height;
+
+		private Rendered(ImageRendition rendition, String contentType, byte[] data, Path file, long size,
+				int width, int height) {
+			this.rendition = rendition;
+			this.contentType = contentType;
+			this.data = data;
+			this.file = file;
+			this.size = size;
+			this.width = width;
+			this.height = height;
+		}
+
+		public ImageRendition getRendition() { return rendition; }
+		public String getContentType() { return contentType; }
+		public long getSize() { return size; }
+		public int getWidth() { return width; }
+		public int getHeight() { return height; }
+
+		/** Open the rendition's bytes for streaming into storage (caller closes) */
+		public InputStream openStream() throws IOException {
+			return (file != null) ? Files.newInputStream(file) : new ByteArrayInputStream(data);
+		}
+	}
+
+
+
+	//***************************************** Pipeline *********************************************//
+
+
+	/**
+	 * Produce all renditions of an uploaded image.
+	 *
+	 * @param upload the staged upload (its file becomes the ORIGINAL rendition)
+	 * @return the ORIGINAL rendition followed by MEDIUM and THUMB when the format can be decoded
+	 * @throws IllegalArgumentException if the image is corrupt or too large
+	 * @throws IllegalStateException if no processing slot became free in time
+	 * @throws IOException on encoding errors
+	 */
+	public List<Rendered> render(StagedImage upload) throws IOException {
+		List<Rendered> out = new ArrayList<>(3);
+
+		ImageReader reader = readerFor(upload.getFile());
+		if (reader == null) {
+			out.add(original(upload, 0, 0));
+			return out;
+		}
+
+		try {
+			int width = reader.getWidth(0);
+			int height = reader.getHeight(0);
+			if ((long) width * height > MAX_PIXELS) {
+				throw new IllegalArgumentException("התמונה גדולה מדי");
+			}
+			out.add(original(upload, width, height));
+
+			acquire();
+			try {
+				BufferedImage decoded = decodeSubsampled(reader, width, height,
+						2 * ImageRendition.MEDIUM.getMaxEdge());
+
+				BufferedImage medium = scaleToFit(decoded, ImageRendition.MEDIUM.getMaxEdge());
+				out.add(encode(ImageRendition.MEDIUM, medium));
+
+				BufferedImage thumb = scaleToFit(medium, ImageRendition.THUMB.getMaxEdge());
+				out.add(encode(ImageRendition.THUMB, thumb));
+			} finally {
+				PERMITS.release();
+			}
+			return out;
+		} catch (IOException | RuntimeException e) {
+			if (e instanceof IllegalArgumentException || e instanceof IllegalStateException) throw e;
+			throw new IllegalArgumentException("קובץ התמונה פגום", e);
+		} finally {
+			Object input = reader.getInput();
+			reader.dispose();
+			if (input instanceof ImageInputStream) ((ImageInputStream) input).close();
+		}
+	}
+
+
+
+	//***************************************** Helpers *********************************************//
+
+
+	private static void acquire() {
+		try {
+			if (!PERMITS.tryAcquire(WAIT_SECONDS, TimeUnit.SECONDS)) {
+				throw new IllegalStateException("השרת עמוס כרגע, נסה/י שוב בעוד מספר רגעים");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("העלאת התמונה בוטלה", e);
+		}
+	}
+
+
+	private static Rendered original(StagedImage upload, int width, int height) {
+		return new Rendered(ImageRendition.ORIGINAL, upload.getContentType(), null, upload.getFile(),
+				upload.getSize(), width, height);
+	}
+
+
+	/**
+	 * A reader positioned on the image header, or null if ImageIO cannot decode the format.
+	 * Reads from the file with random access, so the upload is never loaded into memory as a whole.
+	 */
+	private static ImageReader readerFor(Path file) throws IOException {
+		ImageInputStream iis = ImageIO.createImageInputStream(file.toFile());
+		Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+		if (!readers.hasNext()) {
+			iis.close();
+			return null;
+		}
+		ImageReader reader = readers.next();
+		reader.setInput(iis, true, true);
+		return reader;
+	}
+
+
+	/**
+	 * Decode the first image, skipping pixels so that the longest edge is still at least targetEdge.
+	 */
+	private static BufferedImage decodeSubsampled(ImageReader reader, int width, int height, int targetEdge)
+			throws IOException {
+		ImageReadParam param = reader.getDefaultReadParam();
+		int step = Math.max(1, Math.max(width, height) / targetEdge);
+		if (step > 1) param.setSourceSubsampling(step, step, 0, 0);
+		return reader.read(0, param);
+	}
+
+
+	/**
+	 * Scale down so that the longest edge is at most maxEdge (never scales up).
+	 * Halves repeatedly first, then does one final bilinear step - avoids the aliasing of a single big step.
+	 * Output is always opaque RGB (transparent areas become white), as required for JPEG.
+	 */
+	private static BufferedImage scaleToFit(BufferedImage src, int maxEdge) {
+		int w = src.getWidth();
+		int h = src.getHeight();
+		double ratio = Math.min(1.0, (double) maxEdge / Math.max(w, h));
+		int targetW = Math.max(1, (int) Math.round(w * ratio));
+		int targetH = Math.max(1, (int) Math.round(h * ratio));
+
+		BufferedImage current = src;
+		do {
+			if (w / 2 >= targetW && h / 2 >= targetH) {
+				w /= 2;
+				h /= 2;
+			} else {
+				w = targetW;
+				h = targetH;
+			}
+			BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+			Graphics2D g = next.createGraphics();
+			try {
+				g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+				g.drawImage(current, 0, 0, w, h, Color.WHITE, null);
+			} finally {
+				g.dispose();
+			}
+			current = next;
+		} while (w != targetW || h != targetH);
+
+		return current;
+	}
+
+
+	private static Rendered encode(ImageRendition rendition, BufferedImage img) throws IOException {
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+		ByteArrayOutputStream buf = new ByteArrayOutputStream(64 * 1024);
+		try (ImageOutputStream ios = ImageIO.createImageOutputStream(buf)) {
+			writer.setOutput(ios);
+			ImageWriteParam param = writer.getDefaultWriteParam();
+			param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			param.setCompressionQuality(JPEG_QUALITY);
+			writer.write(null, new IIOImage(img, null, null), param);
+		} finally {
+			writer.dispose();
+		}
+		byte[] data = buf.toByteArray();
+		return new Rendered(rendition, "image/jpeg", data, null, data.length, img.getWidth(), img.getHeight());
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,44 @@
+package com.petpal.service;
+
+
+
+/**
+ * Helper for recognizing uploaded image formats by their magic bytes
+ * (the browser-supplied content type of an upload cannot be trusted).
+ */
+//=============================================== Image Types ===================================================================//
+
+public final class ImageTypes {
+
+	/** Number of leading bytes needed by {@link #detect(byte[], int)} */
+	public static final int HEADER_LENGTH = 12;
+
+
+	private ImageTypes() {}
+
+
+	/**
+	 * Detect the MIME type of an image from its first bytes.
+	 *
+	 * @param head leading bytes of the file
+	 * @param len  number of valid bytes in head
+	 * @return "image/jpeg", "image/png", "image/gif" or "image/webp"; null if not a recognized image
+	 */
+	public static String detect(byte[] head, int len) {
+		if (len >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF) {
+			return "image/jpeg";
+		}
+		if (len >= 8 && (head[0] & 0xFF) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G') {
+			return "image/png";
+		}
+		if (len >= 6 && head[0] == 'G' && head[1] == 'I' && head[2] == 'F' && head[3] == '8') {
+			return "image/gif";
+		}
+		if (len >= 12 && head[0] == 'R' && head[1] == 'I' && head[2] == 'F' && head[3] == 'F'
+				&& head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+			return "image/webp";
+		}
+		return null;
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,27 @@
+package com.petpal.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+
+
+/**
+ * One input format of the bulk animal import. Hands out the records of the uploaded file one by one,
+ * reading the stream as it goes, so a file of any size is never held in memory.
+ * Implementations: {@link CsvImportReader}, {@link XmlImportReader}.
+ */
+//=============================================== Import Reader =================================================================//
+
+interface ImportReader extends Closeable {
+
+	/**
+	 * @return the next record as column name → value (missing columns are absent, not empty), or null at the end
+	 * @throws IllegalArgumentException if the file is malformed beyond this record (aborts the import)
+	 */
+	Map<String, String> next() throws IOException;
+
+	/** 1-based number of the record last returned by {@link #next} (the CSV header is not counted) */
+	int getRecordNumber();
+}
+//===============================================================================================================================//
@@ -0,0 +1,101 @@
+package com.petpal.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+
+
+/**
+ * The loaded state of an in-memory index, and the changes that arrive while it loads from the database.
+ *
+ * How:
+ *  - {@link #load} runs the scan under the index's write lock, recording the changes that arrive meanwhile,
+ *    replays them, and only then marks the index loaded.
+ *  - {@link #apply} runs a change under the write lock once the index is loaded. During a load the change is
+ *    recorded instead, so the threads that fire changes do not wait for the scan. Before any load starts it is
+ *    dropped: it is already committed, so the load reads it itself.
+ *  - If the load ends between the check and the recording, apply() takes the lock, which the load holds until
+ *    the index is marked loaded, and applies the change then.
+ *
+ * Notes:
+ *  - A change may also be in the scan (committed before the scan reached its row); the indexes' updates are
+ *    idempotent (adding replaces, removing an absent entry does nothing), so replaying it is harmless.
+ */
+//=============================================== Load Journal ==================================================================//
+
+final class LoadJournal {
+
+	private final Lock writeLock;
+
+	private volatile boolean loaded;
+
+	/** Changes recorded during the running load, in arrival order; null when no load runs (guarded by this) */
+	private List<Runnable> changes;
+
+
+	/**
+	 * @param writeLock the lock that guards the index's state
+	 */
+	LoadJournal(Lock writeLock) {
+		this.writeLock = writeLock;
+	}
+
+
+	boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Load the index unless already done.
+	 *
+	 * @param scan reads the database into the index (under the write lock)
+	 * @param done runs after the recorded changes are replayed, before the index is marked loaded (under the write lock)
+	 */
+	void load(Runnable scan, Runnable done) {
+		if (loaded) return;
+		writeLock.lock();
+		try {
+			if (loaded) return;
+			List<Runnable> replay;
+			synchronized (this) {
+				changes = new ArrayList<>();
+			}
+			try {
+				scan.run();
+			} finally {
+				synchronized (this) {
+					replay = changes;
+					changes = null;
+				}
+			}
+			replay.forEach(Runnable::run);
+			done.run();
+			loaded = true;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Apply a committed change to the index under the write lock, or record it for the running load.
+	 *
+	 * @param change the update of the index's state
+	 */
+	void apply(Runnable change) {
+		if (!loaded && record(change)) return;
+		writeLock.lock();
+		try {
+			if (loaded) change.run();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	private synchronized boolean record(Runnable change) {
+		if (changes == null) return false;
+		changes.add(change);
+		return true;
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,121 @@
+package com.petpal.service;
+
+
+
+/**
+ * Map from long keys to int values without boxing: open addressing with linear probing.
+ *
+ * Notes:
+ *  - Key 0 marks a free slot and cannot be stored (database ids start at 1).
+ *  - Absent keys read as 0, and a value that drops to 0 removes its key (a map of counts).
+ *  - Removal shifts the following entries back instead of leaving tombstones.
+ *  - Not thread-safe.
+ */
+//================================================ Long Int Map =================================================================//
+
+final class LongIntMap {
+
+	/** Visits one entry */
+	interface Visitor {
+		void visit(long key, int value);
+	}
+
+
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int size;
+
+
+	LongIntMap() {
+		this(4);
+	}
+
+	/** @param expected entries expected (sizes the table) */
+	LongIntMap(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(4, expected * 3 / 2) * 2 - 1);
+		keys = new long[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+	}
+
+
+	int size() { return size; }
+
+	boolean isEmpty() { return size == 0; }
+
+
+	/** @return the value of the key, 0 if absent */
+	int get(long key) {
+		for (int i = slot(key); keys[i] != 0; i = (i + 1) & mask) {
+			if (keys[i] == key) return values[i];
+		}
+		return 0;
+	}
+
+	/**
+	 * Add delta to the value of the key (absent = 0); the key is removed when its value becomes 0.
+	 *
+	 * @return the new value
+	 */
+	int add(long key, int delta) {
+		if (key == 0) throw new IllegalArgumentException("key 0 is reserved");
+		int i = slot(key);
+		for (; keys[i] != 0; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				int value = values[i] + delta;
+				if (value == 0) removeAt(i);
+				else values[i] = value;
+				return value;
+			}
+		}
+		if (delta == 0) return 0;
+		keys[i] = key;
+		values[i] = delta;
+		if (++size * 4 > keys.length * 3) grow();
+		return delta;
+	}
+
+	void forEach(Visitor visitor) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != 0) visitor.visit(keys[i], values[i]);
+		}
+	}
+
+
+	private int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	/** Empty slot i, moving back the entries of the same probe run that may no longer be reached */
+	private void removeAt(int i) {
+		int gap = i;
+		for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+			if (((j - slot(keys[j])) & mask) >= ((j - gap) & mask)) {
+				keys[gap] = keys[j];
+				values[gap] = values[j];
+				gap = j;
+			}
+		}
+		keys[gap] = 0;
+		values[gap] = 0;
+		size--;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new int[oldKeys.length * 2];
+		mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] == 0) continue;
+			int j = slot(oldKeys[i]);
+			while (keys[j] != 0) j = (j + 1) & mask;
+			keys[j] = oldKeys[i];
+			values[j] = oldValues[i];
+		}
+	}
+}
+//===============================================================================================================================//
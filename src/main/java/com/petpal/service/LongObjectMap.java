@@ -0,0 +1,122 @@
+package com.petpal.service;
+
+
+
+/**
+ * Map from long keys to objects without boxing the keys: open addressing with linear probing
+ * (the same table as {@link LongIntMap}).
+ *
+ * Notes:
+ *  - Key 0 marks a free slot and cannot be stored (database ids start at 1); null values are not stored either.
+ *  - Not thread-safe; concurrent reads without writes are safe.
+ */
+//=============================================== Long Object Map ===============================================================//
+
+final class LongObjectMap<V> {
+
+	private long[] keys;
+	private Object[] values;
+	private int mask;
+	private int size;
+
+
+	LongObjectMap() {
+		this(4);
+	}
+
+	/** @param expected entries expected (sizes the table) */
+	LongObjectMap(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(4, expected * 3 / 2) * 2 - 1);
+		keys = new long[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+	}
+
+
+	int size() { return size; }
+
+
+	/** @return the value of the key, null if absent */
+	@SuppressWarnings("unchecked")
+	V get(long key) {
+		for (int i = slot(key); keys[i] != 0; i = (i + 1) & mask) {
+			if (keys[i] == key) return (V) values[i];
+		}
+		return null;
+	}
+
+	void put(long key, V value) {
+		if (key == 0) throw new IllegalArgumentException("key 0 is reserved");
+		if (value == null) throw new IllegalArgumentException("null value");
+		int i = slot(key);
+		for (; keys[i] != 0; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				values[i] = value;
+				return;
+			}
+		}
+		keys[i] = key;
+		values[i] = value;
+		if (++size * 4 > keys.length * 3) grow();
+	}
+
+	/** @return the removed value, null if absent */
+	@SuppressWarnings("unchecked")
+	V remove(long key) {
+		for (int i = slot(key); keys[i] != 0; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				V old = (V) values[i];
+				removeAt(i);
+				return old;
+			}
+		}
+		return null;
+	}
+
+	/** The keys, in table order */
+	long[] keys() {
+		long[] out = new long[size];
+		int n = 0;
+		for (long k : keys) {
+			if (k != 0) out[n++] = k;
+		}
+		return out;
+	}
+
+
+	private int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	/** Empty slot i, moving back the entries of the same probe run that may no longer be reached */
+	private void removeAt(int i) {
+		int gap = i;
+		for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+			if (((j - slot(keys[j])) & mask) >= ((j - gap) & mask)) {
+				keys[gap] = keys[j];
+				values[gap] = values[j];
+				gap = j;
+			}
+		}
+		keys[gap] = 0;
+		values[gap] = null;
+		size--;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new Object[oldKeys.length * 2];
+		mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] == 0) continue;
+			int j = slot(oldKeys[i]);
+			while (keys[j] != 0) j = (j + 1) & mask;
+			keys[j] = oldKeys[i];
+			values[j] = oldValues[i];
+		}
+	}
+}
+//===============================================================================================================================//
@@ -2,11 +2,16 @@ package com.petpal.service;
 
 import com.petpal.model.Animal;
 import com.petpal.model.Message;
+import com.petpal.model.MessageHeader;
 import com.petpal.model.User;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 
@@ -14,13 +19,15 @@ import java.util.List;
  * Service layer for message operations.
  *
  * Responsibilities:
- *  - Load inbox/sent lists with the necessary relationships (sender/recipient/animal).
+ *  - Load inbox/sent lists page by page, as compact headers; the content of a message only when it is opened.
  *  - Find single Message/Animal by id.
  *  - Send a new message (persist).
+ *  - Mark the messages of a viewed inbox page as read, with one UPDATE per page.
+ *  - Keep the {@link UnreadCounters} current: every committed change to the unread messages is applied to them.
  *  - Delete messages from inbox/sent with authorization checks.
  *
  * Notes:
- *  - Uses a single EntityManagerFactory created from persistence unit "PetPalPU".
+ *  - Uses the shared EntityManagerFactory from {@link PersistenceManager} (persistence unit "PetPalPU").
  *  - Each method opens its own EntityManager and closes it in a finally block.
  */
 
@@ -28,7 +35,7 @@ import java.util.List;
 
 public class MessageService {
 
-	private static final EntityManagerFactory emf = Persistence.createEntityManagerFactory("PetPalPU");
+	private static final EntityManagerFactory emf = PersistenceManager.getEntityManagerFactory();
 
 
 	
@@ -39,53 +46,99 @@ public class MessageService {
 
 
 	/**
-	 * Load inbox messages for the given user.
-	 * Eagerly fetches the message sender and (optionally) the related animal to avoid N+1 queries in the view.
+	 * One page of the inbox of the given user, newest first: headers only (no content),
+	 * using keyset (seek) pagination on (timestamp, id) - served by the (recipient_id, timestamp) index.
 	 *
-	 * @param user recipient of the messages
-	 * @return list of messages ordered by timestamp DESC
+	 * @param userId   recipient of the messages
+	 * @param after    cursor of the previous page (null = first page)
+	 * @param pageSize messages per page
+	 * @return the page and the cursor of the next one
 	 */
-	public List<Message> loadInbox(User user) {
-		EntityManager em = emf.createEntityManager();
-		try {
-			return em.createQuery(
-					"SELECT m FROM Message m " +
-							"JOIN FETCH m.sender " +
-							"LEFT JOIN FETCH m.animal " +
-							"WHERE m.recipient = :user " +
-							"ORDER BY m.timestamp DESC",
-							Message.class)
-					.setParameter("user", user)
-					.getResultList();
-		} finally { em.close(); }
+	public Page<MessageHeader> inboxPage(Long userId, PageCursor after, int pageSize) {
+		return folderPage(
+				"SELECT NEW com.petpal.model.MessageHeader(m.id, o.id, o.username, m.subject, an.id, an.name, " +
+				"m.timestamp, m.isRead) FROM Message m JOIN m.sender o LEFT JOIN m.animal an " +
+				"WHERE m.recipient.id = :userId", userId, after, pageSize);
 	}
 
 
+	/**
+	 * One page of the sent messages of the given user, newest first (as {@link #inboxPage}).
+	 *
+	 * @param userId   sender of the messages
+	 * @param after    cursor of the previous page (null = first page)
+	 * @param pageSize messages per page
+	 * @return the page and the cursor of the next one
+	 */
+	public Page<MessageHeader> sentPage(Long userId, PageCursor after, int pageSize) {
+		return folderPage(
+				"SELECT NEW com.petpal.model.MessageHeader(m.id, o.id, o.username, m.subject, an.id, an.name, " +
+				"m.timestamp, m.isRead) FROM Message m JOIN m.recipient o LEFT JOIN m.animal an " +
+				"WHERE m.sender.id = :userId", userId, after, pageSize);
+	}
 
 
-
-
+	/** Run a folder query after the cursor; one extra row tells whether another page follows */
+	private Page<MessageHeader> folderPage(String select, Long userId, PageCursor after, int pageSize) {
+		EntityManager em = emf.createEntityManager();
+		try {
+			String jpql = select
+					+ (after != null ? " AND (m.timestamp < :ts OR (m.timestamp = :ts AND m.id < :lastId))" : "")
+					+ " ORDER BY m.timestamp DESC, m.id DESC";
+			TypedQuery<MessageHeader> q = em.createQuery(jpql, MessageHeader.class)
+					.setParameter("userId", userId)
+					.setMaxResults(pageSize + 1);
+			if (after != null) {
+				q.setParameter("ts", (LocalDateTime) after.getSortValue());
+				q.setParameter("lastId", after.getLastId());
+			}
+			List<MessageHeader> rows = q.getResultList();
+			if (rows.size() <= pageSize) return new Page<>(rows, null);
+			List<MessageHeader> items = new ArrayList<>(rows.subList(0, pageSize));
+			MessageHeader last = items.get(pageSize - 1);
+			return new Page<>(items, new PageCursor(last.getTimestamp(), last.getId()));
+		} finally { em.close(); }
+	}
 
 
 	/**
-	 * Load sent messages for the given user.
-	 * Eagerly fetches the message recipient and (optionally) the related animal to avoid N+1 queries in the view.
+	 * Load the content of one message, when it is opened.
+	 * Performs an authorization check: the user must be its sender or its recipient.
 	 *
-	 * @param user sender of the messages
-	 * @return list of messages ordered by timestamp DESC
+	 * @param user      the user opening the message
+	 * @param messageId id of the message
+	 * @return the content, or null if not found or not allowed
 	 */
-	public List<Message> loadSent(User user) {
+	public String loadContent(User user, Long messageId) {
 		EntityManager em = emf.createEntityManager();
 		try {
 			return em.createQuery(
-					"SELECT m FROM Message m " +
-							"JOIN FETCH m.recipient " +
-							"LEFT JOIN FETCH m.animal " +
-							"WHERE m.sender = :user " +
-							"ORDER BY m.timestamp DESC",
-							Message.class)
-					.setParameter("user", user)
+					"SELECT m.content FROM Message m " +
+					"WHERE m.id = :id AND (m.recipient.id = :userId OR m.sender.id = :userId)", String.class)
+					.setParameter("id", messageId)
+					.setParameter("userId", user.getId())
+					.getResultStream().findFirst().orElse(null);
+		} finally { em.close(); }
+	}
+
+	/**
+	 * Load the contents of several opened messages in one query (same authorization check as {@link #loadContent}).
+	 *
+	 * @return content by message id; messages not found or not allowed are missing
+	 */
+	public Map<Long, String> loadContents(User user, Collection<Long> messageIds) {
+		Map<Long, String> contents = new HashMap<>();
+		if (messageIds.isEmpty()) return contents;
+		EntityManager em = emf.createEntityManager();
+		try {
+			List<Object[]> rows = em.createQuery(
+					"SELECT m.id, m.content FROM Message m " +
+					"WHERE m.id IN :ids AND (m.recipient.id = :userId OR m.sender.id = :userId)", Object[].class)
+					.setParameter("ids", messageIds)
+					.setParameter("userId", user.getId())
 					.getResultList();
+			for (Object[] r : rows) contents.put((Long) r[0], (String) r[1]);
+			return contents;
 		} finally { em.close(); }
 	}
 
@@ -151,6 +204,41 @@ public class MessageService {
 			m.setTimestamp(when != null ? when : LocalDateTime.now());
 			em.persist(m);
 			tx.commit();
+			UnreadCounters.get().add(recipient.getId(), 1);
+		} catch (Exception e) {
+			if (tx.isActive()) tx.rollback();
+			throw e;
+		} finally { em.close(); }
+	}
+
+
+
+
+
+
+	/**
+	 * Mark messages of the user's inbox as read (a page that was just shown), with one UPDATE.
+	 * Ids of other users' messages, or of messages already read, are ignored.
+	 *
+	 * @param userId     recipient of the messages
+	 * @param messageIds ids of the messages shown
+	 * @return number of messages that were unread
+	 */
+	public int markRead(Long userId, List<Long> messageIds) {
+		if (userId == null || messageIds == null || messageIds.isEmpty()) return 0;
+		EntityManager em = emf.createEntityManager();
+		EntityTransaction tx = em.getTransaction();
+		try {
+			tx.begin();
+			int updated = em.createQuery(
+					"UPDATE Message m SET m.isRead = true " +
+					"WHERE m.recipient.id = :userId AND m.id IN :ids AND m.isRead = false")
+					.setParameter("userId", userId)
+					.setParameter("ids", messageIds)
+					.executeUpdate();
+			tx.commit();
+			UnreadCounters.get().add(userId, -updated);
+			return updated;
 		} catch (Exception e) {
 			if (tx.isActive()) tx.rollback();
 			throw e;
@@ -183,6 +271,7 @@ public class MessageService {
 			}
 			em.remove(m);
 			tx.commit();
+			if (!m.isRead()) UnreadCounters.get().add(currentUser.getId(), -1);
 			return true;
 		} catch (Exception e) {
 			if (tx.isActive()) tx.rollback();
@@ -217,6 +306,8 @@ public class MessageService {
 			}
 			em.remove(m);
 			tx.commit();
+			//the message is gone from the recipient's inbox as well
+			if (!m.isRead() && m.getRecipient() != null) UnreadCounters.get().add(m.getRecipient().getId(), -1);
 			return true;
 		} catch (Exception e) {
 			if (tx.isActive()) tx.rollback();
@@ -0,0 +1,37 @@
+package com.petpal.service;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+
+
+/**
+ * One page of results together with the cursor that continues after it.
+ *
+ * @param <T> row type
+ */
+//=================================================== Page =====================================================================//
+
+public final class Page<T> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final List<T> items;
+
+	/** Cursor for the following page; null when this is the last page */
+	private final PageCursor next;
+
+
+	public Page(List<T> items, PageCursor next) {
+		this.items = Collections.unmodifiableList(items);
+		this.next = next;
+	}
+
+	public List<T> getItems() { return items; }
+
+	public PageCursor getNext() { return next; }
+
+	public boolean isHasMore() { return next != null; }
+}
+//===============================================================================================================================//
@@ -0,0 +1,50 @@
+package com.petpal.service;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+
+
+/**
+ * Keyset ("seek") pagination cursor: the sort value and id of the last row of the previous page.
+ * The next page continues strictly after (sortValue, id) in the current sort order. For the animal search
+ * that is a key into the order of the in-memory {@link AnimalCatalog} (rows before it are skipped in the scan,
+ * never counted off); for the message folders, the seek predicate of the folder query (no OFFSET).
+ */
+//================================================ Page Cursor ==================================================================//
+
+public final class PageCursor implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Value of the sort column in the last row (LocalDateTime, a catalog sort key (Long), a name or a score) */
+	private final Serializable sortValue;
+
+	/** Id of the last row - the tie-breaker for equal sort values */
+	private final Long lastId;
+
+
+	public PageCursor(Serializable sortValue, Long lastId) {
+		this.sortValue = sortValue;
+		this.lastId = lastId;
+	}
+
+	public Serializable getSortValue() { return sortValue; }
+
+	public Long getLastId() { return lastId; }
+
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof PageCursor)) return false;
+		PageCursor c = (PageCursor) o;
+		return Objects.equals(sortValue, c.sortValue) && Objects.equals(lastId, c.lastId);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(sortValue, lastId);
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,175 @@
+package com.petpal.service;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.sql.DataSource;
+
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+
+
+/**
+ * Application-wide holder of the JPA EntityManagerFactory and its connection pool.
+ *
+ * Responsibilities:
+ *  - Bootstrap the persistence unit "PetPalPU" exactly once (one metamodel, one pool),
+ *    bringing the schema up to date first (see {@link SchemaMigrator}).
+ *  - Hand out EntityManagers to every service, bean and servlet.
+ *  - Expose the underlying pooled DataSource and its live statistics, and the second-level cache statistics.
+ *  - Close the factory (and the pool) when the web application is undeployed.
+ *
+ * Notes:
+ *  - The pool itself is HikariCP, configured through the "hibernate.hikari.*" properties in persistence.xml.
+ *  - The factory is created lazily on first use (holder idiom), so it is thread-safe without locking.
+ */
+//============================================= Persistence Manager =============================================================//
+
+public final class PersistenceManager {
+
+	/** Name of the persistence unit declared in META-INF/persistence.xml */
+	public static final String PERSISTENCE_UNIT = "PetPalPU";
+
+
+	/** Set once the factory has been bootstrapped (so shutdown does not create one just to close it). */
+	private static volatile boolean initialized = false;
+
+
+	private PersistenceManager() {}
+
+
+	/** Lazily-initialized holder: the JVM guarantees a single, safely published instance. */
+	private static final class Holder {
+		private static final EntityManagerFactory EMF = bootstrap();
+		static { initialized = true; }
+	}
+
+
+	/**
+	 * Create the factory and apply pending schema migrations through its pool,
+	 * before any EntityManager is handed out (hbm2ddl is off; Flyway owns the schema).
+	 */
+	private static EntityManagerFactory bootstrap() {
+		EntityManagerFactory emf = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT);
+		if (SchemaMigrator.migrateOnStartup()) {
+			try {
+				SchemaMigrator.migrate(dataSourceOf(emf));
+			} catch (RuntimeException e) {
+				emf.close();
+				throw e;
+			}
+		}
+		return emf;
+	}
+
+
+
+	//***************************************** Entity Managers *********************************************//
+
+
+	/**
+	 * @return the single EntityManagerFactory of the application
+	 */
+	public static EntityManagerFactory getEntityManagerFactory() {
+		return Holder.EMF;
+	}
+
+
+	/**
+	 * Open a new EntityManager backed by the shared connection pool.
+	 * The caller is responsible for closing it (usually in a finally block).
+	 *
+	 * @return a new EntityManager
+	 */
+	public static EntityManager createEntityManager() {
+		return Holder.EMF.createEntityManager();
+	}
+
+
+
+	//***************************************** Connection Pool *********************************************//
+
+
+	/**
+	 * The pooled DataSource that Hibernate draws its connections from.
+	 * Useful for plain JDBC work that should share the same pool.
+	 *
+	 * @return the application DataSource
+	 */
+	public static DataSource getDataSource() {
+		return dataSourceOf(Holder.EMF);
+	}
+
+
+	private static DataSource dataSourceOf(EntityManagerFactory emf) {
+		return emf.unwrap(SessionFactoryImplementor.class)
+				.getServiceRegistry()
+				.getService(ConnectionProvider.class)
+				.unwrap(DataSource.class);
+	}
+
+
+	/**
+	 * Live pool statistics (active/idle/total connections and threads awaiting a connection).
+	 * The same bean is also registered in JMX under "com.zaxxer.hikari:type=Pool (PetPalPool)".
+	 *
+	 * @return the pool MXBean, or null if the pool is not HikariCP
+	 */
+	public static HikariPoolMXBean getPoolStats() {
+		DataSource ds = getDataSource();
+		if (ds instanceof HikariDataSource) {
+			return ((HikariDataSource) ds).getHikariPoolMXBean();
+		}
+		return null;
+	}
+
+
+
+	//***************************************** Second-Level Cache *********************************************//
+
+
+	/**
+	 * Hibernate statistics (enabled by hibernate.generate_statistics), including second-level and query cache
+	 * hit/miss/put counts. The cache regions themselves are configured in ehcache.xml.
+	 *
+	 * @return the live statistics of the session factory
+	 */
+	public static Statistics getStatistics() {
+		return Holder.EMF.unwrap(SessionFactoryImplementor.class).getStatistics();
+	}
+
+
+	/**
+	 * Statistics of one cache region, e.g. "com.petpal.model.Category" or "default-query-results-region".
+	 *
+	 * @param region region name
+	 * @return hit/miss/put counts and size of the region, or null if there is no such region
+	 */
+	public static CacheRegionStatistics getCacheRegionStats(String region) {
+		return getStatistics().getCacheRegionStatistics(region);
+	}
+
+
+
+	//***************************************** Shutdown *********************************************//
+
+
+	/**
+	 * Close the factory and release every pooled connection.
+	 * Called once when the web application stops.
+	 */
+	public static void shutdown() {
+		if (!initialized) return;
+		EntityManagerFactory emf = Holder.EMF;
+		if (emf.isOpen()) {
+			emf.close();
+		}
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,222 @@
+package com.petpal.service;
+
+import com.petpal.model.Animal;
+import com.petpal.model.User;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+
+/**
+ * Delivers the matches of saved searches ({@link SearchPercolator}) to the users' inboxes, in batches.
+ *
+ * How:
+ *  - Matches are collected in memory per user; savedsearch.deliveryDelaySeconds after the first one,
+ *    every user with matches gets one message listing all of them (however many animals were added meanwhile,
+ *    e.g. by a bulk import), sent by the system account ({@link UserService#findSystemUser}).
+ *  - All the messages of a batch are written with one JDBC batch per DELIVERY_CHUNK messages;
+ *    the recipients' {@link UnreadCounters} are raised after each commit.
+ *  - An animal deleted before the delivery is left out; a message whose animal is gone is not written
+ *    (INSERT ... SELECT from animals).
+ *
+ * Notes:
+ *  - Pending matches are kept in memory only: a failed write is logged and its matches are dropped,
+ *    and whatever is pending at shutdown is written by {@link #stop()}.
+ */
+//============================================ Saved Search Delivery ============================================================//
+
+public final class SavedSearchDelivery implements CatalogListener {
+
+	private static final Logger LOG = Logger.getLogger(SavedSearchDelivery.class.getName());
+
+	private static final long DELAY_SECONDS = AppConfig.getLong("savedsearch.deliveryDelaySeconds", 60);
+
+	/** Animals listed per message; the rest are only counted */
+	private static final int MAX_LISTED = AppConfig.getInt("savedsearch.maxAnimalsPerMessage", 20);
+
+	/** Messages per JDBC batch and commit */
+	private static final int DELIVERY_CHUNK = 500;
+
+	private static final String INSERT_MESSAGE =
+			"INSERT INTO messages (content, isRead, subject, `timestamp`, animal_id, recipient_id, sender_id) " +
+			"SELECT ?, b'0', ?, ?, a.id, ?, ? FROM animals a WHERE a.id = ?";
+
+	private static final SavedSearchDelivery INSTANCE = new SavedSearchDelivery();
+
+
+	/** One new animal for a user, and the first of the user's searches it matched */
+	private static final class Found {
+		final long animalId;
+		final String animalName;
+		final String categoryName;
+		final String searchName;
+
+		Found(long animalId, String animalName, String categoryName, String searchName) {
+			this.animalId = animalId;
+			this.animalName = animalName;
+			this.categoryName = categoryName;
+			this.searchName = searchName;
+		}
+	}
+
+
+	/** Matches not delivered yet: user -> animal -> match, in arrival order (guarded by this) */
+	private Map<Long, LinkedHashMap<Long, Found>> pending = new HashMap<>();
+	private ScheduledFuture<?> scheduled;
+
+	private volatile Long senderId;
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "petpal-saved-search-delivery");
+		t.setDaemon(true);
+		return t;
+	});
+
+
+	private SavedSearchDelivery() {
+		CatalogEvents.addListener(this);
+	}
+
+	public static SavedSearchDelivery get() {
+		return INSTANCE;
+	}
+
+
+
+	//***************************************** Collecting *********************************************//
+
+	/** Queue the matches of a new animal for the next delivery */
+	synchronized void enqueue(Animal animal, List<SearchPercolator.Match> matches) {
+		String categoryName = (animal.getCategory() != null) ? animal.getCategory().getName() : null;
+		for (SearchPercolator.Match m : matches) {
+			pending.computeIfAbsent(m.userId, k -> new LinkedHashMap<>())
+					.putIfAbsent(animal.getId(), new Found(animal.getId(), animal.getName(), categoryName, m.searchName));
+		}
+		if (scheduled == null) {
+			try {
+				scheduled = executor.schedule(this::deliver, DELAY_SECONDS, TimeUnit.SECONDS);
+			} catch (RejectedExecutionException e) {
+				// shutting down: stop() delivers what is pending
+			}
+		}
+	}
+
+	@Override
+	public synchronized void animalDeleted(Long animalId, Long categoryId) {
+		pending.values().removeIf(found -> {
+			found.remove(animalId);
+			return found.isEmpty();
+		});
+	}
+
+	/** Deliver what is pending now and stop (called at application shutdown) */
+	public void stop() {
+		executor.shutdownNow();
+		deliver();
+	}
+
+
+
+	//***************************************** Delivery *********************************************//
+
+	private void deliver() {
+		Map<Long, LinkedHashMap<Long, Found>> batch;
+		synchronized (this) {
+			batch = pending;
+			pending = new HashMap<>();
+			scheduled = null;
+		}
+		if (batch.isEmpty()) return;
+
+		long started = System.currentTimeMillis();
+		try {
+			Long sender = sender();
+			if (sender == null) {
+				LOG.warning("Saved searches: no system account (migration V10); " + batch.size() + " messages dropped");
+				return;
+			}
+			write(sender, batch);
+			LOG.fine("Saved searches: " + batch.size() + " messages delivered in "
+					+ (System.currentTimeMillis() - started) + " ms");
+		} catch (SQLException | RuntimeException e) {
+			LOG.log(Level.WARNING, "Saved searches: delivery of " + batch.size() + " messages failed", e);
+		}
+	}
+
+	private Long sender() {
+		if (senderId == null) {
+			User system = new UserService().findSystemUser();
+			if (system != null) senderId = system.getId();
+		}
+		return senderId;
+	}
+
+	private static void write(long senderId, Map<Long, LinkedHashMap<Long, Found>> batch) throws SQLException {
+		Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+		try (Connection con = PersistenceManager.getDataSource().getConnection();
+				PreparedStatement ps = con.prepareStatement(INSERT_MESSAGE)) {
+			con.setAutoCommit(false);
+			List<Long> recipients = new ArrayList<>(DELIVERY_CHUNK);
+			for (Map.Entry<Long, LinkedHashMap<Long, Found>> e : batch.entrySet()) {
+				List<Found> found = new ArrayList<>(e.getValue().values());
+				ps.setString(1, content(found));
+				ps.setString(2, subject(found.size()));
+				ps.setTimestamp(3, now);
+				ps.setLong(4, e.getKey());
+				ps.setLong(5, senderId);
+				ps.setLong(6, found.get(found.size() - 1).animalId); // the newest
+				ps.addBatch();
+				recipients.add(e.getKey());
+				if (recipients.size() == DELIVERY_CHUNK) flush(con, ps, recipients);
+			}
+			if (!recipients.isEmpty()) flush(con, ps, recipients);
+		}
+	}
+
+	/** Execute and commit the batched messages, then count them as unread for their recipients */
+	private static void flush(Connection con, PreparedStatement ps, List<Long> recipients) throws SQLException {
+		int[] written = ps.executeBatch();
+		con.commit();
+		for (int i = 0; i < written.length; i++) {
+			// 0 rows: the animal was deleted meanwhile
+			if (written[i] > 0 || written[i] == Statement.SUCCESS_NO_INFO) UnreadCounters.get().add(recipients.get(i), 1);
+		}
+		recipients.clear();
+	}
+
+
+	private static String subject(int count) {
+		return (count == 1) ? "חיה חדשה מתאימה לחיפוש ששמרת"
+				: count + " חיות חדשות מתאימות לחיפושים ששמרת";
+	}
+
+	private static String content(List<Found> found) {
+		StringBuilder sb = new StringBuilder("נוספו חיות שמתאימות לחיפושים ששמרת:\n");
+		for (int i = 0; i < found.size() && i < MAX_LISTED; i++) {
+			Found f = found.get(i);
+			sb.append("• ").append(f.animalName);
+			if (f.categoryName != null) sb.append(" (").append(f.categoryName).append(")");
+			sb.append(" — חיפוש \"").append(f.searchName).append("\"\n");
+		}
+		if (found.size() > MAX_LISTED) sb.append("ועוד ").append(found.size() - MAX_LISTED).append(" חיות.\n");
+		return sb.append("אפשר לראות אותן בדף \"צפייה בחיות\".").toString();
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,163 @@
+package com.petpal.service;
+
+import com.petpal.model.SavedSearch;
+import com.petpal.model.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+
+import java.util.List;
+
+
+
+/**
+ * Service layer for saved searches.
+ *
+ * Responsibilities:
+ *  - Save the current filters of the animals page as a named search, list and delete a user's searches.
+ *  - Keep the {@link SearchPercolator} current: every committed change is applied to it.
+ *
+ * Notes:
+ *  - A saved search needs at least one filter (otherwise every new animal would match it).
+ *  - A user keeps at most savedsearch.maxPerUser searches.
+ */
+//============================================ Saved Search Service =============================================================//
+
+public class SavedSearchService {
+
+	private static final EntityManagerFactory emf = PersistenceManager.getEntityManagerFactory();
+
+	private static final int MAX_PER_USER = AppConfig.getInt("savedsearch.maxPerUser", 20);
+
+	private static final int MAX_NAME_LENGTH = 100;
+
+
+
+
+	//***************************************** Read Operations *************************************************//
+
+
+	/**
+	 * The saved searches of a user, newest first.
+	 *
+	 * @param userId owner of the searches
+	 * @return list of saved searches (empty if none)
+	 */
+	public List<SavedSearch> listByUser(Long userId) {
+		EntityManager em = emf.createEntityManager();
+		try {
+			return em.createQuery(
+					"SELECT s FROM SavedSearch s WHERE s.user.id = :userId ORDER BY s.createdAt DESC, s.id DESC",
+					SavedSearch.class)
+					.setParameter("userId", userId)
+					.getResultList();
+		} finally { em.close(); }
+	}
+
+
+	/**
+	 * (id, user id, name, query, category id, gender, min age, max age, latitude, longitude, radius km)
+	 * of every saved search - the input of the {@link SearchPercolator}.
+	 */
+	List<Object[]> listAllForIndex() {
+		EntityManager em = emf.createEntityManager();
+		try {
+			return em.createQuery(
+					"SELECT s.id, s.user.id, s.name, s.query, s.categoryId, s.gender, s.minAge, s.maxAge, " +
+					"s.latitude, s.longitude, s.radiusKm FROM SavedSearch s", Object[].class)
+					.getResultList();
+		} finally { em.close(); }
+	}
+
+
+
+
+	//***************************************** Write Operations *********************************************//
+
+
+	/**
+	 * Save the given filters as a named search of the user (the sort order is not kept).
+	 *
+	 * @param user   the owner
+	 * @param name   a name for the search (required)
+	 * @param filter the filters of the search
+	 * @return the saved search
+	 * @throws IllegalArgumentException (user-facing message) if the name is missing or too long,
+	 *                                  the filter is empty, or the user already has the maximum number of searches
+	 */
+	public SavedSearch save(User user, String name, AnimalFilter filter) {
+		if (user == null) throw new IllegalStateException("משתמש לא מחובר");
+		String trimmed = (name != null) ? name.trim() : "";
+		if (trimmed.isEmpty()) throw new IllegalArgumentException("יש לתת שם לחיפוש");
+		if (trimmed.length() > MAX_NAME_LENGTH) {
+			throw new IllegalArgumentException("שם החיפוש ארוך מדי (עד " + MAX_NAME_LENGTH + " תווים)");
+		}
+		if (filter.getQuery() == null && filter.getCategoryId() == null && filter.getGender() == null
+				&& filter.getMinAge() == null && filter.getMaxAge() == null && filter.getRadiusKm() == null) {
+			throw new IllegalArgumentException("יש לבחור לפחות סינון אחד לפני שמירת החיפוש");
+		}
+
+		EntityManager em = emf.createEntityManager();
+		EntityTransaction tx = em.getTransaction();
+		try {
+			tx.begin();
+			Long count = em.createQuery("SELECT COUNT(s) FROM SavedSearch s WHERE s.user.id = :userId", Long.class)
+					.setParameter("userId", user.getId())
+					.getSingleResult();
+			if (count >= MAX_PER_USER) {
+				throw new IllegalArgumentException("אפשר לשמור עד " + MAX_PER_USER + " חיפושים; יש למחוק חיפוש קודם");
+			}
+
+			SavedSearch s = new SavedSearch(em.getReference(User.class, user.getId()), trimmed);
+			s.setQuery(filter.getQuery());
+			s.setCategoryId(filter.getCategoryId());
+			s.setGender(filter.getGender());
+			s.setMinAge(filter.getMinAge());
+			s.setMaxAge(filter.getMaxAge());
+			if (filter.getRadiusKm() != null) { // a location without a radius does not filter
+				s.setLatitude(filter.getLatitude());
+				s.setLongitude(filter.getLongitude());
+				s.setRadiusKm(filter.getRadiusKm());
+			}
+			em.persist(s);
+			tx.commit();
+
+			SearchPercolator.get().searchSaved(s.getId(), user.getId(), s.getName(), filter);
+			return s;
+		} catch (RuntimeException e) {
+			if (tx.isActive()) tx.rollback();
+			throw e;
+		} finally { em.close(); }
+	}
+
+
+	/**
+	 * Delete a saved search of the user.
+	 * Performs an authorization check: the user must own the search.
+	 *
+	 * @param userId   the user attempting the deletion
+	 * @param searchId id of the search to delete
+	 * @return true if deletion occurred; false if not allowed or not found
+	 */
+	public boolean delete(Long userId, Long searchId) {
+		EntityManager em = emf.createEntityManager();
+		EntityTransaction tx = em.getTransaction();
+		try {
+			tx.begin();
+			SavedSearch s = em.find(SavedSearch.class, searchId);
+			if (s == null || !s.getUser().getId().equals(userId)) {
+				tx.commit();
+				return false;
+			}
+			em.remove(s);
+			tx.commit();
+			SearchPercolator.get().searchDeleted(searchId);
+			return true;
+		} catch (RuntimeException e) {
+			if (tx.isActive()) tx.rollback();
+			throw e;
+		} finally { em.close(); }
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,102 @@
+package com.petpal.service;
+
+import com.petpal.migration.V4__Move_image_bytes_to_blob_store;
+import com.petpal.migration.V7__Gender_code;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+
+import javax.sql.DataSource;
+
+
+
+/**
+ * Versioned database migrations (Flyway), replacing hibernate.hbm2ddl.auto=update.
+ *
+ * Migrations:
+ *  - SQL scripts in src/main/resources/db/migration (V1__baseline.sql, V2__..., ...)
+ *  - Java migrations in com.petpal.migration, registered explicitly below
+ *
+ * When:
+ *  - At startup, before the first EntityManager is handed out (db.migrate.onStartup, default true).
+ *  - From the command line:
+ *      java -cp "PetPal/WEB-INF/classes:PetPal/WEB-INF/lib/*" com.petpal.service.SchemaMigrator [migrate|info|validate|repair]
+ *
+ * A database that already has tables but no history (e.g. imported from sql/petpal_db.sql) is baselined
+ * at db.migrate.baselineVersion, and only the migrations after it are applied.
+ */
+//============================================== Schema Migrator ================================================================//
+
+public final class SchemaMigrator {
+
+	private SchemaMigrator() {}
+
+
+	/** @return true if migrations should run when the application starts */
+	static boolean migrateOnStartup() {
+		return Boolean.parseBoolean(AppConfig.get("db.migrate.onStartup", "true"));
+	}
+
+
+	/**
+	 * Apply all pending migrations.
+	 *
+	 * @param dataSource connection source (the application's pool)
+	 * @return number of migrations applied
+	 */
+	public static int migrate(DataSource dataSource) {
+		return flyway(dataSource).migrate().migrationsExecuted;
+	}
+
+
+	private static Flyway flyway(DataSource dataSource) {
+		return Flyway.configure()
+				.dataSource(dataSource)
+				.locations("classpath:db/migration")
+				.javaMigrations(new V4__Move_image_bytes_to_blob_store(), new V7__Gender_code())
+				.baselineOnMigrate(true)
+				.baselineVersion(AppConfig.get("db.migrate.baselineVersion", "1"))
+				.baselineDescription("Existing PetPal schema")
+				.load();
+	}
+
+
+
+	//***************************************** Command Line *********************************************//
+
+
+	public static void main(String[] args) {
+		String command = (args.length > 0) ? args[0] : "migrate";
+
+		// the CLI decides what runs - do not migrate implicitly while bootstrapping the pool
+		System.setProperty("db.migrate.onStartup", "false");
+		try {
+			Flyway flyway = flyway(PersistenceManager.getDataSource());
+			switch (command) {
+			case "migrate":
+				System.out.println("Applied " + flyway.migrate().migrationsExecuted + " migration(s).");
+				break;
+			case "validate":
+				flyway.validate();
+				System.out.println("Schema matches the migrations.");
+				break;
+			case "repair":
+				flyway.repair();
+				System.out.println("Schema history repaired.");
+				break;
+			case "info":
+				for (MigrationInfo m : flyway.info().all()) {
+					System.out.printf("%-8s %-45s %-10s %s%n", m.getVersion(), m.getDescription(), m.getState(),
+							m.getInstalledOn() != null ? m.getInstalledOn() : "");
+				}
+				break;
+			default:
+				System.err.println("Usage: SchemaMigrator [migrate|info|validate|repair]");
+				System.exit(2);
+			}
+		} finally {
+			PersistenceManager.shutdown();
+		}
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,177 @@
+package com.petpal.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.petpal.model.AnimalCard;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+
+/**
+ * In-process cache of animal search pages, keyed by the normalized filter + cursor + page size.
+ *
+ * How:
+ *  - Caffeine cache, bounded by entry count (W-TinyLFU eviction) and expiring entries after a TTL
+ *    (search.cache.maxEntries, search.cache.ttlSeconds).
+ *  - {@link #invalidateCategory(Long)} is called after an animal is saved/deleted; it drops exactly the pages
+ *    whose filter could contain that animal: pages of that category and pages without a category filter.
+ *  - A version counter guards against a search that started before a write and finishes after its invalidation:
+ *    such a result is returned to its caller but not cached.
+ *
+ * Statistics are exposed through {@link SearchCacheMXBean}.
+ */
+//=============================================== Search Cache ==================================================================//
+
+public final class SearchCache implements SearchCacheMXBean {
+
+	private static final Logger LOG = Logger.getLogger(SearchCache.class.getName());
+
+	private static final SearchCache INSTANCE = new SearchCache();
+
+	private final Cache<Key, Page<AnimalCard>> cache = Caffeine.newBuilder()
+			.maximumSize(AppConfig.getLong("search.cache.maxEntries", 2000))
+			.expireAfterWrite(AppConfig.getLong("search.cache.ttlSeconds", 120), TimeUnit.SECONDS)
+			.recordStats()
+			.build();
+
+	/** Incremented by every invalidation */
+	private final AtomicLong version = new AtomicLong();
+
+	private final LongAdder invalidations = new LongAdder();
+
+	private ObjectName jmxName;
+
+
+	private SearchCache() {}
+
+	public static SearchCache get() {
+		return INSTANCE;
+	}
+
+
+
+	//***************************************** Lookup *********************************************//
+
+	/**
+	 * Return the cached page, or run the query and cache its result.
+	 *
+	 * @param loader runs the actual database search
+	 */
+	public Page<AnimalCard> getOrLoad(AnimalFilter filter, PageCursor after, int pageSize,
+			Supplier<Page<AnimalCard>> loader) {
+		Key key = new Key(filter, after, pageSize);
+		Page<AnimalCard> page = cache.getIfPresent(key);
+		if (page != null) return page;
+
+		long before = version.get();
+		page = loader.get();
+		if (version.get() == before) {
+			cache.put(key, page);
+		}
+		return page;
+	}
+
+
+
+	//***************************************** Invalidation *********************************************//
+
+	/**
+	 * Drop the pages that may include animals of the given category.
+	 * Call after the write has committed.
+	 *
+	 * @param categoryId category of the saved/deleted animal (null = unknown, drops everything)
+	 */
+	public void invalidateCategory(Long categoryId) {
+		version.incrementAndGet();
+		invalidations.increment();
+		if (categoryId == null) {
+			cache.invalidateAll();
+			return;
+		}
+		cache.asMap().keySet().removeIf(k ->
+				k.filter.getCategoryId() == null || categoryId.equals(k.filter.getCategoryId()));
+	}
+
+	@Override
+	public void invalidateAll() {
+		version.incrementAndGet();
+		invalidations.increment();
+		cache.invalidateAll();
+	}
+
+
+
+	//***************************************** JMX *********************************************//
+
+	/** Register the statistics MXBean (called once at application startup) */
+	public void registerMBean() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName("com.petpal:type=SearchCache");
+			if (!server.isRegistered(name)) server.registerMBean(this, name);
+			jmxName = name;
+		} catch (JMException e) {
+			LOG.log(Level.WARNING, "Cannot register the search cache MBean", e);
+		}
+	}
+
+	/** Unregister on shutdown so a redeploy does not leak this class loader */
+	public void unregisterMBean() {
+		if (jmxName == null) return;
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(jmxName);
+		} catch (JMException e) {
+			// already gone
+		}
+		jmxName = null;
+	}
+
+	@Override public long getHitCount()          { return cache.stats().hitCount(); }
+	@Override public long getMissCount()         { return cache.stats().missCount(); }
+	@Override public double getHitRate()         { return cache.stats().hitRate(); }
+	@Override public long getEvictionCount()     { return cache.stats().evictionCount(); }
+	@Override public long getInvalidationCount() { return invalidations.sum(); }
+	@Override public long getSize()              { return cache.estimatedSize(); }
+
+
+
+	//***************************************** Key *********************************************//
+
+	private static final class Key {
+		final AnimalFilter filter;
+		final PageCursor after;
+		final int pageSize;
+
+		Key(AnimalFilter filter, PageCursor after, int pageSize) {
+			this.filter = filter;
+			this.after = after;
+			this.pageSize = pageSize;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			Key k = (Key) o;
+			return pageSize == k.pageSize && filter.equals(k.filter) && Objects.equals(after, k.after);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(filter, after, pageSize);
+		}
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,27 @@
+package com.petpal.service;
+
+
+
+/**
+ * JMX view of the animal search cache (registered as "com.petpal:type=SearchCache", visible in JConsole/VisualVM).
+ */
+//============================================ Search Cache MXBean ==============================================================//
+
+public interface SearchCacheMXBean {
+
+	long getHitCount();
+
+	long getMissCount();
+
+	double getHitRate();
+
+	long getEvictionCount();
+
+	long getInvalidationCount();
+
+	long getSize();
+
+	/** Drop every cached page */
+	void invalidateAll();
+}
+//===============================================================================================================================//
@@ -0,0 +1,333 @@
+package com.petpal.service;
+
+import com.petpal.model.Animal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+
+
+/**
+ * Matches every new animal against all saved searches at once (a "percolator": the searches are indexed,
+ * and the animal is the query).
+ *
+ * How:
+ *  - Every saved search gets a slot; each filter is an inverted index from the value it asks for to a bitmap
+ *    of slots (category, gender, minimum and maximum age), plus a bitmap of the slots without that filter.
+ *  - A new animal looks up its own values: the searches that accept it are the AND of one small OR per filter,
+ *    e.g. (no category ∪ its category) ∩ (no minimum age ∪ minimum ≤ its age) ∩ ...; no search is visited
+ *    one by one.
+ *  - Text: every word of a saved query is indexed under its {@link HebrewAnalyzer#forms}; the animal's
+ *    name and descriptions mark the words they contain, and a search matches when all its words are marked
+ *    (the same rule as the text search of the animals page).
+ *  - Distance: only the searches left after the other filters that have a radius are measured.
+ *  - Matches go to {@link SavedSearchDelivery}, which writes them to the users' inboxes in batches.
+ *  - Loaded from the database on first use (or at startup), kept current by {@link SavedSearchService}.
+ *
+ * Notes:
+ *  - Matching shares a read lock; saving / deleting a search takes the write lock.
+ *  - A search never matches its own user's animals.
+ *  - Words after the first MAX_WORDS of a query are ignored.
+ */
+//============================================== Search Percolator ==============================================================//
+
+public final class SearchPercolator implements CatalogListener {
+
+	private static final Logger LOG = Logger.getLogger(SearchPercolator.class.getName());
+
+	private static final SearchPercolator INSTANCE = new SearchPercolator();
+
+	/** Words per query (one bit each in a long) */
+	private static final int MAX_WORDS = 64;
+
+
+	/** (slot, word) pairs of one word form, packed as slot * 64 + word (unordered) */
+	private static final class Entries {
+		int[] packed = new int[2];
+		int size;
+
+		void add(int slot, int word) {
+			if (size == packed.length) packed = Arrays.copyOf(packed, size * 2);
+			packed[size++] = slot * MAX_WORDS + word;
+		}
+
+		void removeSlot(int slot) {
+			for (int i = 0; i < size; ) {
+				if (packed[i] / MAX_WORDS == slot) packed[i] = packed[--size];
+				else i++;
+			}
+		}
+	}
+
+
+	/** One search that accepts a new animal */
+	static final class Match {
+		final long searchId;
+		final long userId;
+		final String searchName;
+
+		Match(long searchId, long userId, String searchName) {
+			this.searchId = searchId;
+			this.userId = userId;
+			this.searchName = searchName;
+		}
+	}
+
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// per slot
+	private long[] searchIds = new long[64];
+	private long[] userIds = new long[64];
+	private String[] names = new String[64];
+	private String[][] words = new String[64][];
+	private double[] latitudes = new double[64];
+	private double[] longitudes = new double[64];
+	private double[] radiiKm = new double[64];
+	private final BitSet live = new BitSet();
+	private final Map<Long, Integer> slotBySearch = new HashMap<>();
+
+	// inverted indexes: value asked for -> slots; and the slots without the filter
+	private final Map<Long, BitSet> byCategory = new HashMap<>();
+	private final BitSet anyCategory = new BitSet();
+	private final Map<String, BitSet> byGender = new HashMap<>();
+	private final BitSet anyGender = new BitSet();
+	private final TreeMap<Integer, BitSet> byMinAge = new TreeMap<>();
+	private final BitSet noMinAge = new BitSet();
+	private final TreeMap<Integer, BitSet> byMaxAge = new TreeMap<>();
+	private final BitSet noMaxAge = new BitSet();
+	private final Map<String, Entries> byForm = new HashMap<>();
+	private final BitSet noText = new BitSet();
+	private final BitSet withRadius = new BitSet();
+
+	private final LoadJournal journal = new LoadJournal(lock.writeLock());
+
+
+	private SearchPercolator() {
+		CatalogEvents.addListener(this);
+	}
+
+	public static SearchPercolator get() {
+		return INSTANCE;
+	}
+
+
+
+	//***************************************** Loading *********************************************//
+
+	/**
+	 * Index all saved searches unless already done.
+	 * Searches saved or deleted while they are read go through the {@link LoadJournal}.
+	 */
+	public void ensureLoaded() {
+		if (journal.isLoaded()) return;
+		long started = System.currentTimeMillis();
+		journal.load(() -> {
+			for (Object[] row : new SavedSearchService().listAllForIndex()) {
+				addLocked((Long) row[0], (Long) row[1], (String) row[2], new AnimalFilter((String) row[3], (Long) row[4],
+						(String) row[5], (Integer) row[6], (Integer) row[7], (Double) row[8], (Double) row[9],
+						(Integer) row[10], null, null));
+			}
+		}, () -> LOG.info("Search percolator: " + slotBySearch.size() + " saved searches, " + byForm.size()
+				+ " word forms in " + (System.currentTimeMillis() - started) + " ms"));
+	}
+
+
+
+	//***************************************** Updates *********************************************//
+
+	/** A search was saved (called after the commit) */
+	void searchSaved(long searchId, long userId, String name, AnimalFilter filter) {
+		journal.apply(() -> addLocked(searchId, userId, name, filter));
+	}
+
+	/** A search was deleted (called after the commit) */
+	void searchDeleted(long searchId) {
+		journal.apply(() -> removeLocked(searchId));
+	}
+
+
+	private void addLocked(long searchId, long userId, String name, AnimalFilter filter) {
+		removeLocked(searchId); // re-adding replaces
+		int slot = live.nextClearBit(0);
+		ensureCapacity(slot + 1);
+		live.set(slot);
+		slotBySearch.put(searchId, slot);
+		searchIds[slot] = searchId;
+		userIds[slot] = userId;
+		names[slot] = name;
+
+		if (filter.getCategoryId() != null) byCategory.computeIfAbsent(filter.getCategoryId(), k -> new BitSet()).set(slot);
+		else anyCategory.set(slot);
+		if (filter.getGender() != null) byGender.computeIfAbsent(filter.getGender(), k -> new BitSet()).set(slot);
+		else anyGender.set(slot);
+		if (filter.getMinAge() != null) byMinAge.computeIfAbsent(filter.getMinAge(), k -> new BitSet()).set(slot);
+		else noMinAge.set(slot);
+		if (filter.getMaxAge() != null) byMaxAge.computeIfAbsent(filter.getMaxAge(), k -> new BitSet()).set(slot);
+		else noMaxAge.set(slot);
+
+		List<String> queryWords = (filter.getQuery() != null)
+				? new ArrayList<>(new LinkedHashSet<>(HebrewAnalyzer.tokens(filter.getQuery()))) : new ArrayList<>();
+		if (queryWords.size() > MAX_WORDS) queryWords = queryWords.subList(0, MAX_WORDS);
+		words[slot] = queryWords.toArray(new String[0]);
+		if (queryWords.isEmpty()) noText.set(slot);
+		for (int w = 0; w < queryWords.size(); w++) {
+			for (String form : HebrewAnalyzer.forms(queryWords.get(w))) {
+				byForm.computeIfAbsent(form, k -> new Entries()).add(slot, w);
+			}
+		}
+
+		if (filter.getRadiusKm() != null) {
+			withRadius.set(slot);
+			latitudes[slot] = filter.getLatitude();
+			longitudes[slot] = filter.getLongitude();
+			radiiKm[slot] = filter.getRadiusKm();
+		}
+	}
+
+	private void removeLocked(long searchId) {
+		Integer boxed = slotBySearch.remove(searchId);
+		if (boxed == null) return;
+		int slot = boxed;
+		live.clear(slot);
+		clear(byCategory, anyCategory, slot);
+		clear(byGender, anyGender, slot);
+		clear(byMinAge, noMinAge, slot);
+		clear(byMaxAge, noMaxAge, slot);
+		for (String word : words[slot]) {
+			for (String form : HebrewAnalyzer.forms(word)) {
+				Entries e = byForm.get(form);
+				if (e == null) continue;
+				e.removeSlot(slot);
+				if (e.size == 0) byForm.remove(form);
+			}
+		}
+		noText.clear(slot);
+		withRadius.clear(slot);
+		names[slot] = null;
+		words[slot] = null;
+	}
+
+	/** Clear the slot in every bitmap of the index, dropping the bitmaps left empty */
+	private static <K> void clear(Map<K, BitSet> index, BitSet none, int slot) {
+		none.clear(slot);
+		index.values().removeIf(bits -> {
+			bits.clear(slot);
+			return bits.isEmpty();
+		});
+	}
+
+	private void ensureCapacity(int slots) {
+		if (slots <= searchIds.length) return;
+		int n = Math.max(slots, searchIds.length * 2);
+		searchIds = Arrays.copyOf(searchIds, n);
+		userIds = Arrays.copyOf(userIds, n);
+		names = Arrays.copyOf(names, n);
+		words = Arrays.copyOf(words, n);
+		latitudes = Arrays.copyOf(latitudes, n);
+		longitudes = Arrays.copyOf(longitudes, n);
+		radiiKm = Arrays.copyOf(radiiKm, n);
+	}
+
+
+
+	//***************************************** Matching *********************************************//
+
+	/** Match every new animal and hand the matches to the delivery (on the saving thread: matching is quick) */
+	@Override
+	public void animalAdded(Animal animal) {
+		ensureLoaded();
+		List<Match> matches = match(animal);
+		if (!matches.isEmpty()) SavedSearchDelivery.get().enqueue(animal, matches);
+	}
+
+
+	/** The saved searches that accept the animal (never those of its owner) */
+	List<Match> match(Animal animal) {
+		lock.readLock().lock();
+		try {
+			Long categoryId = (animal.getCategory() != null) ? animal.getCategory().getId() : null;
+			BitSet accepted = or(anyCategory, (categoryId != null) ? byCategory.get(categoryId) : null);
+			accepted.and(or(anyGender, (animal.getGender() != null) ? byGender.get(animal.getGender()) : null));
+			if (accepted.isEmpty()) return new ArrayList<>();
+
+			BitSet age = (BitSet) noMinAge.clone();
+			for (BitSet b : byMinAge.headMap(animal.getAge(), true).values()) age.or(b);
+			accepted.and(age);
+			age = (BitSet) noMaxAge.clone();
+			for (BitSet b : byMaxAge.tailMap(animal.getAge(), true).values()) age.or(b);
+			accepted.and(age);
+
+			BitSet needText = (BitSet) accepted.clone();
+			needText.andNot(noText);
+			if (!needText.isEmpty()) {
+				accepted.andNot(needText);
+				accepted.or(textMatches(animal, needText));
+			}
+
+			boolean located = Geo.isValid(animal.getLatitude(), animal.getLongitude());
+			BitSet near = (BitSet) accepted.clone();
+			near.and(withRadius);
+			for (int slot = near.nextSetBit(0); slot >= 0; slot = near.nextSetBit(slot + 1)) {
+				if (!located || Geo.distanceKm(latitudes[slot], longitudes[slot],
+						animal.getLatitude(), animal.getLongitude()) > radiiKm[slot]) {
+					accepted.clear(slot);
+				}
+			}
+
+			long ownerId = (animal.getOwner() != null) ? animal.getOwner().getId() : 0;
+			List<Match> out = new ArrayList<>(accepted.cardinality());
+			for (int slot = accepted.nextSetBit(0); slot >= 0; slot = accepted.nextSetBit(slot + 1)) {
+				if (userIds[slot] == ownerId) continue;
+				out.add(new Match(searchIds[slot], userIds[slot], names[slot]));
+			}
+			return out;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/** Of the given slots, those whose every query word is found in the animal's text */
+	private BitSet textMatches(Animal animal, BitSet candidates) {
+		Set<String> forms = new HashSet<>();
+		for (String text : new String[] { animal.getName(), animal.getShortDescription(), animal.getFullDescription() }) {
+			for (String token : HebrewAnalyzer.tokens(text)) forms.addAll(HebrewAnalyzer.forms(token));
+		}
+
+		Map<Integer, Long> found = new HashMap<>();
+		for (String form : forms) {
+			Entries e = byForm.get(form);
+			if (e == null) continue;
+			for (int i = 0; i < e.size; i++) {
+				int slot = e.packed[i] / MAX_WORDS;
+				if (!candidates.get(slot)) continue;
+				found.merge(slot, 1L << (e.packed[i] % MAX_WORDS), (a, b) -> a | b);
+			}
+		}
+
+		BitSet out = new BitSet();
+		for (Map.Entry<Integer, Long> f : found.entrySet()) {
+			int n = words[f.getKey()].length;
+			long all = (n == MAX_WORDS) ? -1L : (1L << n) - 1;
+			if (f.getValue() == all) out.set(f.getKey());
+		}
+		return out;
+	}
+
+	private static BitSet or(BitSet a, BitSet b) {
+		BitSet out = (BitSet) a.clone();
+		if (b != null) out.or(b);
+		return out;
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,425 @@
+package com.petpal.service;
+
+import com.petpal.model.Animal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+
+
+/**
+ * "People who saved this also saved…": an item-item co-occurrence model over the favorites.
+ *
+ * How:
+ *  - For every favorited animal, a sparse row counts, for each other animal, the users who saved both
+ *    (primitive long-keyed maps, no boxing); next to it the row keeps its best similar.maxPerAnimal animals
+ *    (most shared users first, newer animals first on ties), so a lookup is one hash probe and a copy.
+ *  - Saving a favorite adds 1 to the pair counts of the new animal with each of the user's other favorites
+ *    (removing subtracts 1); only the rows touched are re-ranked, and an animal's ranking is only rescanned
+ *    when one of its best animals loses a user.
+ *  - Deleting an animal (a {@link CatalogListener} event) removes it from every user's favorites.
+ *  - Built from the database on first use (or at startup) and rebuilt every similar.rebuildMinutes, so changes
+ *    made outside this application are picked up as well. A build computes the rows in parallel on all cores,
+ *    outside the lock; changes made meanwhile are replayed on the new model before it replaces the old one.
+ *
+ * Notes:
+ *  - Reads share a read lock; updates take the write lock.
+ *  - Favorites are sets (unique per user and animal), so replaying a change already in the database is a no-op.
+ */
+//============================================ Similar Animals Index ============================================================//
+
+public final class SimilarAnimalsIndex implements CatalogListener {
+
+	private static final Logger LOG = Logger.getLogger(SimilarAnimalsIndex.class.getName());
+
+	/** Similar animals kept per animal */
+	private static final int MAX_SIMILAR = AppConfig.getInt("similar.maxPerAnimal", 12);
+
+	private static final long REBUILD_MINUTES = AppConfig.getLong("similar.rebuildMinutes", 60);
+
+	private static final long[] NO_IDS = new long[0];
+	private static final int[] NO_COUNTS = new int[0];
+
+	private static final SimilarAnimalsIndex INSTANCE = new SimilarAnimalsIndex();
+
+
+	/** Ids of a user's favorites, or of an animal's users (unordered) */
+	private static final class Ids {
+		long[] ids = new long[4];
+		int size;
+
+		void add(long id) {
+			if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+			ids[size++] = id;
+		}
+
+		boolean remove(long id) {
+			for (int i = 0; i < size; i++) {
+				if (ids[i] == id) {
+					ids[i] = ids[--size];
+					return true;
+				}
+			}
+			return false;
+		}
+
+		boolean contains(long id) {
+			for (int i = 0; i < size; i++) {
+				if (ids[i] == id) return true;
+			}
+			return false;
+		}
+	}
+
+
+	/** Co-occurrence counts of one animal with the others, and the best of them (best first) */
+	static final class Row {
+		final LongIntMap counts;
+		long[] top = NO_IDS;
+		int[] topCounts = NO_COUNTS;
+
+		Row(int expected) {
+			counts = new LongIntMap(expected);
+		}
+
+		/** Rank the whole row again */
+		void rank() {
+			long[] ids = new long[MAX_SIMILAR];
+			int[] shared = new int[MAX_SIMILAR];
+			int[] size = { 0 };
+			counts.forEach((other, count) -> {
+				int n = size[0];
+				if (n == MAX_SIMILAR && !before(count, other, shared[n - 1], ids[n - 1])) return;
+				int i = Math.min(n, MAX_SIMILAR - 1);
+				for (; i > 0 && before(count, other, shared[i - 1], ids[i - 1]); i--) {
+					ids[i] = ids[i - 1];
+					shared[i] = shared[i - 1];
+				}
+				ids[i] = other;
+				shared[i] = count;
+				if (n < MAX_SIMILAR) size[0]++;
+			});
+			top = Arrays.copyOf(ids, size[0]);
+			topCounts = Arrays.copyOf(shared, size[0]);
+		}
+
+		/** The count of one other animal went up: move it up (or into) the best, without a rescan */
+		void raised(long other, int count) {
+			int at = indexOf(other);
+			int n = top.length;
+			if (at < 0 && n == MAX_SIMILAR && !before(count, other, topCounts[n - 1], top[n - 1])) return;
+			int size = (at < 0) ? Math.min(n + 1, MAX_SIMILAR) : n;
+			long[] ids = new long[size];
+			int[] shared = new int[size];
+			int j = 0;
+			boolean placed = false;
+			for (int i = 0; i < n && j < size; i++) {
+				if (i == at) continue;
+				if (!placed && before(count, other, topCounts[i], top[i])) {
+					ids[j] = other;
+					shared[j++] = count;
+					placed = true;
+					if (j == size) break;
+				}
+				ids[j] = top[i];
+				shared[j++] = topCounts[i];
+			}
+			if (!placed) {
+				ids[j] = other;
+				shared[j] = count;
+			}
+			top = ids;
+			topCounts = shared;
+		}
+
+		/** The count of one other animal went down: only a change to the best needs a rescan */
+		void lowered(long other) {
+			if (indexOf(other) >= 0) rank();
+		}
+
+		private int indexOf(long other) {
+			for (int i = 0; i < top.length; i++) {
+				if (top[i] == other) return i;
+			}
+			return -1;
+		}
+
+		/** Order of the best: more shared users first, then the newer animal (higher id) */
+		private static boolean before(int count, long id, int otherCount, long otherId) {
+			return count > otherCount || (count == otherCount && id > otherId);
+		}
+	}
+
+
+	/** The whole model; a full build replaces it */
+	private static final class Model {
+		final LongObjectMap<Ids> byUser;
+		final LongObjectMap<Ids> byAnimal;
+		final LongObjectMap<Row> rows;
+
+		Model(LongObjectMap<Ids> byUser, LongObjectMap<Ids> byAnimal, LongObjectMap<Row> rows) {
+			this.byUser = byUser;
+			this.byAnimal = byAnimal;
+			this.rows = rows;
+		}
+
+		Model() {
+			this(new LongObjectMap<>(), new LongObjectMap<>(), new LongObjectMap<>());
+		}
+
+		void add(long userId, long animalId) {
+			Ids mine = byUser.get(userId);
+			if (mine == null) byUser.put(userId, mine = new Ids());
+			if (mine.contains(animalId)) return;
+
+			Row row = rows.get(animalId);
+			if (row == null) rows.put(animalId, row = new Row(mine.size));
+			for (int i = 0; i < mine.size; i++) {
+				long other = mine.ids[i];
+				row.counts.add(other, 1);
+				Row otherRow = rows.get(other);
+				otherRow.raised(animalId, otherRow.counts.add(animalId, 1));
+			}
+			row.rank();
+
+			mine.add(animalId);
+			Ids users = byAnimal.get(animalId);
+			if (users == null) byAnimal.put(animalId, users = new Ids());
+			users.add(userId);
+		}
+
+		void remove(long userId, long animalId) {
+			Ids mine = byUser.get(userId);
+			if (mine == null || !mine.remove(animalId)) return;
+			if (mine.size == 0) byUser.remove(userId);
+
+			Row row = rows.get(animalId);
+			for (int i = 0; i < mine.size; i++) {
+				long other = mine.ids[i];
+				row.counts.add(other, -1);
+				Row otherRow = rows.get(other);
+				otherRow.counts.add(animalId, -1);
+				otherRow.lowered(animalId);
+			}
+
+			Ids users = byAnimal.get(animalId);
+			users.remove(userId);
+			if (users.size == 0) {
+				byAnimal.remove(animalId);
+				rows.remove(animalId);
+			} else {
+				row.rank();
+			}
+		}
+
+		void removeAnimal(long animalId) {
+			Ids users = byAnimal.get(animalId);
+			if (users == null) return;
+			for (long userId : Arrays.copyOf(users.ids, users.size)) remove(userId, animalId);
+		}
+	}
+
+
+	/** A change made while a full build runs (applied again to the built model) */
+	private static final class Change {
+		final Long userId; // null = the animal was deleted
+		final long animalId;
+		final boolean added;
+
+		Change(Long userId, long animalId, boolean added) {
+			this.userId = userId;
+			this.animalId = animalId;
+			this.added = added;
+		}
+
+		void applyTo(Model m) {
+			if (userId == null) m.removeAnimal(animalId);
+			else if (added) m.add(userId, animalId);
+			else m.remove(userId, animalId);
+		}
+	}
+
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private Model model = new Model();
+
+	/** Changes since the running full build started; null when none runs (guarded by the lock) */
+	private List<Change> journal;
+
+	/** Changes that arrive during the first load */
+	private final LoadJournal loadJournal = new LoadJournal(lock.writeLock());
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "petpal-similar-animals");
+		t.setDaemon(true);
+		return t;
+	});
+
+
+	private SimilarAnimalsIndex() {
+		CatalogEvents.addListener(this);
+	}
+
+	public static SimilarAnimalsIndex get() {
+		return INSTANCE;
+	}
+
+
+
+	//***************************************** Loading *********************************************//
+
+	/**
+	 * Build the model from the database unless already done, and schedule the periodic rebuilds.
+	 * Favorites changed while the first build reads them are replayed on the model (see {@link LoadJournal}).
+	 */
+	public void ensureLoaded() {
+		if (loadJournal.isLoaded()) return;
+		long started = System.currentTimeMillis();
+		loadJournal.load(() -> model = build(), () -> {
+			LOG.info("Similar animals: " + model.rows.size() + " favorited animals, " + model.byUser.size()
+					+ " users in " + (System.currentTimeMillis() - started) + " ms");
+			executor.scheduleWithFixedDelay(this::rebuild, REBUILD_MINUTES, REBUILD_MINUTES, TimeUnit.MINUTES);
+		});
+	}
+
+	/** Stop the periodic rebuilds (called at application shutdown) */
+	public void stop() {
+		executor.shutdownNow();
+	}
+
+
+	private void rebuild() {
+		lock.writeLock().lock();
+		try {
+			journal = new ArrayList<>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		Model fresh = null;
+		long started = System.currentTimeMillis();
+		try {
+			fresh = build();
+		} catch (RuntimeException e) {
+			LOG.log(Level.WARNING, "Similar animals rebuild failed; keeping the current model", e);
+		}
+
+		lock.writeLock().lock();
+		try {
+			if (fresh != null) {
+				for (Change c : journal) c.applyTo(fresh);
+				model = fresh;
+				LOG.fine("Similar animals rebuilt in " + (System.currentTimeMillis() - started) + " ms ("
+						+ journal.size() + " changes replayed)");
+			}
+			journal = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+
+	/** Read all favorites, then count the co-occurrences of every animal in parallel (each task fills its own row) */
+	private static Model build() {
+		LongObjectMap<Ids> byUser = new LongObjectMap<>();
+		LongObjectMap<Ids> byAnimal = new LongObjectMap<>();
+		try {
+			new AnimalService().scanFavorites(row -> {
+				long userId = (Long) row[0];
+				long animalId = (Long) row[1];
+				Ids mine = byUser.get(userId);
+				if (mine == null) byUser.put(userId, mine = new Ids());
+				mine.add(animalId);
+				Ids users = byAnimal.get(animalId);
+				if (users == null) byAnimal.put(animalId, users = new Ids());
+				users.add(userId);
+			});
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		long[] animals = byAnimal.keys();
+		Row[] rows = new Row[animals.length];
+		IntStream.range(0, animals.length).parallel().forEach(i -> { // the maps are only read here
+			long animalId = animals[i];
+			Ids users = byAnimal.get(animalId);
+			Row row = new Row(users.size * 4);
+			for (int u = 0; u < users.size; u++) {
+				Ids theirs = byUser.get(users.ids[u]);
+				for (int k = 0; k < theirs.size; k++) {
+					if (theirs.ids[k] != animalId) row.counts.add(theirs.ids[k], 1);
+				}
+			}
+			row.rank();
+			rows[i] = row;
+		});
+
+		LongObjectMap<Row> byRow = new LongObjectMap<>(animals.length);
+		for (int i = 0; i < animals.length; i++) byRow.put(animals[i], rows[i]);
+		return new Model(byUser, byAnimal, byRow);
+	}
+
+
+
+	//***************************************** Updates *********************************************//
+
+	/** A favorite was saved (called after the commit) */
+	public void favoriteAdded(long userId, long animalId) {
+		update(new Change(userId, animalId, true));
+	}
+
+	/** A favorite was removed (called after the commit) */
+	public void favoriteRemoved(long userId, long animalId) {
+		update(new Change(userId, animalId, false));
+	}
+
+	@Override
+	public void animalAdded(Animal animal) {
+		// a new animal has no favorites yet
+	}
+
+	@Override
+	public void animalDeleted(Long animalId, Long categoryId) {
+		update(new Change(null, animalId, false));
+	}
+
+	private void update(Change change) {
+		loadJournal.apply(() -> {
+			change.applyTo(model);
+			if (journal != null) journal.add(change);
+		});
+	}
+
+
+
+	//***************************************** Lookup *********************************************//
+
+	/**
+	 * The animals most often saved by the users who saved this one, best first.
+	 *
+	 * @return at most limit animal ids (empty if nobody saved it together with another animal)
+	 */
+	long[] similar(long animalId, int limit) {
+		ensureLoaded();
+		lock.readLock().lock();
+		try {
+			Row row = model.rows.get(animalId);
+			if (row == null) return NO_IDS;
+			return Arrays.copyOf(row.top, Math.min(limit, row.top.length));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+}
+//===============================================================================================================================//
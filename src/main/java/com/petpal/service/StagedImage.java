@@ -0,0 +1,171 @@
+package com.petpal.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+
+
+/**
+ * An uploaded image received into a temporary file, ready to be processed and stored.
+ *
+ * How {@link #receive(Source, long)} works:
+ *  - Rejects the upload up front if its declared size is over upload.maxBytes.
+ *  - Takes one of the limited upload slots (upload.maxConcurrent), waiting at most upload.waitSeconds.
+ *  - Has the source write itself once into the staged file, then checks the magic number (see {@link ImageTypes})
+ *    by reading the first bytes of that file; an unsupported file is deleted right away.
+ *
+ * Notes:
+ *  - With a servlet upload the container has already read the whole part and spooled it (multipart-config in web.xml),
+ *    and it is the container that enforces the size limit - so the type check happens after the upload is spooled,
+ *    not while it streams in.
+ *  - Part.write moves the container's spool file into place (or copies it once when it is on another file system),
+ *    so the bytes are not copied a second time here.
+ *
+ * Closing the staged image deletes the temp file and frees the upload slot.
+ */
+//=============================================== Staged Image ==================================================================//
+
+public final class StagedImage implements AutoCloseable {
+
+	private static final long MAX_BYTES = AppConfig.getLong("upload.maxBytes", 10L * 1024 * 1024);
+
+	private static final int MAX_CONCURRENT = AppConfig.getInt("upload.maxConcurrent", 4);
+
+	private static final long WAIT_SECONDS = AppConfig.getLong("upload.waitSeconds", 10);
+
+	private static final int BUFFER_SIZE = 16 * 1024;
+
+	private static final Semaphore SLOTS = new Semaphore(MAX_CONCURRENT, true);
+
+
+	/**
+	 * Where the uploaded bytes come from, e.g. {@code file -> part.write(file.toString())} for a servlet Part.
+	 * Keeps this class (and the services) free of the servlet API.
+	 */
+	@FunctionalInterface
+	public interface Source {
+		/** Write the whole upload to the given (already created, empty) file */
+		void writeTo(Path file) throws IOException;
+
+		/**
+		 * A source that copies a stream (always closed) through one fixed-size buffer,
+		 * aborting as soon as upload.maxBytes is passed - for streams whose declared size cannot be trusted (zip entries).
+		 */
+		static Source of(InputStream in) {
+			return file -> {
+				try (InputStream src = in; OutputStream out = Files.newOutputStream(file)) {
+					byte[] buf = new byte[BUFFER_SIZE];
+					long total = 0;
+					int r;
+					while ((r = src.read(buf)) != -1) {
+						total += r;
+						if (total > MAX_BYTES) throw tooLarge();
+						out.write(buf, 0, r);
+					}
+				}
+			};
+		}
+	}
+
+
+	private final Path file;
+	private final String contentType;
+	private final long size;
+	private boolean closed;
+
+
+	private StagedImage(Path file, String contentType, long size) {
+		this.file = file;
+		this.contentType = contentType;
+		this.size = size;
+	}
+
+
+
+	//***************************************** Receive *********************************************//
+
+
+	/**
+	 * Receive an uploaded image into a temporary file.
+	 *
+	 * @param source       writes the upload into the staged file
+	 * @param declaredSize size reported by the container for the part (-1 if unknown)
+	 * @return the staged image; the caller must close it
+	 * @throws IllegalArgumentException if the file is too large or not a supported image
+	 * @throws IllegalStateException if too many uploads are in progress
+	 * @throws IOException on I/O errors
+	 */
+	public static StagedImage receive(Source source, long declaredSize) throws IOException {
+		if (declaredSize > MAX_BYTES) throw tooLarge();
+
+		acquireSlot();
+		Path tmp = null;
+		try {
+			tmp = Files.createTempFile("petpal-upload-", ".img");
+			source.writeTo(tmp);
+
+			long size = Files.size(tmp);
+			if (size > MAX_BYTES) throw tooLarge();
+
+			byte[] head = new byte[ImageTypes.HEADER_LENGTH];
+			int n = 0, r;
+			try (InputStream in = Files.newInputStream(tmp)) {
+				while (n < head.length && (r = in.read(head, n, head.length - n)) != -1) n += r;
+			}
+			String type = ImageTypes.detect(head, n);
+			if (type == null) throw new IllegalArgumentException("קובץ התמונה אינו נתמך");
+
+			return new StagedImage(tmp, type, size);
+		} catch (IOException | RuntimeException e) {
+			if (tmp != null) Files.deleteIfExists(tmp);
+			SLOTS.release();
+			throw e;
+		}
+	}
+
+
+	private static void acquireSlot() {
+		try {
+			if (!SLOTS.tryAcquire(WAIT_SECONDS, TimeUnit.SECONDS)) {
+				throw new IllegalStateException("יותר מדי העלאות מתבצעות כרגע, נסה/י שוב בעוד מספר רגעים");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("העלאת התמונה בוטלה", e);
+		}
+	}
+
+
+	private static IllegalArgumentException tooLarge() {
+		return new IllegalArgumentException("התמונה גדולה מדי (עד " + (MAX_BYTES / (1024 * 1024)) + "MB)");
+	}
+
+
+
+	//***************************************** Accessors *********************************************//
+
+	public Path getFile() { return file; }
+
+	public String getContentType() { return contentType; }
+
+	public long getSize() { return size; }
+
+
+	/** Delete the temp file and free the upload slot (idempotent). */
+	@Override
+	public void close() throws IOException {
+		if (closed) return;
+		closed = true;
+		try {
+			Files.deleteIfExists(file);
+		} finally {
+			SLOTS.release();
+		}
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,583 @@
+package com.petpal.service;
+
+import com.petpal.model.Animal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+
+/**
+ * Typeahead over animal names and category names: the most popular completions of what was typed so far,
+ * tolerating one or two typos.
+ *
+ * How:
+ *  - Names and category names are normalized by {@link HebrewAnalyzer#normalize} (niqqud, final letters, case),
+ *    so "כלבה" also completes "כלב" and "Max" completes "max".
+ *  - A name is indexed under the whole name and under each of its next words ("מלך האריות" is found by "אריות").
+ *  - The keys live in a compact, immutable array trie; every node knows the best weight (animals) below it,
+ *    so the top completions come out of a best-first walk without visiting the whole subtree.
+ *  - Typos: the trie is walked together with a Levenshtein automaton (one row of the edit-distance table per
+ *    trie level, adjacent transpositions count as one edit); branches whose row exceeds the allowed edits are cut.
+ *    Queries under 3 letters must match exactly, under 6 letters may have 1 edit, longer ones 2 (after the first letter).
+ *    Fewer edits are tried first, so a correctly typed prefix with enough completions costs one trie descent.
+ *  - Loaded from the database once, then kept current by {@link CatalogListener} events: the counts are updated
+ *    at once and the trie is rebuilt in the background, debounced (suggest.rebuildDelayMillis after the last change,
+ *    at most suggest.rebuildMaxDelayMillis after the first one).
+ *
+ * Notes:
+ *  - Lookups read the current trie through a volatile field, without locks, and never touch the database.
+ *  - Suggestions may lag a change by the rebuild delay.
+ */
+//=============================================== Suggest Index =================================================================//
+
+public final class SuggestIndex implements CatalogListener {
+
+	private static final Logger LOG = Logger.getLogger(SuggestIndex.class.getName());
+
+	private static final long REBUILD_DELAY_MILLIS = AppConfig.getLong("suggest.rebuildDelayMillis", 1000);
+
+	private static final long REBUILD_MAX_DELAY_MILLIS = AppConfig.getLong("suggest.rebuildMaxDelayMillis", 10000);
+
+	/** Keys per name: the whole name plus this many following words */
+	private static final int MAX_WORD_KEYS = 3;
+
+	private static final SuggestIndex INSTANCE = new SuggestIndex();
+
+
+	public enum Kind { NAME, CATEGORY }
+
+
+	/** One completion */
+	public static final class Suggestion {
+		private final String text;
+		private final Kind kind;
+		private final Long categoryId;
+		private final int count;
+		private final int distance;
+
+		Suggestion(String text, Kind kind, Long categoryId, int count, int distance) {
+			this.text = text;
+			this.kind = kind;
+			this.categoryId = categoryId;
+			this.count = count;
+			this.distance = distance;
+		}
+
+		/** The name / category name as written by the user who entered it */
+		public String getText() { return text; }
+		public Kind getKind() { return kind; }
+		/** Id of the suggested category (null for a name) */
+		public Long getCategoryId() { return categoryId; }
+		/** Animals with this name / in this category */
+		public int getCount() { return count; }
+		/** Edits between the query and the start of the completion (0 = exact prefix) */
+		public int getDistance() { return distance; }
+	}
+
+
+	/** A distinct name or a category, with the number of animals that have it */
+	private static final class Term {
+		String text;
+		int count;
+
+		Term(String text) {
+			this.text = text;
+		}
+	}
+
+	/** What an indexed animal contributed, to undo it on delete/update */
+	private static final class Indexed {
+		final String nameKey;
+		final Long categoryId;
+
+		Indexed(String nameKey, Long categoryId) {
+			this.nameKey = nameKey;
+			this.categoryId = categoryId;
+		}
+	}
+
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** Source of the trie (guarded by the lock) */
+	private final Map<String, Term> names = new HashMap<>();
+	private final Map<Long, Term> categories = new HashMap<>();
+	private final Map<Long, Indexed> byAnimal = new HashMap<>();
+
+	/** Pending debounced rebuild and when the oldest change not in the trie happened (guarded by the lock) */
+	private ScheduledFuture<?> pending;
+	private long firstPendingAt;
+
+	private volatile Trie trie = Trie.build(new ArrayList<>(), new ArrayList<>());
+
+	private final LoadJournal journal = new LoadJournal(lock);
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "petpal-suggest-index");
+		t.setDaemon(true);
+		return t;
+	});
+
+
+	private SuggestIndex() {
+		CatalogEvents.addListener(this);
+	}
+
+	public static SuggestIndex get() {
+		return INSTANCE;
+	}
+
+
+
+	//***************************************** Loading *********************************************//
+
+	/**
+	 * Build the index from the database unless already done (called at startup; also on first lookup).
+	 * The threads that fire catalog events meanwhile do not wait for the scan: the {@link LoadJournal} records them.
+	 */
+	public void ensureLoaded() {
+		if (journal.isLoaded()) return;
+		long started = System.currentTimeMillis();
+		journal.load(() -> {
+			try {
+				new AnimalService().scanSuggest(row ->
+						addLocked((Long) row[0], (Long) row[1], (String) row[2], (String) row[3]));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, () -> {
+			trie = buildLocked();
+			LOG.info("Suggest index: " + names.size() + " names, " + categories.size() + " categories, "
+					+ trie.nodeCount() + " trie nodes in " + (System.currentTimeMillis() - started) + " ms");
+		});
+	}
+
+	/** Stop the background rebuilds (called at application shutdown) */
+	public void stop() {
+		executor.shutdownNow();
+	}
+
+
+
+	//***************************************** Updates *********************************************//
+
+	@Override
+	public void animalAdded(Animal animal) {
+		Long categoryId = (animal.getCategory() != null) ? animal.getCategory().getId() : null;
+		String categoryName = (animal.getCategory() != null) ? animal.getCategory().getName() : null;
+		journal.apply(() -> {
+			addLocked(animal.getId(), categoryId, categoryName, animal.getName());
+			scheduleRebuildLocked();
+		});
+	}
+
+	@Override
+	public void animalDeleted(Long animalId, Long categoryId) {
+		journal.apply(() -> {
+			removeLocked(animalId);
+			scheduleRebuildLocked();
+		});
+	}
+
+
+	private void addLocked(long animalId, Long categoryId, String categoryName, String name) {
+		removeLocked(animalId); // re-adding replaces
+
+		String nameKey = HebrewAnalyzer.normalize(name);
+		if (!nameKey.isEmpty()) {
+			Term t = names.computeIfAbsent(nameKey, k -> new Term(name.trim()));
+			t.count++;
+		}
+		if (categoryId != null) {
+			Term t = categories.computeIfAbsent(categoryId, k -> new Term(categoryName));
+			if (categoryName != null) t.text = categoryName; // renamed
+			t.count++;
+		}
+		byAnimal.put(animalId, new Indexed(nameKey, categoryId));
+	}
+
+	private void removeLocked(long animalId) {
+		Indexed old = byAnimal.remove(animalId);
+		if (old == null) return;
+		Term t = names.get(old.nameKey);
+		if (t != null && --t.count <= 0) names.remove(old.nameKey);
+		if (old.categoryId != null) {
+			t = categories.get(old.categoryId);
+			if (t != null && --t.count <= 0) categories.remove(old.categoryId);
+		}
+	}
+
+
+	private void scheduleRebuildLocked() {
+		long now = System.currentTimeMillis();
+		if (pending == null || pending.isDone()) {
+			firstPendingAt = now;
+		} else {
+			pending.cancel(false);
+		}
+		long delay = Math.min(REBUILD_DELAY_MILLIS, Math.max(0, firstPendingAt + REBUILD_MAX_DELAY_MILLIS - now));
+		try {
+			pending = executor.schedule(this::rebuild, delay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// shutting down
+		}
+	}
+
+	private void rebuild() {
+		try {
+			List<String> keys = new ArrayList<>();
+			List<Entry> entries = new ArrayList<>();
+			lock.lock();
+			try {
+				collectLocked(keys, entries);
+			} finally {
+				lock.unlock();
+			}
+			trie = Trie.build(keys, entries); // sorting and building outside the lock
+		} catch (RuntimeException e) {
+			LOG.log(Level.WARNING, "Suggest index rebuild failed; serving the previous trie", e);
+		}
+	}
+
+	private Trie buildLocked() {
+		List<String> keys = new ArrayList<>();
+		List<Entry> entries = new ArrayList<>();
+		collectLocked(keys, entries);
+		return Trie.build(keys, entries);
+	}
+
+	/** Every (key, entry) pair of the current names and categories; keys.get(i) belongs to entries.get(i) */
+	private void collectLocked(List<String> keys, List<Entry> entries) {
+		for (Map.Entry<Long, Term> e : categories.entrySet()) {
+			Term t = e.getValue();
+			String key = HebrewAnalyzer.normalize(t.text);
+			if (key.isEmpty()) continue;
+			keys.add(key);
+			entries.add(new Entry(t.text, Kind.CATEGORY, e.getKey(), t.count));
+		}
+		for (Map.Entry<String, Term> e : names.entrySet()) {
+			String key = e.getKey();
+			Term t = e.getValue();
+			Entry entry = new Entry(t.text, Kind.NAME, null, t.count);
+			keys.add(key);
+			entries.add(entry);
+			int words = 0;
+			for (int i = key.indexOf(' '); i >= 0 && words < MAX_WORD_KEYS; i = key.indexOf(' ', i + 1), words++) {
+				keys.add(key.substring(i + 1));
+				entries.add(entry);
+			}
+		}
+	}
+
+
+
+	//***************************************** Lookup *********************************************//
+
+	/**
+	 * Best completions of the typed text: fewest typos first, then most animals.
+	 *
+	 * @param query what was typed so far
+	 * @param limit at most this many suggestions
+	 * @return the suggestions (empty if the query has no letters or digits)
+	 */
+	public List<Suggestion> suggest(String query, int limit) {
+		ensureLoaded();
+		String q = HebrewAnalyzer.normalize(query);
+		if (q.isEmpty() || limit <= 0) return Collections.emptyList();
+		int maxEdits = (q.length() < 3) ? 0 : (q.length() < 6) ? 1 : 2;
+		return trie.suggest(q, maxEdits, limit);
+	}
+
+
+
+	//***************************************** Trie *********************************************//
+
+	/** What a trie key stands for */
+	static final class Entry {
+		final String text;
+		final Kind kind;
+		final Long categoryId;
+		final int weight;
+
+		Entry(String text, Kind kind, Long categoryId, int weight) {
+			this.text = text;
+			this.kind = kind;
+			this.categoryId = categoryId;
+			this.weight = weight;
+		}
+	}
+
+
+	/**
+	 * Immutable trie in parallel arrays. Nodes are numbered breadth-first, so the children of a node are the
+	 * contiguous range [firstChild, firstChild + childCount) sorted by label, and every child has a higher number
+	 * than its parent. The entries of the keys ending at a node are termEntries[termStart, termEnd).
+	 */
+	static final class Trie {
+		final char[] label;
+		final int[] firstChild;
+		final int[] childCount;
+		final int[] termStart;
+		final int[] termEnd;
+		/** Highest entry weight in the subtree of the node */
+		final int[] best;
+		final int[] termEntries;
+		final Entry[] entries;
+
+		private Trie(char[] label, int[] firstChild, int[] childCount, int[] termStart, int[] termEnd, int[] best,
+				int[] termEntries, Entry[] entries) {
+			this.label = label;
+			this.firstChild = firstChild;
+			this.childCount = childCount;
+			this.termStart = termStart;
+			this.termEnd = termEnd;
+			this.best = best;
+			this.termEntries = termEntries;
+			this.entries = entries;
+		}
+
+		int nodeCount() {
+			return label.length;
+		}
+
+
+		static Trie build(List<String> keyList, List<Entry> entryList) {
+			int n = keyList.size();
+			String[] keys = keyList.toArray(new String[0]);
+			Integer[] order = new Integer[n];
+			for (int i = 0; i < n; i++) order[i] = i;
+			Arrays.sort(order, (a, b) -> keys[a].compareTo(keys[b]));
+
+			// distinct entries (a name's word keys share its entry)
+			Map<Entry, Integer> entryIndex = new IdentityHashMap<>();
+			List<Entry> distinct = new ArrayList<>();
+			int[] termEntries = new int[n];
+			String[] sorted = new String[n];
+			for (int i = 0; i < n; i++) {
+				Entry e = entryList.get(order[i]);
+				Integer idx = entryIndex.get(e);
+				if (idx == null) {
+					idx = distinct.size();
+					entryIndex.put(e, idx);
+					distinct.add(e);
+				}
+				termEntries[i] = idx;
+				sorted[i] = keys[order[i]];
+			}
+
+			int capacity = 1;
+			for (String k : sorted) capacity += k.length();
+			char[] label = new char[capacity];
+			int[] firstChild = new int[capacity];
+			int[] childCount = new int[capacity];
+			int[] termStart = new int[capacity];
+			int[] termEnd = new int[capacity];
+			// build-time only: range of sorted keys under the node, and its depth
+			int[] lo = new int[capacity];
+			int[] hi = new int[capacity];
+			int[] depth = new int[capacity];
+
+			int count = 1;
+			hi[0] = n;
+			for (int node = 0; node < count; node++) { // breadth-first: new nodes are appended behind
+				int d = depth[node];
+				int i = lo[node];
+				int end = hi[node];
+				termStart[node] = i;
+				while (i < end && sorted[i].length() == d) i++;
+				termEnd[node] = i;
+				firstChild[node] = count;
+				while (i < end) {
+					char c = sorted[i].charAt(d);
+					int j = i + 1;
+					while (j < end && sorted[j].charAt(d) == c) j++;
+					label[count] = c;
+					lo[count] = i;
+					hi[count] = j;
+					depth[count] = d + 1;
+					count++;
+					i = j;
+				}
+				childCount[node] = count - firstChild[node];
+			}
+
+			int[] best = new int[count];
+			for (int node = count - 1; node >= 0; node--) {
+				int b = 0;
+				for (int k = termStart[node]; k < termEnd[node]; k++) b = Math.max(b, distinct.get(termEntries[k]).weight);
+				for (int c = firstChild[node], last = c + childCount[node]; c < last; c++) b = Math.max(b, best[c]);
+				best[node] = b;
+			}
+
+			return new Trie(Arrays.copyOf(label, count), Arrays.copyOf(firstChild, count),
+					Arrays.copyOf(childCount, count), Arrays.copyOf(termStart, count), Arrays.copyOf(termEnd, count),
+					best, termEntries, distinct.toArray(new Entry[0]));
+		}
+
+
+		/** Node of the exact key, or -1 */
+		private int find(String key) {
+			int node = 0;
+			for (int i = 0; i < key.length() && node >= 0; i++) {
+				int from = firstChild[node];
+				int to = from + childCount[node] - 1;
+				char c = key.charAt(i);
+				node = -1;
+				while (from <= to) {
+					int mid = (from + to) >>> 1;
+					if (label[mid] < c) from = mid + 1;
+					else if (label[mid] > c) to = mid - 1;
+					else { node = mid; break; }
+				}
+			}
+			return node;
+		}
+
+
+		/** A node whose subtree completes the query with that many edits */
+		private static final class Match {
+			final int node;
+			final int distance;
+
+			Match(int node, int distance) {
+				this.node = node;
+				this.distance = distance;
+			}
+		}
+
+		/**
+		 * Walk the children of the node, each with the next row of the (restricted Damerau-)Levenshtein table
+		 * between the query and the path to the child. A child whose path is within maxEdits of the whole query
+		 * is a match; a child whose row has no cell within maxEdits cannot lead to one and is skipped.
+		 * With two edits the first letter must be right (typos there are rare, and it cuts the walk by the alphabet size).
+		 *
+		 * @param rows one reusable row per depth; rows[depth] is the row of the node
+		 */
+		private void walk(int node, int depth, char nodeLabel, int[][] rows, String q, int maxEdits,
+				List<Match> matches) {
+			int m = q.length();
+			int[] prev = rows[depth];
+			int[] prevPrev = (depth > 0) ? rows[depth - 1] : null;
+			int[] row = rows[depth + 1];
+			for (int c = firstChild[node], last = c + childCount[node]; c < last; c++) {
+				char ch = label[c];
+				if (depth == 0 && maxEdits > 1 && ch != q.charAt(0)) continue;
+				row[0] = prev[0] + 1;
+				int min = row[0];
+				// only the diagonal band |j - (depth + 1)| <= maxEdits can hold a value within maxEdits
+				int from = Math.max(1, depth + 1 - maxEdits);
+				int to = Math.min(m, depth + 1 + maxEdits);
+				for (int j = 1; j <= m; j++) {
+					if (j < from || j > to) {
+						row[j] = maxEdits + 1;
+						continue;
+					}
+					int cost = (q.charAt(j - 1) == ch) ? 0 : 1;
+					int v = Math.min(Math.min(row[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+					if (prevPrev != null && j > 1 && q.charAt(j - 1) == nodeLabel && q.charAt(j - 2) == ch) {
+						v = Math.min(v, prevPrev[j - 2] + 1); // transposition
+					}
+					row[j] = v;
+					if (v < min) min = v;
+				}
+				int distance = row[m];
+				if (distance <= maxEdits) matches.add(new Match(c, distance));
+				// below a match, only a closer match is worth finding (an exact prefix below a 1-edit one)
+				if (min <= maxEdits && min < distance) walk(c, depth + 1, ch, rows, q, maxEdits, matches);
+			}
+		}
+
+
+		/** Best-first queue item: a subtree bounded by its best weight, or a single entry */
+		private static final class Item {
+			final int distance;
+			final int weight;
+			final boolean entry;
+			final int index;
+
+			Item(int distance, int weight, boolean entry, int index) {
+				this.distance = distance;
+				this.weight = weight;
+				this.entry = entry;
+				this.index = index;
+			}
+		}
+
+		/**
+		 * Exact prefix matches first; only if they do not fill the limit, allow one edit, then two
+		 * (typing a correct prefix costs a single trie descent).
+		 */
+		List<Suggestion> suggest(String q, int maxEdits, int limit) {
+			List<Suggestion> out = Collections.emptyList();
+			int m = q.length();
+			for (int edits = 0; edits <= maxEdits && out.size() < limit; edits++) {
+				List<Match> matches = new ArrayList<>();
+				if (edits == 0) {
+					int node = find(q);
+					if (node >= 0) matches.add(new Match(node, 0));
+				} else {
+					// a path longer than m + edits cannot be within edits of the query
+					int[][] rows = new int[m + edits + 2][m + 1];
+					for (int j = 0; j <= m; j++) rows[0][j] = j;
+					walk(0, 0, '\0', rows, q, edits, matches);
+				}
+				if (!matches.isEmpty()) out = collect(matches, limit);
+			}
+			return out;
+		}
+
+
+		/** The best entries below the matched nodes */
+		private List<Suggestion> collect(List<Match> matches, int limit) {
+			// fewer edits first, then heavier; an entry before a subtree of the same weight (it is final)
+			PriorityQueue<Item> queue = new PriorityQueue<>((a, b) -> {
+				if (a.distance != b.distance) return Integer.compare(a.distance, b.distance);
+				if (a.weight != b.weight) return Integer.compare(b.weight, a.weight);
+				if (a.entry != b.entry) return a.entry ? -1 : 1;
+				return Integer.compare(a.index, b.index);
+			});
+			for (Match m : matches) queue.add(new Item(m.distance, best[m.node], false, m.node));
+
+			List<Suggestion> out = new ArrayList<>(limit);
+			BitSet emitted = new BitSet();
+			while (!queue.isEmpty() && out.size() < limit) {
+				Item it = queue.poll();
+				if (it.entry) {
+					if (emitted.get(it.index)) continue; // reached again through another key or match
+					emitted.set(it.index);
+					Entry e = entries[it.index];
+					out.add(new Suggestion(e.text, e.kind, e.categoryId, e.weight, it.distance));
+					continue;
+				}
+				int node = it.index;
+				for (int k = termStart[node]; k < termEnd[node]; k++) {
+					int idx = termEntries[k];
+					if (!emitted.get(idx)) queue.add(new Item(it.distance, entries[idx].weight, true, idx));
+				}
+				for (int c = firstChild[node], last = c + childCount[node]; c < last; c++) {
+					queue.add(new Item(it.distance, best[c], false, c));
+				}
+			}
+			return out;
+		}
+	}
+}
+//===============================================================================================================================//
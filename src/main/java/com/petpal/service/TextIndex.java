@@ -0,0 +1,358 @@
+package com.petpal.service;
+
+import com.petpal.model.Animal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+
+
+/**
+ * In-process inverted index over the animals' name, shortDescription and fullDescription, ranked with BM25.
+ *
+ * How:
+ *  - Text is split into terms by {@link HebrewAnalyzer} (niqqud / final letters / prefix forms).
+ *  - Every term maps to a postings list of (document, weighted term frequency); a match in the name counts
+ *    NAME_WEIGHT times, in the short description SHORT_WEIGHT times (a simple BM25F).
+ *  - Loaded from the database once (first use or application startup), then kept current by
+ *    {@link CatalogListener} events from AnimalService (save / delete / bulk import).
+ *  - A query matches the animals that contain every query word (in any of its forms); the score of a word is its
+ *    best-scoring form, a stripped form counting a little less than the exact one.
+ *
+ * Notes:
+ *  - Readers share a read lock; updates take the write lock (they are rare and short).
+ *  - Deleted (and replaced) documents are only marked; once they make up a quarter of the index their postings are
+ *    dropped in bulk and the live documents renumbered, so document numbers do not grow with every update.
+ */
+//================================================ Text Index ===================================================================//
+
+public final class TextIndex implements CatalogListener {
+
+	private static final Logger LOG = Logger.getLogger(TextIndex.class.getName());
+
+	private static final TextIndex INSTANCE = new TextIndex();
+
+	/** BM25 parameters: term-frequency saturation and length normalization */
+	private static final float K1 = 1.2f;
+	private static final float B = 0.75f;
+
+	private static final int NAME_WEIGHT = 3;
+	private static final int SHORT_WEIGHT = 2;
+	private static final int FULL_WEIGHT = 1;
+
+	/** Score factor of a prefix-stripped form ("לכלב" → "כלב") relative to the exact word */
+	private static final float STRIPPED_FORM_FACTOR = 0.8f;
+
+
+	/** (document, weighted tf) pairs in increasing document order */
+	private static final class Postings {
+		int[] docs = new int[4];
+		int[] tfs = new int[4];
+		int size;
+
+		void add(int doc, int tf) {
+			if (size == docs.length) {
+				docs = Arrays.copyOf(docs, size * 2);
+				tfs = Arrays.copyOf(tfs, size * 2);
+			}
+			docs[size] = doc;
+			tfs[size] = tf;
+			size++;
+		}
+
+		/** Drop the postings of documents that are no longer live */
+		void retain(BitSet live) {
+			int n = 0;
+			for (int i = 0; i < size; i++) {
+				if (!live.get(docs[i])) continue;
+				docs[n] = docs[i];
+				tfs[n] = tfs[i];
+				n++;
+			}
+			size = n;
+		}
+	}
+
+
+	/** Matching animal ids, best first, with their scores */
+	static final class Hits {
+		final long[] ids;
+		final float[] scores;
+
+		Hits(long[] ids, float[] scores) {
+			this.ids = ids;
+			this.scores = scores;
+		}
+
+		int size() { return ids.length; }
+	}
+
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<String, Postings> postings = new HashMap<>();
+
+	/** Internal document number by animal id (live documents only) */
+	private final Map<Long, Integer> docByAnimal = new HashMap<>();
+
+	/** Per document number: animal id and weighted length */
+	private long[] animalIds = new long[1024];
+	private int[] lengths = new int[1024];
+	private int docCount;
+
+	private final BitSet live = new BitSet();
+	private int liveCount;
+	private int deadCount;
+	private long totalLength;
+
+	private final LoadJournal journal = new LoadJournal(lock.writeLock());
+
+
+	private TextIndex() {
+		CatalogEvents.addListener(this);
+	}
+
+	public static TextIndex get() {
+		return INSTANCE;
+	}
+
+
+
+	//***************************************** Loading *********************************************//
+
+	/**
+	 * Build the index from the database unless already done (called at startup; also on first search).
+	 * Catalog events that arrive meanwhile are replayed by the {@link LoadJournal}.
+	 */
+	public void ensureLoaded() {
+		if (journal.isLoaded()) return;
+		long started = System.currentTimeMillis();
+		journal.load(() -> {
+			try {
+				new AnimalService().scanSearchText(row ->
+						addLocked((Long) row[0], (String) row[1], (String) row[2], (String) row[3]));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, () -> LOG.info("Text index: " + liveCount + " animals, " + postings.size() + " terms in "
+				+ (System.currentTimeMillis() - started) + " ms"));
+	}
+
+
+
+	//***************************************** Updates *********************************************//
+
+	@Override
+	public void animalAdded(Animal animal) {
+		journal.apply(() -> addLocked(animal.getId(), animal.getName(), animal.getShortDescription(), animal.getFullDescription()));
+	}
+
+	@Override
+	public void animalDeleted(Long animalId, Long categoryId) {
+		journal.apply(() -> removeLocked(animalId));
+	}
+
+
+	private void addLocked(long animalId, String name, String shortDescription, String fullDescription) {
+		removeLocked(animalId); // re-adding replaces
+
+		Map<String, Integer> tf = new HashMap<>();
+		int length = count(tf, name, NAME_WEIGHT) + count(tf, shortDescription, SHORT_WEIGHT)
+				+ count(tf, fullDescription, FULL_WEIGHT);
+
+		if (docCount == animalIds.length) {
+			animalIds = Arrays.copyOf(animalIds, docCount * 2);
+			lengths = Arrays.copyOf(lengths, docCount * 2);
+		}
+		int doc = docCount++;
+		animalIds[doc] = animalId;
+		lengths[doc] = length;
+		live.set(doc);
+		liveCount++;
+		totalLength += length;
+		docByAnimal.put(animalId, doc);
+
+		for (Map.Entry<String, Integer> e : tf.entrySet()) {
+			postings.computeIfAbsent(e.getKey(), k -> new Postings()).add(doc, e.getValue());
+		}
+	}
+
+	/** Add the weighted frequencies of every form of every word; returns the weighted word count */
+	private static int count(Map<String, Integer> tf, String text, int weight) {
+		List<String> tokens = HebrewAnalyzer.tokens(text);
+		for (String token : tokens) {
+			for (String form : HebrewAnalyzer.forms(token)) {
+				tf.merge(form, weight, Integer::sum);
+			}
+		}
+		return tokens.size() * weight;
+	}
+
+	/** Mark the animal's document deleted (also when it is re-added), compacting once enough are */
+	private void removeLocked(long animalId) {
+		Integer doc = docByAnimal.remove(animalId);
+		if (doc == null) return;
+		live.clear(doc);
+		liveCount--;
+		deadCount++;
+		totalLength -= lengths[doc];
+		if (deadCount > 1024 && deadCount > liveCount / 4) compactLocked();
+	}
+
+	/**
+	 * Drop the deleted documents: renumber the live ones 0..liveCount-1 in their current order (so the postings
+	 * stay sorted) and rewrite the postings, so the per-document arrays and the per-query ones stay liveCount long.
+	 */
+	private void compactLocked() {
+		int[] renumbered = new int[docCount];
+		long[] ids = new long[Math.max(1024, liveCount * 2)];
+		int[] lens = new int[ids.length];
+		int n = 0;
+		for (int doc = live.nextSetBit(0); doc >= 0 && doc < docCount; doc = live.nextSetBit(doc + 1)) {
+			renumbered[doc] = n;
+			ids[n] = animalIds[doc];
+			lens[n] = lengths[doc];
+			docByAnimal.put(ids[n], n);
+			n++;
+		}
+		postings.values().removeIf(p -> {
+			p.retain(live);
+			for (int i = 0; i < p.size; i++) p.docs[i] = renumbered[p.docs[i]];
+			return p.size == 0;
+		});
+		animalIds = ids;
+		lengths = lens;
+		docCount = n;
+		live.clear();
+		live.set(0, n);
+		deadCount = 0;
+	}
+
+
+
+	//***************************************** Search *********************************************//
+
+	/**
+	 * Every animal whose text contains every word of the query (in any of its forms), unranked.
+	 * The input of the filters, the non-relevance sorts and the facet counts, which must see all the matches.
+	 *
+	 * @param query free text as typed by the user
+	 * @return the matching animal ids, in no particular order (empty if the query has no searchable words)
+	 */
+	long[] matches(String query) {
+		ensureLoaded();
+		List<String> words = HebrewAnalyzer.tokens(query);
+		if (words.isEmpty()) return new long[0];
+
+		lock.readLock().lock();
+		try {
+			BitSet all = (BitSet) live.clone();
+			BitSet word = new BitSet(docCount);
+			for (String w : words) {
+				word.clear();
+				for (String form : HebrewAnalyzer.forms(w)) {
+					Postings p = postings.get(form);
+					if (p == null) continue;
+					for (int i = 0; i < p.size; i++) word.set(p.docs[i]);
+				}
+				all.and(word);
+				if (all.isEmpty()) return new long[0];
+			}
+			long[] ids = new long[all.cardinality()];
+			int n = 0;
+			for (int doc = all.nextSetBit(0); doc >= 0; doc = all.nextSetBit(doc + 1)) ids[n++] = animalIds[doc];
+			return ids;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Animals whose text contains every word of the query, by descending BM25 score (ties: newer id first).
+	 *
+	 * @param query free text as typed by the user
+	 * @param maxHits at most this many best hits are returned (a ranking cap; use {@link #matches} to filter)
+	 * @return the hits (empty if the query has no searchable words)
+	 */
+	Hits search(String query, int maxHits) {
+		ensureLoaded();
+		List<String> words = HebrewAnalyzer.tokens(query);
+		if (words.isEmpty()) return new Hits(new long[0], new float[0]);
+
+		lock.readLock().lock();
+		try {
+			int n = docCount;
+			float avgLength = liveCount > 0 ? (float) totalLength / liveCount : 1f;
+			float[] total = new float[n];
+			int[] matchedWords = new int[n];
+			float[] wordScore = new float[n];
+			int[] touched = new int[16];
+
+			for (String word : words) {
+				int touchedCount = 0;
+				List<String> forms = HebrewAnalyzer.forms(word);
+				for (int f = 0; f < forms.size(); f++) {
+					Postings p = postings.get(forms.get(f));
+					if (p == null) continue;
+					float idf = idf(p);
+					float factor = (f == 0) ? 1f : STRIPPED_FORM_FACTOR;
+					for (int i = 0; i < p.size; i++) {
+						int doc = p.docs[i];
+						if (!live.get(doc)) continue;
+						float tf = p.tfs[i];
+						float s = factor * idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * lengths[doc] / avgLength));
+						if (wordScore[doc] == 0f) {
+							if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+							touched[touchedCount++] = doc;
+						}
+						if (s > wordScore[doc]) wordScore[doc] = s;
+					}
+				}
+				if (touchedCount == 0) return new Hits(new long[0], new float[0]); // a word matches nothing
+				for (int i = 0; i < touchedCount; i++) {
+					int doc = touched[i];
+					total[doc] += wordScore[doc];
+					matchedWords[doc]++;
+					wordScore[doc] = 0f;
+				}
+			}
+
+			List<Integer> docs = new ArrayList<>();
+			for (int doc = 0; doc < n; doc++) {
+				if (matchedWords[doc] == words.size()) docs.add(doc);
+			}
+			docs.sort((a, b) -> {
+				int c = Float.compare(total[b], total[a]);
+				return (c != 0) ? c : Long.compare(animalIds[b], animalIds[a]);
+			});
+
+			int size = Math.min(maxHits, docs.size());
+			long[] ids = new long[size];
+			float[] scores = new float[size];
+			for (int i = 0; i < size; i++) {
+				int doc = docs.get(i);
+				ids[i] = animalIds[doc];
+				scores[i] = total[doc];
+			}
+			return new Hits(ids, scores);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+
+	/** BM25 idf over the live documents (postings of deleted documents are counted until the next compaction) */
+	private float idf(Postings p) {
+		int df = Math.min(p.size, liveCount);
+		return (float) Math.log(1 + (liveCount - df + 0.5) / (df + 0.5));
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,153 @@
+package com.petpal.service;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+
+/**
+ * Number of unread messages per user, kept in memory so the layout can show it on every page without a query.
+ *
+ * How:
+ *  - One atomic counter per user in a concurrent map: the writers of messages add to it after their commit
+ *    ({@link MessageService} when sending, reading and deleting; {@link SavedSearchDelivery}; the deletion of an animal),
+ *    and reading it is a hash lookup. No lock is taken on either side.
+ *  - Loaded from the database on first use (or at startup) and reconciled with it every unread.reconcileMinutes,
+ *    so changes made outside this application (or lost to a crash between a commit and its update) are corrected.
+ *
+ * Notes:
+ *  - A reconcile, the first load included, adds to each counter the difference between the database count and the
+ *    counter as it was just before the count, so the updates applied while counting are kept. Updates are applied
+ *    before the first load too, so none is lost while it runs.
+ *  - The window between that snapshot and the count query is not covered: an update committed before the query but
+ *    applied after the snapshot is in both, and is counted twice until the next reconcile. Counts are never shown below 0.
+ */
+//============================================ Unread Counters ==================================================================//
+
+public final class UnreadCounters {
+
+	private static final Logger LOG = Logger.getLogger(UnreadCounters.class.getName());
+
+	private static final EntityManagerFactory emf = PersistenceManager.getEntityManagerFactory();
+
+	private static final long RECONCILE_MINUTES = AppConfig.getLong("unread.reconcileMinutes", 10);
+
+	private static final UnreadCounters INSTANCE = new UnreadCounters();
+
+
+	private final ConcurrentHashMap<Long, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+	private volatile boolean loaded;
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "petpal-unread-counters");
+		t.setDaemon(true);
+		return t;
+	});
+
+
+	private UnreadCounters() {
+	}
+
+	public static UnreadCounters get() {
+		return INSTANCE;
+	}
+
+
+
+	//***************************************** Loading *********************************************//
+
+	/**
+	 * Count the unread messages of every user unless already done, and schedule the periodic reconcile.
+	 * Called at startup; every read calls it too.
+	 */
+	public void ensureLoaded() {
+		if (loaded) return;
+		synchronized (this) {
+			if (loaded) return;
+			long started = System.currentTimeMillis();
+			reconcile();
+			loaded = true;
+			LOG.info("Unread counters: " + counts.size() + " users in " + (System.currentTimeMillis() - started) + " ms");
+			executor.scheduleWithFixedDelay(this::reconcileQuietly, RECONCILE_MINUTES, RECONCILE_MINUTES, TimeUnit.MINUTES);
+		}
+	}
+
+	public void stop() {
+		executor.shutdownNow();
+	}
+
+
+	private void reconcileQuietly() {
+		try {
+			long started = System.currentTimeMillis();
+			reconcile();
+			LOG.fine("Unread counters reconciled in " + (System.currentTimeMillis() - started) + " ms");
+		} catch (RuntimeException e) {
+			LOG.log(Level.WARNING, "Unread counters reconcile failed; keeping the current counts", e);
+		}
+	}
+
+	/** Bring every counter to the database count, keeping the updates made while counting (see the class notes) */
+	private void reconcile() {
+		Map<Long, Integer> before = new HashMap<>();
+		counts.forEach((userId, count) -> before.put(userId, count.get()));
+
+		Map<Long, Integer> unread = new HashMap<>();
+		EntityManager em = emf.createEntityManager();
+		try {
+			List<Object[]> rows = em.createQuery(
+					"SELECT m.recipient.id, COUNT(m) FROM Message m WHERE m.isRead = false GROUP BY m.recipient.id",
+					Object[].class)
+					.getResultList();
+			for (Object[] r : rows) unread.put((Long) r[0], ((Long) r[1]).intValue());
+		} finally { em.close(); }
+
+		for (Map.Entry<Long, Integer> e : unread.entrySet()) {
+			int drift = e.getValue() - before.getOrDefault(e.getKey(), 0);
+			if (drift != 0) counter(e.getKey()).addAndGet(drift);
+		}
+		for (Map.Entry<Long, Integer> e : before.entrySet()) {
+			if (!unread.containsKey(e.getKey()) && e.getValue() != 0) counts.get(e.getKey()).addAndGet(-e.getValue());
+		}
+	}
+
+
+
+	//***************************************** Counting *********************************************//
+
+	/**
+	 * Unread messages of a user (0 for an unknown user).
+	 *
+	 * @param userId the recipient
+	 * @return the number of unread messages in the user's inbox
+	 */
+	public int unread(Long userId) {
+		if (userId == null) return 0;
+		ensureLoaded();
+		AtomicInteger count = counts.get(userId);
+		return (count != null) ? Math.max(0, count.get()) : 0;
+	}
+
+	/** A committed change to the unread messages of a user: +n new, -n read or deleted */
+	void add(long userId, int delta) {
+		if (delta == 0) return; // applied even before the load: it keeps the changes committed while counting
+		counter(userId).addAndGet(delta);
+	}
+
+	private AtomicInteger counter(long userId) {
+		return counts.computeIfAbsent(userId, k -> new AtomicInteger());
+	}
+}
+//===============================================================================================================================//
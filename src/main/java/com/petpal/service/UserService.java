@@ -23,14 +23,13 @@ import com.petpal.model.User;
  *
  * Notes:
  *  - In production, all password operations must use hashing (e.g. BCrypt).
- *  - This service uses JPA (EntityManager) with "PetPalPU" persistence unit.
+ *  - This service uses JPA (EntityManager) from the shared {@link PersistenceManager} ("PetPalPU").
  */
 //=================================================== User Service ==============================================================//
 
 public class UserService {
 
-	private static final EntityManagerFactory emf =
-			Persistence.createEntityManagerFactory("PetPalPU");
+	private static final EntityManagerFactory emf = PersistenceManager.getEntityManagerFactory();
 
 	// Work factor (cost)
 	private static final int BCRYPT_COST = 12;
@@ -65,6 +64,24 @@ public class UserService {
 
 
 
+	/**
+	 * Find the system account: the sender of automatic messages (created by migration V10; cannot log in).
+	 *
+	 * @return User entity or null if the migration has not run
+	 */
+	public User findSystemUser() {
+		EntityManager em = emf.createEntityManager();
+		try {
+			return em.createQuery(
+					"SELECT u FROM User u WHERE u.systemAccount = true ORDER BY u.id", User.class)
+					.setMaxResults(1)
+					.getResultStream().findFirst().orElse(null);
+		} finally { em.close(); }
+	}
+
+
+
+
 	/**
 	 * Find a user by email.
 	 *
@@ -178,6 +195,37 @@ public class UserService {
 
 
 
+	/**
+	 * Set (or clear, with two nulls) the user's default location for "near me" searches.
+	 *
+	 * @param userId    ID of the user
+	 * @param latitude  degrees, -90..90 (null together with longitude = no default)
+	 * @param longitude degrees, -180..180
+	 * @throws IllegalArgumentException if only one coordinate is given or one is out of range
+	 */
+	public void updateLocation(Long userId, Double latitude, Double longitude) {
+	    Geo.checkOptional(latitude, longitude);
+	    EntityManager em = emf.createEntityManager();
+	    EntityTransaction tx = em.getTransaction();
+	    try {
+	        tx.begin();
+	        User managed = em.find(User.class, userId);
+	        if (managed != null) {
+	            managed.setLatitude(latitude);
+	            managed.setLongitude(longitude);
+	        }
+	        tx.commit();
+	    } catch (Exception ex) {
+	        if (tx.isActive()) tx.rollback();
+	        throw ex;
+	    } finally { em.close(); }
+	}
+
+
+
+
+
+
 	//***************************************** Password Reset *********************************************//
 
 	/**
@@ -187,7 +235,7 @@ public class UserService {
 	 * - Returns the temporary raw code so it can be shown once to the user.
 	 *
 	 * @param email email address used to find the user
-	 * @return the temporary password in plain text, or null if no user was found
+	 * @return the temporary password in plain text, or null if no user was found (or it is the system account)
 	 **/
 	  
 	public String issueTempPassword(String email) {
@@ -198,7 +246,7 @@ public class UserService {
 	                "SELECT u FROM User u WHERE u.email = :e", User.class)
 	                .setParameter("e", email)
 	                .getResultStream().findFirst().orElse(null);
-	        if (u == null) return null;
+	        if (u == null || u.isSystemAccount()) return null;
 
 	        String digits = String.valueOf(100000 + new java.util.Random().nextInt(900000));
 	        String temp = "temp" + digits + "A!";   
@@ -224,6 +272,7 @@ public class UserService {
 	 * Authenticate a user by verifying username and password.
 	 * - Loads the user by username.
 	 * - Compares the provided raw password against the stored BCrypt hash.
+	 * - The system account (sender of automatic messages) never authenticates.
 	 *
 	 * @param username    the username
 	 * @param rawPassword the plain-text password entered by user
@@ -231,7 +280,7 @@ public class UserService {
 	 */
 	public User authenticate(String username, String rawPassword) {
 		User u = findByUsername(username);
-		if (u != null && matches(rawPassword, u.getPassword())) {
+		if (u != null && !u.isSystemAccount() && matches(rawPassword, u.getPassword())) {
 			return u;
 		}
 		return null;
@@ -0,0 +1,96 @@
+package com.petpal.service;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+
+
+/**
+ * &lt;animals&gt;&lt;animal&gt;&lt;name&gt;..&lt;/name&gt;...&lt;/animal&gt;&lt;/animals&gt; (the shape written by the XML export),
+ * read with StAX one &lt;animal&gt; at a time. Child element names are the column names.
+ * DTDs and external entities are disabled (no XXE through an uploaded file).
+ */
+//============================================= XML Import Reader ===============================================================//
+
+class XmlImportReader implements ImportReader {
+
+	private static final XMLInputFactory XML = newFactory();
+
+	private final InputStream stream;
+	private final XMLStreamReader xml;
+	private int recordNumber;
+
+
+	XmlImportReader(InputStream stream) throws IOException {
+		this.stream = stream;
+		try {
+			xml = XML.createXMLStreamReader(stream);
+		} catch (XMLStreamException e) {
+			throw new IllegalArgumentException("Invalid XML: " + e.getMessage(), e);
+		}
+	}
+
+
+	private static XMLInputFactory newFactory() {
+		XMLInputFactory f = XMLInputFactory.newInstance();
+		f.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		f.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		f.setProperty(XMLInputFactory.IS_COALESCING, true);
+		return f;
+	}
+
+
+	@Override
+	public Map<String, String> next() throws IOException {
+		try {
+			// skip to the next <animal>
+			while (xml.hasNext()) {
+				if (xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("animal")) {
+					recordNumber++;
+					return readAnimal();
+				}
+			}
+			return null;
+		} catch (XMLStreamException e) {
+			throw new IllegalArgumentException("Invalid XML near record " + (recordNumber + 1) + ": " + e.getMessage(), e);
+		}
+	}
+
+	/** Text of each child of the current &lt;animal&gt;, up to its end tag */
+	private Map<String, String> readAnimal() throws XMLStreamException {
+		Map<String, String> record = new HashMap<>();
+		while (xml.hasNext()) {
+			int event = xml.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String name = xml.getLocalName();
+				record.put(name, xml.getElementText());
+			} else if (event == XMLStreamConstants.END_ELEMENT && xml.getLocalName().equals("animal")) {
+				break;
+			}
+		}
+		return record;
+	}
+
+	@Override
+	public int getRecordNumber() {
+		return recordNumber;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			xml.close();
+		} catch (XMLStreamException ignored) {
+			// closing the underlying stream below is what matters
+		}
+		stream.close();
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,145 @@
+package com.petpal.web;
+
+import com.petpal.model.ImageRendition;
+import com.petpal.service.BlobStore;
+import com.petpal.service.BlobStores;
+import com.petpal.service.PersistenceManager;
+
+import javax.persistence.EntityManager;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.NoSuchFileException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+
+
+/**
+ * AnimalImageServlet
+ * ------------------
+ * Purpose: Serves animal photos at /images/animal/{id}[/thumb|/medium|/original] instead of inlining them
+ *          as Base64 data URIs (no size = original).
+ * Why: Inline images inflate every page by ~133% of the photo size and can never be cached by the browser.
+ * How:
+ *   - Reads the image metadata (size, type, last update) from animal_images first and answers
+ *     conditional requests (If-None-Match / If-Modified-Since) with 304 without touching the image bytes.
+ *   - Otherwise copies the bytes from the {@link BlobStore} to the response with FileChannel.transferTo
+ *     (no copy through a Java buffer for the file-system store).
+ * Notes:
+ *   - Strong ETag = the blob's content key (SHA-256), so it changes exactly when the bytes change
+ *   - Stateless, read-only (GET/HEAD only)
+ */
+
+//================================================================================================================================//
+
+@WebServlet("/images/animal/*")
+public class AnimalImageServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Browsers may reuse an image for a day, then revalidate with the ETag */
+    private static final String CACHE_CONTROL = "public, max-age=86400";
+
+    private final BlobStore blobStore = BlobStores.get();
+
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+
+        // "/12" or "/12/thumb"
+        String[] path = (req.getPathInfo() != null) ? req.getPathInfo().split("/") : new String[0];
+        Long animalId = (path.length >= 2) ? parseId(path[1]) : null;
+        if (animalId == null || path.length > 3) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        ImageRendition requested = ImageRendition.fromName(path.length == 3 ? path[2] : null);
+
+        ImageMeta meta;
+        EntityManager em = PersistenceManager.createEntityManager();
+        try {
+            // The requested size, falling back to the original (images stored before renditions existed)
+            meta = em.createQuery(
+                    "SELECT NEW com.petpal.web.AnimalImageServlet$ImageMeta(i.id.rendition, i.blobKey, i.sizeBytes, i.updatedAt, i.contentType) " +
+                    "FROM AnimalImage i WHERE i.id.animalId = :id AND i.id.rendition IN (:requested, :original)", ImageMeta.class)
+                    .setParameter("id", animalId)
+                    .setParameter("requested", requested)
+                    .setParameter("original", ImageRendition.ORIGINAL)
+                    .getResultList().stream()
+                    .min((a, b) -> (a.rendition == requested ? 0 : 1) - (b.rendition == requested ? 0 : 1))
+                    .orElse(null);
+        } finally {
+            // released before streaming, so a slow client does not hold a pooled connection
+            em.close();
+        }
+
+        if (meta == null) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String etag = "\"" + meta.blobKey + "\"";
+        resp.setHeader("ETag", etag);
+        resp.setHeader("Cache-Control", CACHE_CONTROL);
+        if (meta.lastModified > 0) resp.setDateHeader("Last-Modified", meta.lastModified);
+
+        if (HttpCaching.notModified(req, etag, meta.lastModified)) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        resp.setContentType(meta.contentType);
+        resp.setContentLengthLong(meta.length);
+        if ("HEAD".equals(req.getMethod())) return;
+
+        try {
+            blobStore.transferTo(meta.blobKey, Channels.newChannel(resp.getOutputStream()));
+        } catch (NoSuchFileException e) {
+            // row without bytes (e.g. store restored from an older backup)
+            if (!resp.isCommitted()) {
+                resp.reset();
+                resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            }
+        }
+    }
+
+
+
+    //***************************************** Helpers *********************************************//
+
+
+    /** "12" → 12, anything else → null */
+    private static Long parseId(String segment) {
+        try {
+            return Long.valueOf(segment);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+
+    /** Rendition, blob key, size, type and last-update time of a stored image (JPQL constructor projection) */
+    public static final class ImageMeta {
+        final ImageRendition rendition;
+        final String blobKey;
+        final long length;
+        final long lastModified;
+        final String contentType;
+
+        public ImageMeta(ImageRendition rendition, String blobKey, long length, LocalDateTime updated,
+                String contentType) {
+            this.rendition = rendition;
+            this.blobKey = blobKey;
+            this.length = length;
+            this.lastModified = (updated != null)
+                    ? updated.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0L;
+            this.contentType = contentType;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.petpal.web;
+
+import com.petpal.service.AnimalCatalog;
+import com.petpal.service.BlobGarbageCollector;
+import com.petpal.service.FacetIndex;
+import com.petpal.service.GeoIndex;
+import com.petpal.service.PersistenceManager;
+import com.petpal.service.SavedSearchDelivery;
+import com.petpal.service.SearchCache;
+import com.petpal.service.SearchPercolator;
+import com.petpal.service.SimilarAnimalsIndex;
+import com.petpal.service.SuggestIndex;
+import com.petpal.service.TextIndex;
+import com.petpal.service.UnreadCounters;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+
+
+/**
+ * AppLifecycleListener
+ * --------------------
+ * Purpose: Hooks application-wide resources into the web application's start/stop lifecycle.
+ * How:
+ *   - On startup, bootstraps the shared EntityManagerFactory (and its connection pool),
+ *     so the first user request does not pay for it.
+ *   - Starts the periodic sweep of unreferenced image blobs and publishes the search cache statistics over JMX.
+ *   - Starts the background generation of the precomputed export snapshots.
+ *   - Loads the in-memory animal catalog and the full-text, facet, typeahead and geo indexes, so the first search does not wait for them.
+ *   - Builds the "saved together" model of the favorites (rebuilt periodically in the background).
+ *   - Indexes the saved searches, so new animals are matched against them from the start.
+ *   - Counts the unread messages of every user (reconciled periodically in the background).
+ *   - On shutdown, delivers the pending saved-search matches, stops background jobs and closes the factory so pooled MySQL connections are released on redeploy.
+ */
+
+//================================================================================================================================//
+
+@WebListener
+public class AppLifecycleListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        PersistenceManager.getEntityManagerFactory();
+        BlobGarbageCollector.start();
+        SearchCache.get().registerMBean();
+        ExportSnapshots.get().start();
+        AnimalCatalog.get().ensureLoaded();
+        TextIndex.get().ensureLoaded();
+        FacetIndex.get().ensureLoaded();
+        GeoIndex.get().ensureLoaded();
+        SuggestIndex.get().ensureLoaded();
+        SimilarAnimalsIndex.get().ensureLoaded();
+        SearchPercolator.get().ensureLoaded();
+        UnreadCounters.get().ensureLoaded();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        SavedSearchDelivery.get().stop();
+        UnreadCounters.get().stop();
+        ExportSnapshots.get().stop();
+        SuggestIndex.get().stop();
+        SimilarAnimalsIndex.get().stop();
+        SearchCache.get().unregisterMBean();
+        BlobGarbageCollector.stop();
+        PersistenceManager.shutdown();
+    }
+}
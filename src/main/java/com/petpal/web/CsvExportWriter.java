@@ -0,0 +1,63 @@
+package com.petpal.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+
+
+/**
+ * RFC 4180 CSV in UTF-8: a header row with the column names, then one line per animal (CRLF line ends).
+ * Values containing a comma, quote or line break are quoted, with inner quotes doubled.
+ */
+//============================================= CSV Export Writer ===============================================================//
+
+class CsvExportWriter implements ExportWriter {
+
+	private Writer out;
+
+
+	@Override
+	public void start(OutputStream stream, List<String> columns) throws IOException {
+		out = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+		for (int i = 0; i < columns.size(); i++) {
+			if (i > 0) out.write(',');
+			writeValue(columns.get(i));
+		}
+		out.write("\r\n");
+	}
+
+	@Override
+	public void row(Object[] values) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) out.write(',');
+			if (values[i] != null) writeValue(values[i].toString());
+		}
+		out.write("\r\n");
+	}
+
+	@Override
+	public void end() throws IOException {
+		out.flush();
+	}
+
+
+	private void writeValue(String v) throws IOException {
+		boolean quote = false;
+		for (int i = 0; i < v.length() && !quote; i++) {
+			char ch = v.charAt(i);
+			quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+		}
+		if (!quote) {
+			out.write(v);
+			return;
+		}
+		out.write('"');
+		out.write(v.replace("\"", "\"\""));
+		out.write('"');
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,397 @@
+package com.petpal.web;
+
+import com.petpal.model.GenderConverter;
+import com.petpal.service.AnimalFilter;
+import com.petpal.service.AnimalService;
+import com.petpal.service.AppConfig;
+import com.petpal.service.CatalogVersion;
+import com.petpal.service.ChangeCursor;
+import com.petpal.service.ExportField;
+
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.*;
+import javax.servlet.*;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+
+
+/**
+ * ExportAnimalsServlet
+ * --------------------
+ * Purpose: Machine-readable feed of the animal catalog at /export/animals in XML, CSV or JSON Lines.
+ * Why: Demonstrates classic Servlets (topic III in course) alongside JSF/JPA; partners pull only what they need.
+ * How:
+ *   - Format: from the path (/export/animals.xml|.csv|.jsonl), else the "format" parameter,
+ *     else the Accept header (application/xml, text/csv, application/x-ndjson); default XML.
+ *   - Filters: category, gender (M/F or the Hebrew label), minAge, maxAge, sort, dir - as in the animal search.
+ *   - Fields: "fields=id,name,age" selects and orders the columns (default: the original XML columns,
+ *     see {@link ExportField#DEFAULTS}; shortDescription and hasImage on request).
+ *   - Gzip: compressed when the client sends Accept-Encoding: gzip.
+ *   - Incremental: "since" (the X-Resume-Cursor of the previous response, or an ISO date-time) returns only the
+ *     animals added and deleted (tombstones) after it, with an "op" column. Every response, full or incremental,
+ *     carries a new cursor and holds exactly the animals up to it; a full one also holds the animals without
+ *     a timestamp (rows from before the column was filled), which no feed window can contain.
+ *   - Revalidation: ETag / Last-Modified from {@link CatalogVersion}; an unchanged catalog answers 304.
+ *   - Snapshots: a gzip request without filters or fields is served from the precomputed {@link ExportSnapshots}
+ *     file (zero-copy, with Range / If-Range for resumable downloads); everything else is exported live.
+ *   - Every format runs through the same pipeline: {@link AnimalService#export} streams rows from a database cursor
+ *     into an {@link ExportWriter} over a buffered response stream - memory stays flat, output starts immediately.
+ * Notes:
+ *   - The feed windows are cut by the animals' timestamps (taken from the application clock when a row is written).
+ *     A change must commit within export.feed.lagSeconds of its timestamp, or a pull that already passed it misses
+ *     it; writers therefore stamp rows just before they write them, and application servers keep their clocks in sync.
+ *   - Stateless, no session changes
+ *   - Read-only (GET only)
+ *   - UTF-8 in every format
+ */
+
+
+//================================================================================================================================//
+
+@WebServlet({"/export/animals", "/export/animals.xml", "/export/animals.csv", "/export/animals.jsonl"})
+public class ExportAnimalsServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    /** Response header carrying the resume cursor for the next incremental pull */
+    private static final String CURSOR_HEADER = "X-Resume-Cursor";
+
+    /** Changes younger than this are left for the next pull (transactions still committing); the commit-lag bound */
+    static final long FEED_LAG_SECONDS = AppConfig.getLong("export.feed.lagSeconds", 5);
+
+    private final AnimalService animalService = new AnimalService();
+
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+
+        ExportWriter.Format format;
+        AnimalFilter filter;
+        List<ExportField> fields;
+        LocalDateTime since;
+        try {
+            format = negotiateFormat(req);
+            filter = parseFilter(req);
+            fields = ExportField.parseList(req.getParameter("fields"));
+            since = parseSince(req);
+        } catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        boolean gzip = acceptsGzip(req);
+
+        // Full export → precomputed snapshot straight from disk, no database work
+        if (gzip && since == null && isFullExport(req)) {
+            ExportSnapshots.Snapshot snapshot = ExportSnapshots.get().latest(format);
+            if (snapshot != null && serveSnapshot(req, resp, format, snapshot)) return;
+        }
+
+        // Unchanged catalog (and same request) → 304 without running the export
+        CatalogVersion version = animalService.catalogVersion();
+        String etag = "\"" + version.getTag() + "-" + Integer.toHexString(variantKey(req, format, gzip).hashCode())
+                + (gzip ? "-gz" : "") + "\"";
+        resp.setHeader("ETag", etag);
+        resp.setHeader("Cache-Control", "no-cache");
+        if (version.getLastModified() > 0) resp.setDateHeader("Last-Modified", version.getLastModified());
+        resp.setHeader("Vary", "Accept, Accept-Encoding");
+        if (HttpCaching.notModified(req, etag, version.getLastModified())) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        // Animals and changes up to "until" are delivered, in a full export too; the newest seconds are left
+        // for the next pull, so a slower transaction that commits an older timestamp is not skipped
+        LocalDateTime until = LocalDateTime.now().minusSeconds(FEED_LAG_SECONDS);
+        resp.setHeader(CURSOR_HEADER, new ChangeCursor(until).encode());
+
+        resp.setContentType(format.mediaType + "; charset=UTF-8");
+        resp.setHeader("Content-Disposition", "inline; filename=\"animals." + format.extension + "\"");
+
+        OutputStream raw = resp.getOutputStream();
+        if (gzip) {
+            resp.setHeader("Content-Encoding", "gzip");
+            raw = new GZIPOutputStream(raw, BUFFER_SIZE);
+        }
+
+        ExportWriter writer = format.newWriter();
+        try (OutputStream out = new BufferedOutputStream(raw, BUFFER_SIZE)) {
+            if (since == null) {
+                writer.start(out, columnNames(fields));
+                animalService.export(filter, fields, until, writer::row);
+            } else {
+                writeChanges(writer, out, filter, fields, since, until);
+            }
+            writer.end();
+        }
+    }
+
+
+    /**
+     * Send a snapshot file as gzip with ETag revalidation and single byte ranges (resumable downloads).
+     * The bytes go from the file channel to the response with transferTo - no copy through the heap.
+     * The resume cursor is the one recorded when the snapshot was built, not the time of the download.
+     *
+     * @return false if the file vanished (replaced by a newer generation) and the caller should export live
+     */
+    private static boolean serveSnapshot(HttpServletRequest req, HttpServletResponse resp,
+            ExportWriter.Format format, ExportSnapshots.Snapshot snapshot) throws IOException {
+
+        try (FileChannel file = FileChannel.open(snapshot.file, StandardOpenOption.READ)) {
+            long length = snapshot.length;
+
+            resp.setHeader("ETag", snapshot.etag);
+            resp.setHeader("Cache-Control", "no-cache");
+            if (snapshot.lastModified > 0) resp.setDateHeader("Last-Modified", snapshot.lastModified);
+            resp.setHeader("Vary", "Accept, Accept-Encoding");
+            resp.setHeader("Accept-Ranges", "bytes");
+            if (HttpCaching.notModified(req, snapshot.etag, snapshot.lastModified)) {
+                resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return true;
+            }
+
+            // Range applies only if the client's partial copy is this very snapshot (If-Range)
+            long start = 0;
+            long end = length - 1;
+            String range = req.getHeader("Range");
+            String ifRange = req.getHeader("If-Range");
+            if (range != null && (ifRange == null || ifRange.trim().equals(snapshot.etag))) {
+                long[] r = parseRange(range, length);
+                if (r == null) {
+                    resp.setHeader("Content-Range", "bytes */" + length);
+                    resp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return true;
+                }
+                start = r[0];
+                end = r[1];
+                resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                resp.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+            }
+
+            resp.setHeader(CURSOR_HEADER, snapshot.cursor);
+            resp.setContentType(format.mediaType + "; charset=UTF-8");
+            resp.setHeader("Content-Encoding", "gzip");
+            resp.setHeader("Content-Disposition", "inline; filename=\"animals." + format.extension + "\"");
+            resp.setContentLengthLong(end - start + 1);
+
+            WritableByteChannel out = Channels.newChannel(resp.getOutputStream());
+            long pos = start;
+            while (pos <= end) {
+                long n = file.transferTo(pos, end - pos + 1, out);
+                if (n <= 0) break;
+                pos += n;
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * A single "bytes=a-b", "bytes=a-" or "bytes=-n" range, clamped to the length.
+     * Multiple ranges are not supported and answered as unsatisfiable.
+     *
+     * @return {start, end} inclusive, or null if the range cannot be satisfied
+     */
+    private static long[] parseRange(String header, long length) {
+        String h = header.trim();
+        if (!h.startsWith("bytes=") || h.indexOf(',') >= 0 || length == 0) return null;
+        String spec = h.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) return null;
+        try {
+            String a = spec.substring(0, dash).trim();
+            String b = spec.substring(dash + 1).trim();
+            if (a.isEmpty()) {
+                long suffix = Long.parseLong(b);
+                if (suffix <= 0) return null;
+                return new long[] { Math.max(0, length - suffix), length - 1 };
+            }
+            long start = Long.parseLong(a);
+            long end = b.isEmpty() ? length - 1 : Math.min(Long.parseLong(b), length - 1);
+            if (start < 0 || start >= length || end < start) return null;
+            return new long[] { start, end };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+
+    /** No filters and no field selection - the request the snapshots answer */
+    private static boolean isFullExport(HttpServletRequest req) {
+        for (String name : req.getParameterMap().keySet()) {
+            if (!name.equals("format")) return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Change feed: an "op" column ("add" / "delete") first, then the requested fields (id always included).
+     * Deleted animals carry only their id, and the deletion time in the timestamp column if it was requested.
+     */
+    private void writeChanges(ExportWriter writer, OutputStream out, AnimalFilter filter, List<ExportField> requested,
+            LocalDateTime since, LocalDateTime until) throws IOException {
+
+        List<ExportField> fields = new ArrayList<>(requested);
+        if (!fields.contains(ExportField.ID)) fields.add(0, ExportField.ID);
+        int idIndex = fields.indexOf(ExportField.ID);
+        int timeIndex = fields.indexOf(ExportField.TIMESTAMP);
+
+        List<String> columns = new ArrayList<>();
+        columns.add("op");
+        columns.addAll(columnNames(fields));
+        writer.start(out, columns);
+
+        if (!since.isBefore(until)) return;
+        animalService.exportChanges(filter, fields, since, until,
+                values -> {
+                    Object[] row = new Object[values.length + 1];
+                    row[0] = "add";
+                    System.arraycopy(values, 0, row, 1, values.length);
+                    writer.row(row);
+                },
+                tombstone -> {
+                    Object[] row = new Object[fields.size() + 1];
+                    row[0] = "delete";
+                    row[1 + idIndex] = tombstone[0];
+                    if (timeIndex >= 0) row[1 + timeIndex] = tombstone[1];
+                    writer.row(row);
+                });
+    }
+
+
+    private static List<String> columnNames(List<ExportField> fields) {
+        List<String> names = new ArrayList<>(fields.size());
+        for (ExportField f : fields) names.add(f.getFieldName());
+        return names;
+    }
+
+
+    /** Everything that makes two responses over the same catalog differ */
+    private static String variantKey(HttpServletRequest req, ExportWriter.Format format, boolean gzip) {
+        return format + "|" + req.getQueryString() + "|" + gzip;
+    }
+
+
+
+    //***************************************** Request Parsing *********************************************//
+
+
+    /** Path extension, then ?format=, then the Accept header, then XML */
+    private static ExportWriter.Format negotiateFormat(HttpServletRequest req) {
+        String path = req.getServletPath();
+        int dot = path.lastIndexOf('.');
+        if (dot > 0) return ExportWriter.Format.byExtension(path.substring(dot + 1));
+
+        String param = req.getParameter("format");
+        if (param != null && !param.isEmpty()) {
+            ExportWriter.Format f = ExportWriter.Format.byExtension(param);
+            if (f == null) throw new IllegalArgumentException("Unknown format: " + param);
+            return f;
+        }
+
+        String accept = req.getHeader("Accept");
+        if (accept != null) {
+            for (String part : accept.split(",")) {
+                String type = part.split(";")[0].trim().toLowerCase();
+                switch (type) {
+                case "text/csv":             return ExportWriter.Format.CSV;
+                case "application/x-ndjson":
+                case "application/jsonl":    return ExportWriter.Format.JSONL;
+                case "application/xml":
+                case "text/xml":             return ExportWriter.Format.XML;
+                default:                     break;
+                }
+            }
+        }
+        return ExportWriter.Format.XML;
+    }
+
+
+    /** "since" = cursor token from X-Resume-Cursor, or an ISO date-time (2025-08-01T00:00:00) for the first pull */
+    private static LocalDateTime parseSince(HttpServletRequest req) {
+        String v = req.getParameter("since");
+        if (v == null || v.trim().isEmpty()) return null;
+        try {
+            return LocalDateTime.parse(v.trim());
+        } catch (DateTimeParseException e) {
+            return ChangeCursor.decode(v).getWatermark();
+        }
+    }
+
+
+    private static AnimalFilter parseFilter(HttpServletRequest req) {
+        String gender = req.getParameter("gender");
+        if ("M".equalsIgnoreCase(gender)) gender = GenderConverter.MALE;
+        else if ("F".equalsIgnoreCase(gender)) gender = GenderConverter.FEMALE;
+        else if (gender != null && !gender.trim().isEmpty()
+                && !GenderConverter.MALE.equals(gender) && !GenderConverter.FEMALE.equals(gender)) {
+            throw new IllegalArgumentException("Invalid gender: " + gender);
+        }
+
+        return new AnimalFilter(
+                parseLong(req, "category"),
+                gender,
+                parseInt(req, "minAge"),
+                parseInt(req, "maxAge"),
+                req.getParameter("sort"),
+                req.getParameter("dir") != null ? req.getParameter("dir") : "DESC");
+    }
+
+
+    private static Long parseLong(HttpServletRequest req, String name) {
+        String v = req.getParameter(name);
+        if (v == null || v.trim().isEmpty()) return null;
+        try {
+            return Long.valueOf(v.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + v);
+        }
+    }
+
+    private static Integer parseInt(HttpServletRequest req, String name) {
+        String v = req.getParameter(name);
+        if (v == null || v.trim().isEmpty()) return null;
+        try {
+            return Integer.valueOf(v.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + v);
+        }
+    }
+
+
+    /** True if Accept-Encoding lists gzip (without q=0) */
+    private static boolean acceptsGzip(HttpServletRequest req) {
+        String ae = req.getHeader("Accept-Encoding");
+        if (ae == null) return false;
+        for (String part : ae.split(",")) {
+            String[] p = part.trim().split(";");
+            if (!p[0].trim().equalsIgnoreCase("gzip")) continue;
+            for (int i = 1; i < p.length; i++) {
+                String param = p[i].trim();
+                if (!param.startsWith("q=")) continue;
+                try { return Double.parseDouble(param.substring(2)) > 0; }
+                catch (NumberFormatException e) { return false; }
+            }
+            return true;
+        }
+        return false;
+    }
+}
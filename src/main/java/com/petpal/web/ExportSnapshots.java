@@ -0,0 +1,260 @@
+package com.petpal.web;
+
+import com.petpal.model.Animal;
+import com.petpal.service.AnimalFilter;
+import com.petpal.service.AnimalService;
+import com.petpal.service.AppConfig;
+import com.petpal.service.CatalogEvents;
+import com.petpal.service.CatalogListener;
+import com.petpal.service.CatalogVersion;
+import com.petpal.service.ChangeCursor;
+import com.petpal.service.ExportField;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+
+
+/**
+ * Precomputed, gzip-compressed snapshots of the full animal export, one file per format,
+ * so that unfiltered export requests are served from disk without touching the database.
+ *
+ * How:
+ *  - Listens to catalog changes and regenerates all snapshots in the background, debounced:
+ *    the run starts export.snapshot.debounceSeconds after the last change, but never later than
+ *    export.snapshot.maxDelaySeconds after the first pending one (a steady stream of changes cannot starve it).
+ *  - Each file is written under a temporary name and moved into place, then published together with its
+ *    precomputed ETag; readers always see a complete file.
+ *  - A snapshot can lag the database by the debounce delay plus the generation time; it carries the resume cursor
+ *    of the moment its export started (less the feed lag), so an incremental pull continues exactly after it.
+ *  - Animals stamped inside that feed lag are left for the next run. If there were any, a follow-up run is
+ *    scheduled export.feed.lagSeconds later, so the files catch up even when no further change arrives.
+ *  - ETag and Last-Modified follow the cutoff as well as the catalog version: a file cut later is a new version.
+ */
+//============================================== Export Snapshots ===============================================================//
+
+final class ExportSnapshots implements CatalogListener {
+
+	private static final Logger LOG = Logger.getLogger(ExportSnapshots.class.getName());
+
+	private static final long DEBOUNCE_SECONDS = AppConfig.getLong("export.snapshot.debounceSeconds", 30);
+
+	private static final long MAX_DELAY_SECONDS = AppConfig.getLong("export.snapshot.maxDelaySeconds", 300);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final ExportSnapshots INSTANCE = new ExportSnapshots();
+
+
+	/** One published snapshot file */
+	static final class Snapshot {
+		final Path file;
+		final long length;
+		final long lastModified;
+		final String etag;
+		/** X-Resume-Cursor for the clients of this snapshot */
+		final String cursor;
+
+		Snapshot(Path file, long length, long lastModified, String etag, String cursor) {
+			this.file = file;
+			this.length = length;
+			this.lastModified = lastModified;
+			this.etag = etag;
+			this.cursor = cursor;
+		}
+	}
+
+
+	private final Path dir = Paths.get(AppConfig.get("export.snapshot.dir",
+			Paths.get(System.getProperty("java.io.tmpdir"), "petpal-export").toString()));
+
+	private final AnimalService animalService = new AnimalService();
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "petpal-export-snapshots");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/** Latest snapshot per format; replaced as a whole (copy-on-write) */
+	private volatile Map<ExportWriter.Format, Snapshot> current = new EnumMap<>(ExportWriter.Format.class);
+
+	/** Pending debounced run and when the oldest unprocessed change happened (guarded by this) */
+	private ScheduledFuture<?> pending;
+	private long firstPendingAt;
+
+
+	private ExportSnapshots() {}
+
+	static ExportSnapshots get() {
+		return INSTANCE;
+	}
+
+
+
+	//***************************************** Lifecycle *********************************************//
+
+	/**
+	 * Start listening to catalog changes and build the first snapshots (called at application startup).
+	 * The files left by earlier runs (and their unfinished .part files) are deleted first.
+	 */
+	void start() {
+		CatalogEvents.addListener(this);
+		executor.execute(this::clearStale);
+		executor.execute(this::regenerate);
+	}
+
+	/** Stop the background thread (called at application shutdown) */
+	void stop() {
+		CatalogEvents.removeListener(this);
+		executor.shutdownNow();
+	}
+
+
+	/** @return the latest snapshot of the format, or null if none was built yet */
+	Snapshot latest(ExportWriter.Format format) {
+		return current.get(format);
+	}
+
+
+
+	//***************************************** Debounce *********************************************//
+
+	@Override
+	public void animalAdded(Animal animal) {
+		changed();
+	}
+
+	@Override
+	public void animalDeleted(Long animalId, Long categoryId) {
+		changed();
+	}
+
+
+	private synchronized void changed() {
+		long now = System.currentTimeMillis();
+		if (pending == null || pending.isDone()) {
+			firstPendingAt = now;
+		} else {
+			pending.cancel(false);
+		}
+		long latestStart = firstPendingAt + TimeUnit.SECONDS.toMillis(MAX_DELAY_SECONDS);
+		long delay = Math.min(TimeUnit.SECONDS.toMillis(DEBOUNCE_SECONDS), Math.max(0, latestStart - now));
+		try {
+			pending = executor.schedule(this::regenerate, delay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// shutting down
+		}
+	}
+
+
+
+	//***************************************** Generation *********************************************//
+
+	/** Delete the snapshot and .part files in the directory; none of them is published by this run yet */
+	private void clearStale() {
+		if (!Files.isDirectory(dir)) return;
+		int deleted = 0;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "{animals-*.gz,snapshot-*.part}")) {
+			for (Path f : files) {
+				try {
+					if (Files.deleteIfExists(f)) deleted++;
+				} catch (IOException e) {
+					LOG.log(Level.FINE, "Could not delete stale export snapshot " + f, e);
+				}
+			}
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Could not clear stale export snapshots in " + dir, e);
+		}
+		if (deleted > 0) LOG.info("Export snapshots: deleted " + deleted + " stale file(s) in " + dir);
+	}
+
+	private void regenerate() {
+		try {
+			Files.createDirectories(dir);
+			CatalogVersion version = animalService.catalogVersion();
+			// taken before the exports read the catalog, which stop at it: the files hold exactly the animals up to it
+			LocalDateTime until = LocalDateTime.now().minusSeconds(ExportAnimalsServlet.FEED_LAG_SECONDS);
+			long untilMillis = until.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+			List<ExportField> fields = ExportField.parseList(null);
+			List<String> columns = new ArrayList<>();
+			for (ExportField f : fields) columns.add(f.getFieldName());
+
+			Map<ExportWriter.Format, Snapshot> next = new EnumMap<>(ExportWriter.Format.class);
+			for (ExportWriter.Format format : ExportWriter.Format.values()) {
+				next.put(format, build(format, fields, columns, version, until, untilMillis));
+			}
+
+			Map<ExportWriter.Format, Snapshot> previous = current;
+			current = next;
+			for (Snapshot old : previous.values()) {
+				// readers still streaming the old file keep their open handle (deletion may fail on Windows - harmless)
+				try { Files.deleteIfExists(old.file); } catch (IOException ignored) {}
+			}
+			// changes inside the feed lag are not in the files yet
+			if (version.getLastModified() > untilMillis) scheduleFollowUp();
+		} catch (Exception e) {
+			LOG.log(Level.WARNING, "Export snapshot generation failed; serving the previous snapshot", e);
+		}
+	}
+
+	/** Run again once the feed lag has passed, unless a run is already waiting */
+	private synchronized void scheduleFollowUp() {
+		// the running task is the pending one (not done, no delay left); only a later one makes this unnecessary
+		if (pending != null && !pending.isDone() && pending.getDelay(TimeUnit.MILLISECONDS) > 0) return;
+		firstPendingAt = System.currentTimeMillis();
+		try {
+			pending = executor.schedule(this::regenerate, ExportAnimalsServlet.FEED_LAG_SECONDS, TimeUnit.SECONDS);
+		} catch (RejectedExecutionException e) {
+			// shutting down
+		}
+	}
+
+
+	private Snapshot build(ExportWriter.Format format, List<ExportField> fields, List<String> columns,
+			CatalogVersion version, LocalDateTime until, long untilMillis) throws IOException {
+
+		String name = "animals-" + version.getTag() + "-" + System.currentTimeMillis() + "." + format.extension + ".gz";
+		Path tmp = Files.createTempFile(dir, "snapshot-", ".part");
+		try {
+			try (OutputStream out = new BufferedOutputStream(
+					new GZIPOutputStream(Files.newOutputStream(tmp), BUFFER_SIZE), BUFFER_SIZE)) {
+				ExportWriter writer = format.newWriter();
+				writer.start(out, columns);
+				animalService.export(AnimalFilter.all(), fields, until, writer::row);
+				writer.end();
+			}
+			Path target = dir.resolve(name);
+			Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+
+			// the file is the catalog version cut at until: a later cutoff of the same version is another file
+			String etag = "\"snap-" + version.getTag() + "-" + untilMillis + "-" + format.extension + "-gz\"";
+			return new Snapshot(target, Files.size(target), Math.min(version.getLastModified(), untilMillis), etag,
+					new ChangeCursor(until).encode());
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(tmp);
+			throw e;
+		}
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,64 @@
+package com.petpal.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+
+
+/**
+ * One output format of the animal export. Receives the rows of the streaming export one by one
+ * and writes them straight to the (buffered, possibly gzipped) response stream.
+ * Implementations: {@link XmlExportWriter}, {@link CsvExportWriter}, {@link JsonLinesExportWriter}.
+ */
+//=============================================== Export Writer =================================================================//
+
+interface ExportWriter {
+
+	/**
+	 * Write whatever precedes the first row (XML prolog, CSV header).
+	 *
+	 * @param columns column names (field names, plus "op" in change feeds)
+	 */
+	void start(OutputStream out, List<String> columns) throws IOException;
+
+	/** Write one row; values are in the order of the columns passed to {@link #start} */
+	void row(Object[] values) throws IOException;
+
+	/** Write whatever follows the last row and flush (the stream itself is closed by the caller) */
+	void end() throws IOException;
+
+
+
+	/** Supported formats, with their file extension and media type */
+	enum Format {
+		XML("xml", "application/xml"),
+		CSV("csv", "text/csv"),
+		JSONL("jsonl", "application/x-ndjson");
+
+		final String extension;
+		final String mediaType;
+
+		Format(String extension, String mediaType) {
+			this.extension = extension;
+			this.mediaType = mediaType;
+		}
+
+		ExportWriter newWriter() {
+			switch (this) {
+			case CSV:   return new CsvExportWriter();
+			case JSONL: return new JsonLinesExportWriter();
+			default:    return new XmlExportWriter();
+			}
+		}
+
+		/** "csv" → CSV, unknown → null */
+		static Format byExtension(String ext) {
+			for (Format f : values()) {
+				if (f.extension.equalsIgnoreCase(ext)) return f;
+			}
+			return null;
+		}
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,43 @@
+package com.petpal.web;
+
+import javax.servlet.http.HttpServletRequest;
+
+
+
+/**
+ * Conditional-request helpers shared by the servlets that support ETag / Last-Modified revalidation.
+ */
+//=============================================== HTTP Caching ==================================================================//
+
+final class HttpCaching {
+
+    private HttpCaching() {}
+
+
+    /**
+     * Conditional GET: If-None-Match wins over If-Modified-Since (RFC 7232).
+     *
+     * @param etag the current (quoted) entity tag
+     * @param lastModified current modification time in epoch millis (0 = unknown)
+     * @return true if the client's copy is current and a 304 can be sent
+     */
+    static boolean notModified(HttpServletRequest req, String etag, long lastModified) {
+        String inm = req.getHeader("If-None-Match");
+        if (inm != null) {
+            for (String tag : inm.split(",")) {
+                String t = tag.trim();
+                if (t.equals("*") || t.equals(etag)) return true;
+            }
+            return false;
+        }
+        if (lastModified > 0) {
+            long ims;
+            try { ims = req.getDateHeader("If-Modified-Since"); }
+            catch (IllegalArgumentException e) { return false; }
+            // HTTP dates have second precision
+            return ims != -1 && lastModified / 1000 <= ims / 1000;
+        }
+        return false;
+    }
+}
+//===============================================================================================================================//
@@ -0,0 +1,114 @@
+package com.petpal.web;
+
+import com.petpal.model.User;
+import com.petpal.service.AnimalImportService;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.MultipartConfig;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.Part;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+
+
+
+/**
+ * ImportAnimalsServlet
+ * --------------------
+ * Purpose: Bulk import at POST /import/animals - a shelter brings its whole catalog in one request
+ *          instead of adding the animals one by one in add_animal.xhtml.
+ * How:
+ *   - multipart/form-data with a "file" part (CSV, or XML in the export's shape) and an optional "images" part
+ *     (a zip with the files named in the "image" column).
+ *   - The zip is spooled to a temp file (random access by name); the data file is parsed as it is read.
+ *   - The work is done by {@link AnimalImportService}: batched JDBC inserts, per-row errors.
+ *   - Answers with a JSON summary: {"imported":..,"failed":..,"elapsedMillis":..,"errors":[{"row":..,"message":..}]}.
+ * Notes:
+ *   - Requires a logged-in user (401 otherwise); every animal is owned by that user
+ *   - 400 if the file is missing, of an unknown format, or cannot be parsed at all
+ */
+
+//================================================================================================================================//
+
+@WebServlet("/import/animals")
+@MultipartConfig(fileSizeThreshold = 64 * 1024,
+                 maxFileSize = 200L * 1024 * 1024,
+                 maxRequestSize = 250L * 1024 * 1024)
+public class ImportAnimalsServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private final AnimalImportService importService = new AnimalImportService();
+
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+
+        HttpSession session = req.getSession(false);
+        User owner = (session != null) ? (User) session.getAttribute("user") : null;
+        if (owner == null) {
+            resp.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+
+        Part file = req.getPart("file");
+        if (file == null || file.getSize() == 0) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing file part");
+            return;
+        }
+        AnimalImportService.Format format = AnimalImportService.Format.detect(
+                file.getSubmittedFileName(), file.getContentType());
+        if (format == null) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unsupported file type (expected .csv or .xml)");
+            return;
+        }
+
+        Path zip = null;
+        AnimalImportService.Result result;
+        try {
+            Part images = req.getPart("images");
+            if (images != null && images.getSize() > 0) {
+                zip = Files.createTempFile("petpal-import-", ".zip");
+                try (InputStream in = images.getInputStream()) {
+                    Files.copy(in, zip, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            result = importService.importAnimals(file.getInputStream(), format, zip, owner);
+        } catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        } catch (SQLException e) {
+            throw new ServletException("Import failed", e);
+        } finally {
+            if (zip != null) Files.deleteIfExists(zip);
+        }
+
+        resp.setContentType("application/json; charset=UTF-8");
+        resp.setHeader("Cache-Control", "no-store");
+        Writer out = new OutputStreamWriter(resp.getOutputStream(), StandardCharsets.UTF_8);
+        out.write("{\"imported\":" + result.getImported()
+                + ",\"failed\":" + result.getFailed()
+                + ",\"elapsedMillis\":" + result.getElapsedMillis()
+                + ",\"errors\":[");
+        for (int i = 0; i < result.getErrors().size(); i++) {
+            AnimalImportService.RowError e = result.getErrors().get(i);
+            if (i > 0) out.write(',');
+            out.write("{\"row\":" + e.getRow() + ",\"message\":" + JsonLinesExportWriter.quote(e.getMessage()) + "}");
+        }
+        out.write("]}\n");
+        out.flush();
+    }
+}
@@ -0,0 +1,72 @@
+package com.petpal.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+
+
+/**
+ * Newline-delimited JSON (one object per animal per line), UTF-8.
+ * Numbers and booleans are written as JSON literals, everything else as strings; nulls as null.
+ */
+//========================================== JSON Lines Export Writer ===========================================================//
+
+class JsonLinesExportWriter implements ExportWriter {
+
+	private Writer out;
+	private String[] keys;
+
+
+	@Override
+	public void start(OutputStream stream, List<String> columns) throws IOException {
+		out = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+		keys = new String[columns.size()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = quote(columns.get(i)) + ':';
+		}
+	}
+
+	@Override
+	public void row(Object[] values) throws IOException {
+		out.write('{');
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) out.write(',');
+			out.write(keys[i]);
+			Object v = values[i];
+			if (v == null) out.write("null");
+			else if (v instanceof Number || v instanceof Boolean) out.write(v.toString());
+			else out.write(quote(v.toString()));
+		}
+		out.write("}\n");
+	}
+
+	@Override
+	public void end() throws IOException {
+		out.flush();
+	}
+
+
+	/** JSON string literal with the required escapes */
+	static String quote(String s) {
+		StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char ch = s.charAt(i);
+			switch (ch) {
+			case '"':  sb.append("\\\""); break;
+			case '\\': sb.append("\\\\"); break;
+			case '\n': sb.append("\\n"); break;
+			case '\r': sb.append("\\r"); break;
+			case '\t': sb.append("\\t"); break;
+			default:
+				if (ch < 0x20) sb.append(String.format("\\u%04x", (int) ch));
+				else sb.append(ch);
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
+//===============================================================================================================================//
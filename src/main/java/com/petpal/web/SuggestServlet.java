@@ -0,0 +1,129 @@
+package com.petpal.web;
+
+import com.petpal.service.SuggestIndex;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+
+/**
+ * SuggestServlet
+ * --------------
+ * Purpose: Typeahead for the search box of animals.xhtml at GET /suggest/animals?q=...&limit=...
+ * How:
+ *   - Answered entirely from the in-memory {@link SuggestIndex} (trie + typo tolerance); no database access.
+ *   - JSON: {"q":..,"suggestions":[{"text":..,"type":"name"|"category","categoryId":..,"count":..,"distance":..}]}.
+ *   - The page debounces keystrokes and aborts the request it no longer needs; each request carries an increasing
+ *     sequence number in the X-Suggest-Seq header (from the page's clock, so it keeps increasing across reloads).
+ *     A request older than one already seen for the same session is superseded and gets 204 without the lookup
+ *     (a stale answer arriving late could otherwise overwrite a newer one).
+ *   - Answers may be cached privately for a short while (typing back over the same prefix costs nothing).
+ * Notes:
+ *   - limit defaults to 8, at most 20
+ *   - A Server-Timing header reports the lookup time
+ */
+
+//================================================================================================================================//
+
+@WebServlet("/suggest/animals")
+public class SuggestServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int DEFAULT_LIMIT = 8;
+    private static final int MAX_LIMIT = 20;
+
+    /** Highest sequence number seen in the session (AtomicLong) */
+    private static final String SEQ_ATTRIBUTE = "suggestSeq";
+
+    private static final String SEQ_HEADER = "X-Suggest-Seq";
+
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+
+        if (isSuperseded(req)) {
+            resp.setHeader("Cache-Control", "no-store");
+            resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
+            return;
+        }
+
+        String q = req.getParameter("q");
+        int limit = DEFAULT_LIMIT;
+        String limitParam = req.getParameter("limit");
+        if (limitParam != null) {
+            try {
+                limit = Math.max(1, Math.min(MAX_LIMIT, Integer.parseInt(limitParam.trim())));
+            } catch (NumberFormatException e) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Bad limit: " + limitParam);
+                return;
+            }
+        }
+
+        long started = System.nanoTime();
+        List<SuggestIndex.Suggestion> suggestions = SuggestIndex.get().suggest(q, limit);
+        double millis = (System.nanoTime() - started) / 1e6;
+
+        resp.setContentType("application/json; charset=UTF-8");
+        resp.setHeader("Cache-Control", "private, max-age=10");
+        resp.setHeader("Server-Timing", String.format(Locale.ROOT, "suggest;dur=%.3f", millis));
+
+        Writer out = new OutputStreamWriter(resp.getOutputStream(), StandardCharsets.UTF_8);
+        out.write("{\"q\":" + JsonLinesExportWriter.quote(q != null ? q : "") + ",\"suggestions\":[");
+        for (int i = 0; i < suggestions.size(); i++) {
+            SuggestIndex.Suggestion s = suggestions.get(i);
+            if (i > 0) out.write(',');
+            out.write("{\"text\":" + JsonLinesExportWriter.quote(s.getText())
+                    + ",\"type\":\"" + s.getKind().name().toLowerCase(Locale.ROOT) + "\""
+                    + (s.getCategoryId() != null ? ",\"categoryId\":" + s.getCategoryId() : "")
+                    + ",\"count\":" + s.getCount()
+                    + ",\"distance\":" + s.getDistance() + "}");
+        }
+        out.write("]}\n");
+        out.flush();
+    }
+
+
+    /**
+     * Record the request's sequence number in the session; true if a later request was already seen.
+     * Requests without the header or without a session are never superseded (no session is created for this).
+     */
+    private static boolean isSuperseded(HttpServletRequest req) {
+        String header = req.getHeader(SEQ_HEADER);
+        HttpSession session = req.getSession(false);
+        if (header == null || session == null) return false;
+
+        long seq;
+        try {
+            seq = Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        AtomicLong latest = (AtomicLong) session.getAttribute(SEQ_ATTRIBUTE);
+        if (latest == null) {
+            synchronized (SuggestServlet.class) { // once per session
+                latest = (AtomicLong) session.getAttribute(SEQ_ATTRIBUTE);
+                if (latest == null) {
+                    latest = new AtomicLong();
+                    session.setAttribute(SEQ_ATTRIBUTE, latest);
+                }
+            }
+        }
+        return latest.accumulateAndGet(seq, Math::max) > seq;
+    }
+}
@@ -0,0 +1,77 @@
+package com.petpal.web;
+
+import com.petpal.service.ExportField;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+
+
+/**
+ * &lt;animals&gt;&lt;animal&gt;&lt;id&gt;..&lt;/id&gt;...&lt;/animal&gt;&lt;/animals&gt;, written with StAX (which does the escaping).
+ * Element names are the column names; null values become empty elements, except a missing timestamp,
+ * whose element is left out (as the XML export always did).
+ */
+//============================================= XML Export Writer ===============================================================//
+
+class XmlExportWriter implements ExportWriter {
+
+	private static final XMLOutputFactory XML = XMLOutputFactory.newInstance();
+
+	private static final String TIMESTAMP = ExportField.TIMESTAMP.getFieldName();
+
+	private XMLStreamWriter xml;
+	private List<String> columns;
+
+
+	@Override
+	public void start(OutputStream out, List<String> columns) throws IOException {
+		this.columns = columns;
+		try {
+			xml = XML.createXMLStreamWriter(out, "UTF-8");
+			xml.writeStartDocument("UTF-8", "1.0");
+			xml.writeCharacters("\n");
+			xml.writeStartElement("animals");
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public void row(Object[] values) throws IOException {
+		try {
+			xml.writeCharacters("\n  ");
+			xml.writeStartElement("animal");
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] == null && TIMESTAMP.equals(columns.get(i))) continue;
+				xml.writeCharacters("\n    ");
+				xml.writeStartElement(columns.get(i));
+				xml.writeCharacters(values[i] != null ? values[i].toString() : "");
+				xml.writeEndElement();
+			}
+			xml.writeCharacters("\n  ");
+			xml.writeEndElement();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public void end() throws IOException {
+		try {
+			xml.writeCharacters("\n");
+			xml.writeEndElement();
+			xml.writeEndDocument();
+			xml.flush();
+			xml.close();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+}
+//===============================================================================================================================//
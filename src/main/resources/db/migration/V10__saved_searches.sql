@@ -0,0 +1,33 @@
+-- ----------------------------------------------------------------------------------------------
+-- V10: saved searches - a user's filter set, matched against every new animal by the in-memory
+-- percolator (com.petpal.service.SearchPercolator). Matches are delivered to the user's inbox.
+-- gender uses the same one-letter code as animals.gender (V7).
+-- The messages are sent by a system account, which cannot log in (users.system_account).
+-- ----------------------------------------------------------------------------------------------
+
+CREATE TABLE `saved_searches` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `user_id` bigint NOT NULL,
+  `name` varchar(100) NOT NULL,
+  `query` varchar(255) DEFAULT NULL,
+  `category_id` bigint DEFAULT NULL,
+  `gender` char(1) CHARACTER SET ascii DEFAULT NULL,
+  `min_age` int DEFAULT NULL,
+  `max_age` int DEFAULT NULL,
+  `latitude` double DEFAULT NULL,
+  `longitude` double DEFAULT NULL,
+  `radius_km` int DEFAULT NULL,
+  `created_at` datetime(6) NOT NULL,
+  PRIMARY KEY (`id`),
+  KEY `idx_saved_searches_user` (`user_id`),
+  CONSTRAINT `fk_saved_searches_user` FOREIGN KEY (`user_id`) REFERENCES `users` (`id`),
+  CONSTRAINT `fk_saved_searches_category` FOREIGN KEY (`category_id`) REFERENCES `categories` (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+ALTER TABLE `users`
+  ADD COLUMN `system_account` bit(1) NOT NULL DEFAULT b'0';
+
+-- the password is not a BCrypt hash: nothing matches it
+INSERT INTO `users` (`username`, `password`, `email`, `system_account`)
+SELECT IF(EXISTS (SELECT 1 FROM `users` WHERE `username` = 'PetPal'), 'PetPal (system)', 'PetPal'),
+       '!', 'noreply@petpal.invalid', b'1';
@@ -0,0 +1,9 @@
+-- ----------------------------------------------------------------------------------------------
+-- V11: index for the unread message counts.
+--
+--  - messages(isRead, recipient_id): the periodic reconcile of UnreadCounters counts the unread messages
+--    per recipient from this index alone, reading only the unread rows (a small part of the table).
+-- ----------------------------------------------------------------------------------------------
+
+ALTER TABLE `messages`
+  ADD INDEX `idx_messages_unread_recipient` (`isRead`, `recipient_id`);
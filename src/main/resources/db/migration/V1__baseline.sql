@@ -0,0 +1,69 @@
+-- ----------------------------------------------------------------------------------------------
+-- V1: the original PetPal schema (as in sql/petpal_db.sql).
+--
+-- Only runs against an empty database. A database imported from petpal_db.sql is
+-- "baselined" at this version instead (db.migrate.baselineVersion in petpal.properties).
+-- ----------------------------------------------------------------------------------------------
+
+CREATE TABLE `users` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `email` varchar(255) DEFAULT NULL,
+  `password` varchar(255) DEFAULT NULL,
+  `username` varchar(255) DEFAULT NULL,
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+CREATE TABLE `categories` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `name` varchar(255) DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_category_name` (`name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+CREATE TABLE `animals` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `age` int NOT NULL,
+  `fullDescription` varchar(255) DEFAULT NULL,
+  `gender` varchar(255) DEFAULT NULL,
+  `image_blob` longblob,
+  `name` varchar(255) DEFAULT NULL,
+  `shortDescription` varchar(255) DEFAULT NULL,
+  `timestamp` datetime(6) DEFAULT NULL,
+  `category_id` bigint DEFAULT NULL,
+  `owner_id` bigint NOT NULL,
+  PRIMARY KEY (`id`),
+  KEY `FKa0jquvpneyf4vdgi6jbrrxj5b` (`category_id`),
+  KEY `FKhpcrtp144xytkvtb001js3ldp` (`owner_id`),
+  CONSTRAINT `FKa0jquvpneyf4vdgi6jbrrxj5b` FOREIGN KEY (`category_id`) REFERENCES `categories` (`id`),
+  CONSTRAINT `FKhpcrtp144xytkvtb001js3ldp` FOREIGN KEY (`owner_id`) REFERENCES `users` (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+CREATE TABLE `favorites` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `timestamp` datetime(6) DEFAULT NULL,
+  `animal_id` bigint NOT NULL,
+  `user_id` bigint NOT NULL,
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `UKjxpagf3u125vtllix2kw1dx0l` (`user_id`,`animal_id`),
+  KEY `FKba3akmn8ie535jnt81x750uhp` (`animal_id`),
+  CONSTRAINT `FKba3akmn8ie535jnt81x750uhp` FOREIGN KEY (`animal_id`) REFERENCES `animals` (`id`),
+  CONSTRAINT `FKk7du8b8ewipawnnpg76d55fus` FOREIGN KEY (`user_id`) REFERENCES `users` (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+CREATE TABLE `messages` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `content` longtext,
+  `isRead` bit(1) NOT NULL,
+  `subject` varchar(255) DEFAULT NULL,
+  `timestamp` datetime(6) DEFAULT NULL,
+  `animal_id` bigint NOT NULL,
+  `recipient_id` bigint NOT NULL,
+  `sender_id` bigint NOT NULL,
+  PRIMARY KEY (`id`),
+  KEY `FKhdkwfnspwb3s60j27vpg0rpg6` (`recipient_id`),
+  KEY `FK4ui4nnwntodh6wjvck53dbk9m` (`sender_id`),
+  KEY `FKjovh0kh31esxpbv14t7ntcj1l` (`animal_id`),
+  CONSTRAINT `FK4ui4nnwntodh6wjvck53dbk9m` FOREIGN KEY (`sender_id`) REFERENCES `users` (`id`),
+  CONSTRAINT `FKhdkwfnspwb3s60j27vpg0rpg6` FOREIGN KEY (`recipient_id`) REFERENCES `users` (`id`),
+  CONSTRAINT `FKjovh0kh31esxpbv14t7ntcj1l` FOREIGN KEY (`animal_id`) REFERENCES `animals` (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
@@ -0,0 +1,42 @@
+-- ----------------------------------------------------------------------------------------------
+-- V2: move animal images out of `animals`.`image_blob` into `animal_images`,
+-- one row per rendition (THUMB / MEDIUM / ORIGINAL).
+-- Existing images become the ORIGINAL rendition; the image servlet falls back to it.
+-- ----------------------------------------------------------------------------------------------
+
+CREATE TABLE `animal_images` (
+  `animal_id` bigint NOT NULL,
+  `rendition` varchar(10) NOT NULL,
+  `content_type` varchar(50) NOT NULL,
+  `size_bytes` bigint NOT NULL,
+  `width` int NOT NULL DEFAULT 0,
+  `height` int NOT NULL DEFAULT 0,
+  `data` longblob NOT NULL,
+  `updated_at` datetime(6) NOT NULL,
+  PRIMARY KEY (`animal_id`, `rendition`),
+  CONSTRAINT `fk_animal_images_animal` FOREIGN KEY (`animal_id`) REFERENCES `animals` (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+ALTER TABLE `animals` ADD COLUMN `has_image` bit(1) NOT NULL DEFAULT b'0';
+
+-- copy existing images, recognizing the format by its magic bytes
+INSERT INTO `animal_images` (`animal_id`, `rendition`, `content_type`, `size_bytes`, `data`, `updated_at`)
+SELECT `id`,
+       'ORIGINAL',
+       CASE
+         WHEN HEX(LEFT(`image_blob`, 4)) = '89504E47' THEN 'image/png'
+         WHEN HEX(LEFT(`image_blob`, 4)) = '47494638' THEN 'image/gif'
+         WHEN HEX(LEFT(`image_blob`, 4)) = '52494646' THEN 'image/webp'
+         ELSE 'image/jpeg'
+       END,
+       OCTET_LENGTH(`image_blob`),
+       `image_blob`,
+       COALESCE(`timestamp`, NOW(6))
+FROM `animals`
+WHERE `image_blob` IS NOT NULL AND OCTET_LENGTH(`image_blob`) > 0;
+
+UPDATE `animals` a
+JOIN `animal_images` i ON i.`animal_id` = a.`id`
+SET a.`has_image` = b'1';
+
+ALTER TABLE `animals` DROP COLUMN `image_blob`;
@@ -0,0 +1,9 @@
+-- ----------------------------------------------------------------------------------------------
+-- V3: image bytes move to the content-addressed blob store; rows keep only the SHA-256 key.
+-- The key is filled by the Java migration V4 (com.petpal.migration), the old column dropped by V5.
+-- ----------------------------------------------------------------------------------------------
+
+ALTER TABLE `animal_images`
+  ADD COLUMN `blob_key` char(64) NULL AFTER `height`,
+  MODIFY COLUMN `data` longblob NULL,
+  ADD INDEX `idx_animal_images_blob_key` (`blob_key`);
@@ -0,0 +1,7 @@
+-- ----------------------------------------------------------------------------------------------
+-- V5: every image now has its bytes in the blob store (V4); drop the old column.
+-- ----------------------------------------------------------------------------------------------
+
+ALTER TABLE `animal_images`
+  MODIFY COLUMN `blob_key` char(64) NOT NULL,
+  DROP COLUMN `data`;
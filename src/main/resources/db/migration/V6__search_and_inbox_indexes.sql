@@ -0,0 +1,21 @@
+-- ----------------------------------------------------------------------------------------------
+-- V6: composite indexes for the main access paths.
+--
+--  - animals(category_id, gender, age): equality filters first, then the age range (AnimalService.search).
+--  - animals(timestamp): the default sort (newest first); InnoDB appends the primary key,
+--    so the (timestamp, id) keyset order of the search is read straight from the index.
+--  - messages(recipient_id, timestamp) / (sender_id, timestamp): inbox and sent lists,
+--    filtered by user and ordered by time without a filesort. They replace the single-column FK indexes.
+-- ----------------------------------------------------------------------------------------------
+
+ALTER TABLE `animals`
+  ADD INDEX `idx_animals_category_gender_age` (`category_id`, `gender`, `age`),
+  ADD INDEX `idx_animals_timestamp` (`timestamp`);
+
+ALTER TABLE `messages`
+  ADD INDEX `idx_messages_recipient_time` (`recipient_id`, `timestamp`),
+  ADD INDEX `idx_messages_sender_time` (`sender_id`, `timestamp`);
+
+ALTER TABLE `messages`
+  DROP INDEX `FKhdkwfnspwb3s60j27vpg0rpg6`,
+  DROP INDEX `FK4ui4nnwntodh6wjvck53dbk9m`;
@@ -0,0 +1,12 @@
+-- ----------------------------------------------------------------------------------------------
+-- V8: tombstones of deleted animals, read by the incremental export (/export/animals?since=...).
+-- ----------------------------------------------------------------------------------------------
+
+CREATE TABLE `animal_tombstones` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `animal_id` bigint NOT NULL,
+  `category_id` bigint DEFAULT NULL,
+  `deleted_at` datetime(6) NOT NULL,
+  PRIMARY KEY (`id`),
+  KEY `idx_animal_tombstones_deleted_at` (`deleted_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
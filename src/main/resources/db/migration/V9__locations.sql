@@ -0,0 +1,13 @@
+-- ----------------------------------------------------------------------------------------------
+-- V9: optional location (WGS84 degrees) of an animal, and a default search location per user.
+-- Proximity search runs on the in-memory geohash grid (com.petpal.service.GeoIndex), so no
+-- database index is needed on these columns.
+-- ----------------------------------------------------------------------------------------------
+
+ALTER TABLE `animals`
+  ADD COLUMN `latitude` double DEFAULT NULL,
+  ADD COLUMN `longitude` double DEFAULT NULL;
+
+ALTER TABLE `users`
+  ADD COLUMN `latitude` double DEFAULT NULL,
+  ADD COLUMN `longitude` double DEFAULT NULL;
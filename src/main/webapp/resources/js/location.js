@@ -0,0 +1,30 @@
+/*
+ * "Use my location" buttons: fill a latitude and a longitude field from the browser's geolocation.
+ *
+ * <button type="button" data-locate-lat="form:lat" data-locate-lon="form:lon">...</button>
+ * The fields are found by id; values are rounded to 5 decimals (about 1 m).
+ * The listener is attached to the document, so it survives ajax re-renders.
+ */
+(function () {
+	function round(v) {
+		return Math.round(v * 1e5) / 1e5;
+	}
+
+	document.addEventListener('click', function (e) {
+		var button = e.target.closest ? e.target.closest('[data-locate-lat]') : null;
+		if (!button) return;
+		e.preventDefault();
+		if (!navigator.geolocation) {
+			alert('הדפדפן אינו תומך באיתור מיקום');
+			return;
+		}
+		navigator.geolocation.getCurrentPosition(function (pos) {
+			var lat = document.getElementById(button.getAttribute('data-locate-lat'));
+			var lon = document.getElementById(button.getAttribute('data-locate-lon'));
+			if (lat) lat.value = round(pos.coords.latitude);
+			if (lon) lon.value = round(pos.coords.longitude);
+		}, function () {
+			alert('לא ניתן לאתר את המיקום');
+		}, { maximumAge: 600000, timeout: 10000 });
+	});
+})();
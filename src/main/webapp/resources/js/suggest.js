@@ -0,0 +1,83 @@
+/*
+ * Typeahead for the search box of animals.xhtml (GET /suggest/animals).
+ *
+ * - Keystrokes are debounced; a request still in flight when a newer one starts is aborted.
+ * - Every request carries an increasing X-Suggest-Seq, so the server can drop the ones already superseded.
+ * - Suggestions fill the <datalist> of the box. Picking a category suggestion selects that category
+ *   in the filter instead of searching its name as text.
+ * - Listeners are attached to the document, so they survive the ajax re-render of the form.
+ */
+(function () {
+	var DEBOUNCE_MS = 120;
+	var MIN_CHARS = 1;
+
+	var timer = null;
+	var inFlight = null;
+	var lastSeq = 0;
+	var lastSuggestions = [];
+
+	function nextSeq() {
+		// page clock: keeps increasing across reloads of the page within the same session
+		lastSeq = Math.max(lastSeq + 1, Date.now());
+		return lastSeq;
+	}
+
+	function isSearchBox(el) {
+		return el && el.getAttribute && el.getAttribute('data-suggest-url') !== null;
+	}
+
+	function render(box, suggestions) {
+		var list = document.getElementById(box.getAttribute('list'));
+		if (!list) return;
+		lastSuggestions = suggestions;
+		list.innerHTML = '';
+		suggestions.forEach(function (s) {
+			var option = document.createElement('option');
+			option.value = s.text;
+			option.label = s.type === 'category' ? 'קטגוריה · ' + s.count : String(s.count);
+			list.appendChild(option);
+		});
+	}
+
+	function fetchSuggestions(box) {
+		var q = box.value.trim();
+		if (inFlight) inFlight.abort();
+		if (q.length < MIN_CHARS) {
+			render(box, []);
+			return;
+		}
+		inFlight = new AbortController();
+		fetch(box.getAttribute('data-suggest-url') + '?q=' + encodeURIComponent(q), {
+			credentials: 'same-origin',
+			headers: { 'X-Suggest-Seq': String(nextSeq()) },
+			signal: inFlight.signal
+		}).then(function (resp) {
+			if (resp.status !== 200) return null; // 204 = superseded
+			return resp.json();
+		}).then(function (data) {
+			if (data && box.value.trim() === data.q) render(box, data.suggestions);
+		}).catch(function () {
+			// aborted or offline: the box keeps working without suggestions
+		});
+	}
+
+	document.addEventListener('input', function (e) {
+		var box = e.target;
+		if (!isSearchBox(box)) return;
+		clearTimeout(timer);
+		timer = setTimeout(function () { fetchSuggestions(box); }, DEBOUNCE_MS);
+	});
+
+	document.addEventListener('change', function (e) {
+		var box = e.target;
+		if (!isSearchBox(box)) return;
+		var picked = lastSuggestions.filter(function (s) {
+			return s.type === 'category' && s.text === box.value;
+		})[0];
+		if (!picked) return;
+		var select = document.getElementById(box.getAttribute('data-category-select'));
+		if (!select) return;
+		select.value = String(picked.categoryId);
+		box.value = '';
+	});
+})();
@@ -0,0 +1,95 @@
+package com.petpal.service;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+
+/**
+ * The counting map: adding and reading, removal at zero (including from the middle of a probe run) and growth.
+ */
+//============================================ Long Int Map Test ================================================================//
+
+public class LongIntMapTest {
+
+	@Test
+	public void countsUpAndDown() {
+		LongIntMap m = new LongIntMap();
+		assertEquals(0, m.get(7));
+		assertEquals(1, m.add(7, 1));
+		assertEquals(3, m.add(7, 2));
+		assertEquals(3, m.get(7));
+		assertEquals(1, m.size());
+		assertEquals(0, m.add(7, -3));
+		assertEquals(0, m.get(7));
+		assertTrue(m.isEmpty());
+	}
+
+	@Test
+	public void addingZeroToAnAbsentKeyStoresNothing() {
+		LongIntMap m = new LongIntMap();
+		assertEquals(0, m.add(5, 0));
+		assertTrue(m.isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void keyZeroIsReserved() {
+		new LongIntMap().add(0, 1);
+	}
+
+	@Test
+	public void growsPastItsExpectedSize() {
+		LongIntMap m = new LongIntMap(2);
+		for (long k = 1; k <= 10_000; k++) m.add(k, (int) k);
+		assertEquals(10_000, m.size());
+		for (long k = 1; k <= 10_000; k++) assertEquals(k, m.get(k));
+		assertEquals(0, m.get(10_001));
+	}
+
+	/**
+	 * At 3/4 load the probe runs are long, so most removals leave a gap inside a run:
+	 * every key behind it must still be found.
+	 */
+	@Test
+	public void removalInsideProbeRunsKeepsTheOtherKeys() {
+		LongIntMap m = new LongIntMap(48);
+		for (long k = 1; k <= 48; k++) m.add(k, 1);
+		for (long removed = 1; removed <= 48; removed += 2) {
+			m.add(removed, -1);
+			for (long k = 1; k <= 48; k++) {
+				boolean present = k > removed || k % 2 == 0;
+				assertEquals("key " + k + " after removing " + removed, present ? 1 : 0, m.get(k));
+			}
+		}
+		assertEquals(24, m.size());
+	}
+
+	@Test
+	public void matchesHashMapUnderRandomChanges() {
+		Random random = new Random(42);
+		LongIntMap m = new LongIntMap();
+		Map<Long, Integer> expected = new HashMap<>();
+		for (int i = 0; i < 200_000; i++) {
+			long key = 1 + random.nextInt(2_000);
+			int delta = random.nextBoolean() ? 1 : -1;
+			int value = expected.getOrDefault(key, 0) + delta;
+			if (value == 0) expected.remove(key);
+			else expected.put(key, value);
+			assertEquals(value, m.add(key, delta));
+		}
+		assertEquals(expected.size(), m.size());
+		int[] visited = { 0 };
+		m.forEach((key, value) -> {
+			assertEquals(expected.get(key).intValue(), value);
+			visited[0]++;
+		});
+		assertEquals(expected.size(), visited[0]);
+	}
+}
+//===============================================================================================================================//
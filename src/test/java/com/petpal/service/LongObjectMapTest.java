@@ -0,0 +1,88 @@
+package com.petpal.service;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+
+
+/**
+ * The object map: put, replace and remove, removal from the middle of a probe run, and growth.
+ */
+//=========================================== Long Object Map Test ==============================================================//
+
+public class LongObjectMapTest {
+
+	@Test
+	public void putReplacesAndRemoveReturnsTheValue() {
+		LongObjectMap<String> m = new LongObjectMap<>();
+		assertNull(m.get(3));
+		m.put(3, "a");
+		m.put(3, "b");
+		assertEquals(1, m.size());
+		assertEquals("b", m.get(3));
+		assertEquals("b", m.remove(3));
+		assertNull(m.remove(3));
+		assertNull(m.get(3));
+		assertEquals(0, m.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void nullValuesAreRefused() {
+		new LongObjectMap<String>().put(1, null);
+	}
+
+	@Test
+	public void growsPastItsExpectedSize() {
+		LongObjectMap<Long> m = new LongObjectMap<>(2);
+		for (long k = 1; k <= 10_000; k++) m.put(k, k);
+		assertEquals(10_000, m.size());
+		for (long k = 1; k <= 10_000; k++) assertEquals(Long.valueOf(k), m.get(k));
+		long[] keys = m.keys();
+		Arrays.sort(keys);
+		long[] all = new long[10_000];
+		for (int i = 0; i < all.length; i++) all[i] = i + 1;
+		assertArrayEquals(all, keys);
+	}
+
+	/** Removals from long probe runs (3/4 load) must leave every other key reachable */
+	@Test
+	public void removalInsideProbeRunsKeepsTheOtherKeys() {
+		LongObjectMap<Long> m = new LongObjectMap<>(48);
+		for (long k = 1; k <= 48; k++) m.put(k, k);
+		for (long removed = 1; removed <= 48; removed += 3) {
+			assertEquals(Long.valueOf(removed), m.remove(removed));
+			for (long k = 1; k <= 48; k++) {
+				boolean present = k > removed || k % 3 != 1;
+				assertEquals("key " + k + " after removing " + removed, present ? Long.valueOf(k) : null, m.get(k));
+			}
+		}
+		assertEquals(32, m.size());
+	}
+
+	@Test
+	public void matchesHashMapUnderRandomChanges() {
+		Random random = new Random(7);
+		LongObjectMap<Integer> m = new LongObjectMap<>();
+		Map<Long, Integer> expected = new HashMap<>();
+		for (int i = 0; i < 200_000; i++) {
+			long key = 1 + random.nextInt(2_000);
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key), m.remove(key));
+			} else {
+				expected.put(key, i);
+				m.put(key, i);
+			}
+		}
+		assertEquals(expected.size(), m.size());
+		for (long key = 1; key <= 2_000; key++) assertEquals(expected.get(key), m.get(key));
+	}
+}
+//===============================================================================================================================//
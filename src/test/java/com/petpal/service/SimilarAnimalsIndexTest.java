@@ -0,0 +1,101 @@
+package com.petpal.service;
+
+import com.petpal.service.SimilarAnimalsIndex.Row;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+
+/**
+ * The best similar animals of a row: a full ranking, and the incremental updates (raised / lowered)
+ * checked against it.
+ */
+//========================================= Similar Animals Index Test ==========================================================//
+
+public class SimilarAnimalsIndexTest {
+
+	/** Others in the tests: more than a row keeps, so the cut-off is exercised */
+	private static final int OTHERS = 60;
+
+
+	/** Every other of the row by brute force: more shared users first, then the higher id */
+	private static long[] byRank(Row row) {
+		List<long[]> all = new ArrayList<>();
+		row.counts.forEach((other, count) -> all.add(new long[] { other, count }));
+		all.sort((a, b) -> (a[1] != b[1]) ? Long.compare(b[1], a[1]) : Long.compare(b[0], a[0]));
+		long[] ids = new long[all.size()];
+		for (int i = 0; i < ids.length; i++) ids[i] = all.get(i)[0];
+		return ids;
+	}
+
+	/** The row's best equal those of the same counts ranked from scratch */
+	private static void assertSameAsRanked(Row row, String when) {
+		Row fresh = new Row(OTHERS);
+		row.counts.forEach(fresh.counts::add);
+		fresh.rank();
+		assertArrayEquals(when, fresh.top, row.top);
+		assertArrayEquals(when, fresh.topCounts, row.topCounts);
+	}
+
+
+	@Test
+	public void rankKeepsTheMostSharedThenTheNewest() {
+		Row row = new Row(OTHERS);
+		for (long other = 1; other <= OTHERS; other++) row.counts.add(other, (int) (other % 5) + 1);
+		row.rank();
+		assertTrue(row.top.length > 0 && row.top.length < OTHERS);
+		assertArrayEquals(Arrays.copyOf(byRank(row), row.top.length), row.top);
+		for (int i = 0; i < row.top.length; i++) assertEquals(row.counts.get(row.top[i]), row.topCounts[i]);
+	}
+
+	@Test
+	public void rankOfAFewOthersKeepsThemAll() {
+		Row row = new Row(4);
+		row.counts.add(10, 1);
+		row.counts.add(11, 1);
+		row.counts.add(12, 2);
+		row.rank();
+		assertArrayEquals(new long[] { 12, 11, 10 }, row.top);
+		assertArrayEquals(new int[] { 2, 1, 1 }, row.topCounts);
+	}
+
+	@Test
+	public void raisedMovesAnOtherUpAndIntoTheBest() {
+		Row row = new Row(4);
+		row.counts.add(10, 1);
+		row.rank();
+		row.raised(11, row.counts.add(11, 1));  // new, ties with 10 but newer
+		assertArrayEquals(new long[] { 11, 10 }, row.top);
+		row.raised(10, row.counts.add(10, 1));  // 10 now leads
+		assertArrayEquals(new long[] { 10, 11 }, row.top);
+		assertArrayEquals(new int[] { 2, 1 }, row.topCounts);
+	}
+
+	/** Random favorites added and removed: the incremental best always equals a full ranking */
+	@Test
+	public void incrementalUpdatesMatchAFullRanking() {
+		Random random = new Random(11);
+		Row row = new Row(OTHERS);
+		row.rank();
+		for (int step = 0; step < 20_000; step++) {
+			long other = 1 + random.nextInt(OTHERS);
+			if (random.nextInt(3) > 0) {
+				row.raised(other, row.counts.add(other, 1));
+			} else if (row.counts.get(other) > 0) {
+				row.counts.add(other, -1);
+				row.lowered(other);
+			}
+			assertSameAsRanked(row, "step " + step);
+		}
+	}
+}
+//===============================================================================================================================//
@@ -0,0 +1,155 @@
+package com.petpal.service;
+
+import com.petpal.service.SuggestIndex.Entry;
+import com.petpal.service.SuggestIndex.Kind;
+import com.petpal.service.SuggestIndex.Suggestion;
+import com.petpal.service.SuggestIndex.Trie;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+
+/**
+ * The typeahead trie: exact prefixes, typos (substitution, transposition), the first-letter rule at two edits,
+ * and the order and limit of the suggestions.
+ */
+//============================================ Suggest Index Test ===============================================================//
+
+public class SuggestIndexTest {
+
+	private final List<String> keys = new ArrayList<>();
+	private final List<Entry> entries = new ArrayList<>();
+
+
+	/** Index a name under its whole (normalized) text and the given extra keys */
+	private void name(String text, int animals, String... moreKeys) {
+		Entry e = new Entry(text, Kind.NAME, null, animals);
+		keys.add(text);
+		entries.add(e);
+		for (String k : moreKeys) {
+			keys.add(k);
+			entries.add(e);
+		}
+	}
+
+	private List<Suggestion> suggest(String q, int maxEdits, int limit) {
+		return Trie.build(keys, entries).suggest(q, maxEdits, limit);
+	}
+
+	private static List<String> texts(List<Suggestion> suggestions) {
+		List<String> out = new ArrayList<>();
+		for (Suggestion s : suggestions) out.add(s.getText());
+		return out;
+	}
+
+
+
+	//***************************************** Exact prefix *********************************************//
+
+	@Test
+	public void exactPrefixCompletesHeaviestFirst() {
+		name("max", 5);
+		name("maxi", 9);
+		name("mia", 20);
+		List<Suggestion> s = suggest("ma", 0, 10);
+		assertEquals(Arrays.asList("maxi", "max"), texts(s));
+		assertEquals(0, s.get(0).getDistance());
+		assertEquals(9, s.get(0).getCount());
+	}
+
+	@Test
+	public void wholeKeyIsItsOwnPrefix() {
+		name("max", 5);
+		name("maxi", 9);
+		assertEquals(Arrays.asList("maxi", "max"), texts(suggest("max", 0, 10)));
+		assertEquals(Arrays.asList("maxi"), texts(suggest("maxi", 0, 10)));
+		assertTrue(suggest("maxim", 0, 10).isEmpty());
+	}
+
+	@Test
+	public void nameFoundByTwoKeysIsSuggestedOnce() {
+		name("מלך האריות", 4, "האריות", "אריות");
+		assertEquals(Arrays.asList("מלך האריות"), texts(suggest("א", 0, 10)));
+		assertEquals(Arrays.asList("מלך האריות"), texts(suggest("ה", 0, 10)));
+	}
+
+
+
+	//***************************************** Typos *********************************************//
+
+	@Test
+	public void oneSubstitution() {
+		name("bella", 3);
+		assertTrue(suggest("bekl", 0, 10).isEmpty());
+		List<Suggestion> s = suggest("bekl", 1, 10);
+		assertEquals(Arrays.asList("bella"), texts(s));
+		assertEquals(1, s.get(0).getDistance());
+	}
+
+	@Test
+	public void oneTransposition() {
+		name("bruno", 3);
+		List<Suggestion> s = suggest("burn", 1, 10); // "ru" swapped: one edit, not two substitutions
+		assertEquals(Arrays.asList("bruno"), texts(s));
+		assertEquals(1, s.get(0).getDistance());
+	}
+
+	@Test
+	public void twoEditsKeepTheFirstLetter() {
+		name("luna", 3);
+		assertEquals(Arrays.asList("luna"), texts(suggest("lxnq", 2, 10)));
+		assertEquals(2, suggest("lxnq", 2, 10).get(0).getDistance());
+		assertTrue(suggest("xunq", 2, 10).isEmpty()); // two edits, one of them the first letter
+	}
+
+	@Test
+	public void oneEditMayChangeTheFirstLetter() {
+		name("luna", 3);
+		assertEquals(Arrays.asList("luna"), texts(suggest("xuna", 2, 10)));
+	}
+
+	@Test
+	public void moreThanMaxEditsIsNotSuggested() {
+		name("bella", 3);
+		assertTrue(suggest("bxxl", 1, 10).isEmpty());
+	}
+
+
+
+	//***************************************** Order and limit *********************************************//
+
+	@Test
+	public void limitKeepsTheHeaviest() {
+		name("max", 5);
+		name("maxi", 9);
+		name("mango", 7);
+		name("mars", 1);
+		assertEquals(Arrays.asList("maxi", "mango"), texts(suggest("ma", 0, 2)));
+	}
+
+	@Test
+	public void fewerEditsComeBeforeMoreAnimals() {
+		name("max", 1);
+		name("mad", 100);
+		List<Suggestion> s = suggest("max", 1, 10);
+		assertEquals(Arrays.asList("max", "mad"), texts(s));
+		assertEquals(0, s.get(0).getDistance());
+		assertEquals(1, s.get(1).getDistance());
+	}
+
+	@Test
+	public void typosAreNotTriedWhenExactPrefixesFillTheLimit() {
+		name("max", 1);
+		name("maxi", 2);
+		name("mad", 100);
+		assertEquals(Arrays.asList("maxi", "max"), texts(suggest("max", 1, 2)));
+	}
+}
+//===============================================================================================================================//